@@ -0,0 +1,486 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder.SheetRecordCollectingListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SharedFormulaRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.ErrorConstants;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * Legacy Excel (XLS, BIFF8) record listener turning the records streamed by the HSSF event API into
+ * {@link SheetContentsHandler} events, the counterpart of {@link ExcelSheetXMLHandler}. Cell
+ * references, number formatting, boolean and error values and formulas (their text, the cached
+ * value for boolean and error results) are delivered the way the XLSX handler delivers them, so
+ * the same contents handlers work on both.
+ * 
+ * <p>
+ * Only the current row is held, nothing of the workbook is kept beyond the shared strings and the
+ * formats. Rows are delivered the same way as for XLSX: rows without a cell value are skipped
+ * only when empty row skipping is enabled, the header row (row zero) is always delivered. Once the
+ * last requested sheet is done the rest of the workbook stream is not read.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+final class ExcelBiffListener extends AbortableHSSFListener {
+
+  /**
+   * Sheet level callbacks of the reader driving the listener
+   */
+  interface SheetLifecycle {
+
+    /**
+     * Starts a sheet, returns its contents handler or null if the sheet isn't read
+     */
+    SheetContentsHandler startSheet(int sheetIndex, String sheetName);
+
+    /**
+     * Returns the callback of the sheet dimension for given handler (can be null)
+     */
+    ExcelSheetDimensionCallback getDimensionCallback(SheetContentsHandler handler);
+
+    /**
+     * Ends the current sheet, handler is null if the sheet wasn't read
+     */
+    void endSheet(SheetContentsHandler handler);
+  }
+
+  private static final Log LOG = LogFactory.getLog(ExcelBiffListener.class);
+
+  private static final short CONTINUE = 0;
+
+  private static final short ABORT = 1;
+
+  private static final int HEADER_ROW = 0;
+
+  private final SheetLifecycle lifecycle;
+  private final FormatTrackingHSSFListener formats;
+  private final SheetRecordCollectingListener workbookRecords =
+      new SheetRecordCollectingListener(null);
+  private BoundSheetRecord[] sheets;
+  private HSSFWorkbook stubWorkbook;
+  private boolean formulaWarned;
+  private boolean skipEmptyRows = false;
+  private int emptyRowLimit;
+  private int firstRow;
+  private int lastRow = Integer.MAX_VALUE;
+  private int lastSheetIndex = Integer.MAX_VALUE;
+
+  private int depth;
+  private int sheetIndex = -1;
+  private boolean sheetOpen;
+  private boolean sheetStopped;
+  private SheetContentsHandler output;
+  private final BitSet declaredRows = new BitSet();
+  private int currentRow;
+  private int lastClosedRow;
+  private boolean rowOpen;
+  private boolean rowSkipped;
+  private boolean rowStarted;
+  private int consecutiveEmptyRows;
+  private final List<SharedFormulaRecord> sharedFormulas = new ArrayList<SharedFormulaRecord>();
+  private FormulaRecord sharedFormulaCell;
+  private final List<String> blankCellReferences = new ArrayList<String>();
+  private final List<String> blankCellValues = new ArrayList<String>();
+
+  /**
+   * Constructor
+   * 
+   * @param lifecycle a {@link SheetLifecycle} object - sheet level callbacks
+   * @param locale a {@link Locale} object - locale of number and date formats
+   */
+  ExcelBiffListener(SheetLifecycle lifecycle, Locale locale) {
+    this.lifecycle = lifecycle;
+    this.formats = new FormatTrackingHSSFListener(null, locale);
+  }
+
+  /**
+   * To skip rows without any cell value, default it is disabled
+   * 
+   * @param skipEmptyRows a boolean
+   */
+  void setSkipEmptyRows(boolean skipEmptyRows) {
+    this.skipEmptyRows = skipEmptyRows;
+  }
+
+  /**
+   * To stop reading a sheet after given number of consecutive empty rows, 0 disables it
+   * 
+   * @param emptyRowLimit a <code>int</code>
+   */
+  void setEmptyRowLimit(int emptyRowLimit) {
+    this.emptyRowLimit = emptyRowLimit;
+  }
+
+  /**
+   * Sets the zero based rows to deliver, the header row is delivered as well
+   * 
+   * @param firstRow a <code>int</code> - first row
+   * @param lastRow a <code>int</code> - row to stop after
+   */
+  void setRows(int firstRow, int lastRow) {
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+  }
+
+  /**
+   * Sets the zero based index of the last sheet to read, the workbook stream is abandoned after it
+   * 
+   * @param lastSheetIndex a <code>int</code>
+   */
+  void setLastSheetIndex(int lastSheetIndex) {
+    this.lastSheetIndex = lastSheetIndex;
+  }
+
+  @Override
+  public short abortableProcessRecord(Record record) {
+    formats.processRecordInternally(record);
+    workbookRecords.processRecordInternally(record);
+    if (null != sharedFormulaCell) {
+      this.sharedFormula(record);
+    }
+
+    switch (record.getSid()) {
+      case BOFRecord.sid:
+        depth++;
+        if (1 == depth && BOFRecord.TYPE_WORKBOOK != ((BOFRecord) record).getType()) {
+          this.startSheet();
+        }
+        break;
+      case EOFRecord.sid:
+        depth--;
+        if (0 == depth && sheetOpen) {
+          this.closeRow();
+          this.closeDeclaredRows(Integer.MAX_VALUE);
+          this.endSheet();
+        }
+        break;
+      case DimensionsRecord.sid:
+        this.dimension((DimensionsRecord) record);
+        break;
+      case RowRecord.sid:
+        if (null != output && 1 == depth) {
+          declaredRows.set(((RowRecord) record).getRowNumber());
+        }
+        break;
+      case NumberRecord.sid:
+        NumberRecord number = (NumberRecord) record;
+        this.cell(number.getRow(), number.getColumn(), formats.formatNumberDateCell(number));
+        break;
+      case LabelSSTRecord.sid:
+        LabelSSTRecord label = (LabelSSTRecord) record;
+        this.cell(label.getRow(), label.getColumn(), workbookRecords.getSSTRecord()
+            .getString(label.getSSTIndex()).getString());
+        break;
+      case LabelRecord.sid:
+        LabelRecord text = (LabelRecord) record;
+        this.cell(text.getRow(), text.getColumn(), text.getValue());
+        break;
+      case BoolErrRecord.sid:
+        BoolErrRecord boolErr = (BoolErrRecord) record;
+        this.cell(boolErr.getRow(), boolErr.getColumn(), boolErr.isBoolean() ? getBoolean(boolErr
+            .getBooleanValue()) : getError(boolErr.getErrorValue()));
+        break;
+      case FormulaRecord.sid:
+        this.formula((FormulaRecord) record);
+        break;
+      case SharedFormulaRecord.sid:
+        sharedFormulas.add((SharedFormulaRecord) record);
+        break;
+      default:
+        break;
+    }
+
+    if (sheetStopped && sheetOpen) {
+      this.endSheet();
+    }
+    if (!sheetOpen && sheetIndex >= lastSheetIndex) {
+      this.skipRemainingSheets();
+      return ABORT;
+    }
+    return CONTINUE;
+  }
+
+  private void startSheet() {
+    if (null == sheets) {
+      sheets =
+          BoundSheetRecord.orderByBofPosition(Arrays.asList(workbookRecords
+              .getBoundSheetRecords()));
+    }
+    sheetIndex++;
+    String sheetName = (sheetIndex < sheets.length) ? sheets[sheetIndex].getSheetname() : null;
+
+    output = lifecycle.startSheet(sheetIndex, sheetName);
+    sheetOpen = true;
+    sheetStopped = false;
+    declaredRows.clear();
+    currentRow = -1;
+    lastClosedRow = -1;
+    rowOpen = false;
+    consecutiveEmptyRows = 0;
+    sharedFormulas.clear();
+  }
+
+  private void endSheet() {
+    SheetContentsHandler handler = output;
+    output = null;
+    sheetOpen = false;
+    lifecycle.endSheet(handler);
+  }
+
+  /**
+   * Delivers the start and end of the sheets after an abandoned stream
+   */
+  private void skipRemainingSheets() {
+    for (int i = sheetIndex + 1; i < sheets.length; i++) {
+      lifecycle.startSheet(i, sheets[i].getSheetname());
+      lifecycle.endSheet(null);
+    }
+    sheetIndex = sheets.length;
+  }
+
+  private void dimension(DimensionsRecord record) {
+    if (null == output || 1 != depth || record.getLastRow() <= record.getFirstRow()
+        || record.getLastCol() <= record.getFirstCol()) {
+      return;
+    }
+
+    ExcelSheetDimensionCallback callback = lifecycle.getDimensionCallback(output);
+    if (null != callback) {
+      // last row and column of the record are exclusive; narrowed to the requested rows
+      ExcelSheetDimension dimension = new ExcelSheetDimension(record.getFirstRow(),
+          record.getLastRow() - 1, record.getFirstCol(), record.getLastCol() - 1)
+          .narrowRows(firstRow, lastRow);
+      if (null != dimension) {
+        callback.sheetDimension(dimension);
+      }
+    }
+  }
+
+  private void formula(FormulaRecord record) {
+    if (Cell.CELL_TYPE_BOOLEAN == record.getCachedResultType()) {
+      this.cell(record.getRow(), record.getColumn(), getBoolean(record.getCachedBooleanValue()));
+      return;
+    }
+    if (Cell.CELL_TYPE_ERROR == record.getCachedResultType()) {
+      this.cell(record.getRow(), record.getColumn(), getError(record.getCachedErrorValue()));
+      return;
+    }
+
+    Ptg[] tokens = record.getParsedExpression();
+    if (record.isSharedFormula()) {
+      SharedFormulaRecord shared = getSharedFormula(record);
+      if (null == shared) {
+        // first cell of a shared formula, its tokens follow in the shared formula record
+        sharedFormulaCell = record;
+        return;
+      }
+      tokens = shared.getFormulaTokens(record);
+    }
+
+    this.cell(record.getRow(), record.getColumn(), getFormulaText(tokens));
+  }
+
+  /**
+   * Delivers the first cell of a shared formula once the record after it is seen
+   */
+  private void sharedFormula(Record record) {
+    FormulaRecord cell = sharedFormulaCell;
+    sharedFormulaCell = null;
+    String formula = "";
+    if (record instanceof SharedFormulaRecord) {
+      formula = getFormulaText(((SharedFormulaRecord) record).getFormulaTokens(cell));
+    }
+    this.cell(cell.getRow(), cell.getColumn(), formula);
+  }
+
+  private SharedFormulaRecord getSharedFormula(FormulaRecord record) {
+    for (SharedFormulaRecord shared : sharedFormulas) {
+      if (shared.isInRange(record.getRow(), record.getColumn())) {
+        return shared;
+      }
+    }
+    return null;
+  }
+
+  private String getFormulaText(Ptg[] tokens) {
+    try {
+      if (null == stubWorkbook) {
+        stubWorkbook = workbookRecords.getStubHSSFWorkbook();
+      }
+      return HSSFFormulaParser.toFormulaString(stubWorkbook, tokens);
+    } catch (RuntimeException e) {
+      if (!formulaWarned) {
+        LOG.warn("Formula cannot be rendered, its cell has an empty value: " + e.getMessage());
+        formulaWarned = true;
+      }
+      return "";
+    }
+  }
+
+  /**
+   * Delivers a cell value, the row start is delivered with the first non empty value. Empty values
+   * before it are held back and delivered with it, as the XLSX handler does.
+   */
+  private void cell(int row, int column, String formattedValue) {
+    if (null == output || sheetStopped || 1 != depth) {
+      return;
+    }
+
+    if (!rowOpen || row != currentRow) {
+      this.closeRow();
+      this.openRow(row);
+      if (sheetStopped) {
+        return;
+      }
+    }
+    if (rowSkipped) {
+      return;
+    }
+
+    String cellReference = CellReference.convertNumToColString(column) + (row + 1);
+    if (!rowStarted) {
+      if (null == formattedValue || formattedValue.isEmpty()) {
+        blankCellReferences.add(cellReference);
+        blankCellValues.add(formattedValue);
+        return;
+      }
+
+      this.startRow();
+      for (int i = 0; i < blankCellReferences.size(); i++) {
+        output.cell(blankCellReferences.get(i), blankCellValues.get(i));
+      }
+    }
+
+    output.cell(cellReference, formattedValue);
+  }
+
+  private void openRow(int row) {
+    this.closeDeclaredRows(row);
+    if (sheetStopped) {
+      return;
+    }
+    if (row > lastRow) {
+      sheetStopped = true;
+      return;
+    }
+
+    this.beginRow(row);
+  }
+
+  private void beginRow(int row) {
+    currentRow = row;
+    rowOpen = true;
+    rowStarted = false;
+    rowSkipped = HEADER_ROW != row && row < firstRow;
+    if (!rowSkipped && (!skipEmptyRows || HEADER_ROW == row)) {
+      this.startRow();
+    }
+  }
+
+  private void startRow() {
+    rowStarted = true;
+    output.startRow(currentRow);
+  }
+
+  private void closeRow() {
+    if (!rowOpen) {
+      return;
+    }
+    rowOpen = false;
+    lastClosedRow = currentRow;
+    blankCellReferences.clear();
+    blankCellValues.clear();
+
+    if (rowSkipped) {
+      return;
+    }
+    if (rowStarted) {
+      consecutiveEmptyRows = 0;
+      output.endRow();
+      return;
+    }
+
+    consecutiveEmptyRows++;
+    if (emptyRowLimit > 0 && consecutiveEmptyRows >= emptyRowLimit) {
+      sheetStopped = true;
+    }
+  }
+
+  /**
+   * Delivers the rows declared by row records before given row that have no cell record, they are
+   * the empty rows of the sheet
+   */
+  private void closeDeclaredRows(int beforeRow) {
+    if (null == output) {
+      return;
+    }
+
+    for (int row = declaredRows.nextSetBit(lastClosedRow + 1); row >= 0 && row < beforeRow
+        && !sheetStopped; row = declaredRows.nextSetBit(row + 1)) {
+      if (row > lastRow) {
+        sheetStopped = true;
+        return;
+      }
+
+      this.beginRow(row);
+      this.closeRow();
+    }
+  }
+
+  private static String getBoolean(boolean value) {
+    return value ? "TRUE" : "FALSE";
+  }
+
+  private static String getError(int errorCode) {
+    return "ERROR:" + ErrorConstants.getText(errorCode);
+  }
+}
@@ -0,0 +1,471 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Formats numeric cell values by cell style. Every style index is compiled once into a cached
+ * format: Excel <i>General</i>, integer and fixed decimal formats (e.g. 0, 0.00, #,##0.00) and
+ * numeric date formats (e.g. yyyy-mm-dd hh:mm:ss, m/d/yy) are rendered straight from the raw cell
+ * text, anything else goes through {@link DataFormatter}. Fast paths only apply when their output
+ * is identical to {@link DataFormatter}, otherwise the value falls back to it.
+ * 
+ * <p>
+ * Not thread-safe, a formatter is used by one sheet parse at a time.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+class ExcelCellFormatter {
+
+  private static final long DAY_MILLISECONDS = 24L * 60 * 60 * 1000;
+
+  /**
+   * Day 1 of the 1900 date system (1900-01-01) as days since 1970-01-01
+   */
+  private static final int EXCEL_EPOCH_DAY = -25567;
+
+  /**
+   * Significant digits a double keeps through text conversion
+   */
+  private static final int MAX_SIGNIFICANT_DIGITS = 15;
+
+  /**
+   * Fraction digits of the General decimal format (#.##########)
+   */
+  private static final int GENERAL_FRACTION_DIGITS = 10;
+
+  /**
+   * Date fields of a compiled date format, token = field * 8 + width, literal = -character
+   */
+  private static final int YEAR = 1;
+  private static final int MONTH = 2;
+  private static final int DAY = 3;
+  private static final int HOUR = 4;
+  private static final int MINUTE = 5;
+  private static final int SECOND = 6;
+
+  /**
+   * Kinds of compiled format
+   */
+  private enum Kind {
+    NONE, GENERAL, FIXED, DATE, FORMATTER
+  }
+
+  /**
+   * Compiled format of one cell style
+   */
+  private static final class StyleFormat {
+    private Kind kind = Kind.FORMATTER;
+    private short formatIndex;
+    private String formatString;
+    private boolean grouping;
+    private int scale;
+    private int[] dateTokens;
+  }
+
+  private static final StyleFormat NO_FORMAT = new StyleFormat();
+
+  static {
+    NO_FORMAT.kind = Kind.NONE;
+  }
+
+  private final ExcelStyles styles;
+  private final DataFormatter formatter;
+  private final TimeZone timeZone;
+  private final char decimalSeparator;
+  private final char groupingSeparator;
+  private final char minusSign;
+  private final boolean plainDigits;
+  private StyleFormat[] compiled;
+
+  private final StringBuilder buf = new StringBuilder(32);
+
+  // Raw number text scanned by scan(): sign, integer and fraction digit ranges
+  private boolean negative;
+  private int intStart;
+  private int intEnd;
+  private int fractionStart;
+  private int fractionEnd;
+
+  /**
+   * Constructor
+   * 
+   * @param styles a {@link ExcelStyles} object
+   * @param locale a {@link Locale} object - locale of the formatted values
+   */
+  ExcelCellFormatter(ExcelStyles styles, Locale locale) {
+    this.styles = styles;
+    this.formatter = new DataFormatter(locale);
+    this.timeZone = TimeZone.getDefault();
+
+    DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
+    this.decimalSeparator = symbols.getDecimalSeparator();
+    this.groupingSeparator = symbols.getGroupingSeparator();
+    this.minusSign = symbols.getMinusSign();
+    this.plainDigits = '0' == symbols.getZeroDigit();
+    this.compiled = new StyleFormat[Math.max(styles.getStyleCount(), 1)];
+  }
+
+  /**
+   * Returns formatted value of a numeric cell, null if the style has no number format. Like
+   * {@link DataFormatter}, a value which isn't a number throws {@link NumberFormatException}.
+   * 
+   * @param styleIndex a <code>int</code> - value of the cell 's' attribute
+   * @param value a {@link CharSequence} object - raw cell value
+   * @return String
+   */
+  String format(int styleIndex, CharSequence value) {
+    StyleFormat format = getStyleFormat(styleIndex);
+    switch (format.kind) {
+      case NONE:
+        return null;
+      case GENERAL:
+        if (scan(value) && (fractionStart == fractionEnd || fractionEnd - fractionStart
+            <= GENERAL_FRACTION_DIGITS)) {
+          return formatDecimal(value, false, fractionEnd - fractionStart);
+        }
+        break;
+      case FIXED:
+        if (scan(value) && fractionEnd - fractionStart <= format.scale) {
+          return formatDecimal(value, format.grouping, format.scale);
+        }
+        break;
+      case DATE:
+        String date = formatDate(format.dateTokens, Double.parseDouble(value.toString()));
+        if (null != date) {
+          return date;
+        }
+        break;
+      default:
+        break;
+    }
+
+    return formatter.formatRawCellContents(Double.parseDouble(value.toString()),
+        format.formatIndex, format.formatString);
+  }
+
+  private StyleFormat getStyleFormat(int styleIndex) {
+    if (styleIndex < 0 || styleIndex >= styles.getStyleCount()) {
+      return NO_FORMAT;
+    }
+
+    StyleFormat format = compiled[styleIndex];
+    if (null == format) {
+      format = compile(styles.getFormatIndex(styleIndex), styles.getFormatString(styleIndex));
+      compiled[styleIndex] = format;
+    }
+    return format;
+  }
+
+  private StyleFormat compile(short formatIndex, String formatString) {
+    if (null == formatString) {
+      return NO_FORMAT;
+    }
+
+    StyleFormat format = new StyleFormat();
+    format.formatIndex = formatIndex;
+    format.formatString = formatString;
+
+    if (DateUtil.isADateFormat(formatIndex, formatString)) {
+      format.dateTokens = compileDate(formatString);
+      if (null != format.dateTokens) {
+        format.kind = Kind.DATE;
+      }
+    } else if (plainDigits) {
+      if ("General".equalsIgnoreCase(formatString) || "@".equals(formatString)) {
+        format.kind = Kind.GENERAL;
+      } else {
+        compileFixed(format, formatString);
+      }
+    }
+    return format;
+  }
+
+  /**
+   * Recognizes 0, 0.0..., #,##0 and #,##0.0... formats
+   */
+  private static void compileFixed(StyleFormat format, String formatString) {
+    String pattern = formatString;
+    boolean grouping = pattern.startsWith("#,##0");
+    if (grouping) {
+      pattern = pattern.substring(4);
+    }
+
+    int scale = 0;
+    if (pattern.startsWith("0.")) {
+      scale = pattern.length() - 2;
+      for (int i = 2; i < pattern.length(); i++) {
+        if ('0' != pattern.charAt(i)) {
+          return;
+        }
+      }
+    } else if (!"0".equals(pattern)) {
+      return;
+    }
+
+    if (scale <= GENERAL_FRACTION_DIGITS) {
+      format.kind = Kind.FIXED;
+      format.grouping = grouping;
+      format.scale = scale;
+    }
+  }
+
+  /**
+   * Compiles numeric date formats the way {@link DataFormatter} converts them to
+   * {@link java.text.SimpleDateFormat}, null for anything else (month names, AM/PM, elapsed time,
+   * fractional seconds, quoted text).
+   */
+  private static int[] compileDate(String formatString) {
+    String pattern =
+        formatString.replace("\\-", "-").replace("\\,", ",").replace("\\.", ".")
+            .replace("\\ ", " ").replace("\\/", "/").replace(";@", "").replace("\"/\"", "/");
+
+    List<Integer> tokens = new ArrayList<Integer>();
+    List<Integer> months = new ArrayList<Integer>();
+    boolean mIsMonth = true;
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = Character.toLowerCase(pattern.charAt(i));
+      if ('-' == c || '/' == c || ' ' == c || ':' == c) {
+        tokens.add(Integer.valueOf(-c));
+        i++;
+        continue;
+      }
+
+      int width = 1;
+      while (i + width < pattern.length()
+          && c == Character.toLowerCase(pattern.charAt(i + width))) {
+        width++;
+      }
+      i += width;
+
+      int field;
+      if ('y' == c && (2 == width || 4 == width)) {
+        field = YEAR;
+        mIsMonth = true;
+        months.clear();
+      } else if ('d' == c && width <= 2) {
+        field = DAY;
+        mIsMonth = true;
+        months.clear();
+      } else if ('h' == c && width <= 2) {
+        field = HOUR;
+        mIsMonth = false;
+      } else if ('m' == c && width <= 2) {
+        field = mIsMonth ? MONTH : MINUTE;
+        if (mIsMonth) {
+          months.add(Integer.valueOf(tokens.size()));
+        }
+      } else if ('s' == c && width <= 2) {
+        field = SECOND;
+        // m right before seconds means minutes
+        for (Integer month : months) {
+          int token = tokens.get(month.intValue()).intValue();
+          tokens.set(month.intValue(), Integer.valueOf(MINUTE * 8 + token % 8));
+        }
+        mIsMonth = true;
+        months.clear();
+      } else {
+        return null;
+      }
+      tokens.add(Integer.valueOf(field * 8 + width));
+    }
+
+    int[] compiledTokens = new int[tokens.size()];
+    for (int t = 0; t < compiledTokens.length; t++) {
+      compiledTokens[t] = tokens.get(t).intValue();
+    }
+    return compiledTokens;
+  }
+
+  /**
+   * Scans a plain decimal number (no exponent, no redundant zeros, up to 15 significant digits)
+   */
+  private boolean scan(CharSequence value) {
+    int length = value.length();
+    int i = 0;
+    negative = length > 0 && '-' == value.charAt(0);
+    if (negative) {
+      i++;
+    }
+
+    intStart = i;
+    while (i < length && isDigit(value.charAt(i))) {
+      i++;
+    }
+    intEnd = i;
+    fractionStart = i;
+    fractionEnd = i;
+    if (i < length && '.' == value.charAt(i)) {
+      fractionStart = ++i;
+      while (i < length && isDigit(value.charAt(i))) {
+        i++;
+      }
+      fractionEnd = i;
+      if (fractionStart == fractionEnd || '0' == value.charAt(fractionEnd - 1)) {
+        return false;
+      }
+    }
+
+    if (i != length || intStart == intEnd
+        || (intEnd - intStart > 1 && '0' == value.charAt(intStart))) {
+      return false;
+    }
+
+    int significant = fractionEnd - fractionStart;
+    if ('0' == value.charAt(intStart)) {
+      for (int f = fractionStart; f < fractionEnd && '0' == value.charAt(f); f++) {
+        significant--;
+      }
+    } else {
+      significant += intEnd - intStart;
+    }
+    return significant <= MAX_SIGNIFICANT_DIGITS;
+  }
+
+  private String formatDecimal(CharSequence value, boolean grouping, int scale) {
+    buf.setLength(0);
+    if (negative) {
+      buf.append(minusSign);
+    }
+
+    for (int i = intStart; i < intEnd; i++) {
+      buf.append(value.charAt(i));
+      int remaining = intEnd - i - 1;
+      if (grouping && remaining > 0 && remaining % 3 == 0) {
+        buf.append(groupingSeparator);
+      }
+    }
+
+    if (scale > 0) {
+      buf.append(decimalSeparator);
+      for (int i = fractionStart; i < fractionEnd; i++) {
+        buf.append(value.charAt(i));
+      }
+      for (int i = fractionEnd - fractionStart; i < scale; i++) {
+        buf.append('0');
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Formats an Excel date (1900 date system) as DateUtil and SimpleDateFormat do in the default
+   * time zone, null when the value isn't a valid date or its local time doesn't exist (daylight
+   * saving gap).
+   */
+  private String formatDate(int[] tokens, double value) {
+    if (!(value >= 0) || value > Integer.MAX_VALUE) {
+      return null;
+    }
+
+    int wholeDays = (int) Math.floor(value);
+    int millisecondsInDay = (int) ((value - wholeDays) * DAY_MILLISECONDS + 0.5);
+    // Excel thinks 2/29/1900 is a valid date
+    int dayAdjust = (wholeDays < 61) ? 0 : -1;
+    long localMillis =
+        (EXCEL_EPOCH_DAY + wholeDays + dayAdjust - 1L) * DAY_MILLISECONDS + millisecondsInDay;
+
+    long utcMillis = localMillis - timeZone.getOffset(localMillis - timeZone.getRawOffset());
+    if (utcMillis + timeZone.getOffset(utcMillis) != localMillis) {
+      return null;
+    }
+
+    long days = localMillis / DAY_MILLISECONDS;
+    long timeOfDay = localMillis % DAY_MILLISECONDS;
+    if (timeOfDay < 0) {
+      days--;
+      timeOfDay += DAY_MILLISECONDS;
+    }
+
+    // Civil date of day count, proleptic Gregorian calendar
+    long z = days + 719468;
+    long era = ((z >= 0) ? z : z - 146096) / 146097;
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long mp = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+    int month = (int) ((mp < 10) ? mp + 3 : mp - 9);
+    int year = (int) (yearOfEra + era * 400 + ((month <= 2) ? 1 : 0));
+    if (year > 9999) {
+      return null;
+    }
+
+    int seconds = (int) (timeOfDay / 1000);
+    buf.setLength(0);
+    for (int token : tokens) {
+      if (token < 0) {
+        buf.append((char) -token);
+        continue;
+      }
+
+      int width = token % 8;
+      switch (token / 8) {
+        case YEAR:
+          appendPadded((2 == width) ? year % 100 : year, width);
+          break;
+        case MONTH:
+          appendPadded(month, width);
+          break;
+        case DAY:
+          appendPadded(day, width);
+          break;
+        case HOUR:
+          appendPadded(seconds / 3600, width);
+          break;
+        case MINUTE:
+          appendPadded(seconds / 60 % 60, width);
+          break;
+        case SECOND:
+          appendPadded(seconds % 60, width);
+          break;
+        default:
+          break;
+      }
+    }
+    return buf.toString();
+  }
+
+  private void appendPadded(int number, int width) {
+    int digits = (number < 10) ? 1 : (number < 100) ? 2 : (number < 1000) ? 3 : 4;
+    for (; digits < width; digits++) {
+      buf.append('0');
+    }
+    buf.append(number);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+/**
+ * Predicate on the value of a single cell, used by {@link ExcelRowFilter} to accept or reject a row
+ * before it is bound.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public interface ExcelCellPredicate {
+
+  /**
+   * Evaluates the cell value
+   * 
+   * @param value a {@link String} object - cell value as delivered by the reader, null if the row
+   *        has no value for the column
+   * @return boolean - true to keep the row
+   */
+  boolean test(String value);
+
+}
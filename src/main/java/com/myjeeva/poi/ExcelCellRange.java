@@ -0,0 +1,167 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cell range of an Excel Table or a defined name, resolved to its sheet. Zero based and inclusive,
+ * rows of a table exclude its header and totals rows, which are replaced by the table column names.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+final class ExcelCellRange {
+
+  private final String name;
+  private final int sheetIndex;
+  private final int firstRow;
+  private final int lastRow;
+  private final int firstColumn;
+  private final int lastColumn;
+  private final List<String> columnNames;
+
+  /**
+   * Constructor
+   * 
+   * @param name a {@link String} object - table or defined name
+   * @param sheetIndex a <code>int</code> - zero based sheet index
+   * @param firstRow a <code>int</code> - zero based first row
+   * @param lastRow a <code>int</code> - zero based last row
+   * @param firstColumn a <code>int</code> - zero based first column
+   * @param lastColumn a <code>int</code> - zero based last column
+   * @param columnNames a {@link List} object - header names of the columns, null when the first
+   *        row of the range is the header row
+   */
+  ExcelCellRange(String name, int sheetIndex, int firstRow, int lastRow, int firstColumn,
+      int lastColumn, List<String> columnNames) {
+    this.name = name;
+    this.sheetIndex = sheetIndex;
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+    this.firstColumn = firstColumn;
+    this.lastColumn = lastColumn;
+    this.columnNames = (null == columnNames) ? null : Collections.unmodifiableList(columnNames);
+  }
+
+  /**
+   * Parses an area reference like B3:F100, $B$3:$F$100, $A:$C or $1:$5 of given sheet, null if it
+   * isn't a single cell range
+   * 
+   * @param name a {@link String} object - table or defined name
+   * @param sheetIndex a <code>int</code> - zero based sheet index
+   * @param ref a {@link String} object - area reference without sheet name
+   * @param columnNames a {@link List} object - header names of the columns (can be null)
+   * @return ExcelCellRange
+   */
+  static ExcelCellRange parse(String name, int sheetIndex, String ref, List<String> columnNames) {
+    if (null == ref || ref.isEmpty()) {
+      return null;
+    }
+
+    String area = ref.replace("$", "");
+    int colon = area.indexOf(':');
+    String first = (colon < 0) ? area : area.substring(0, colon);
+    String last = (colon < 0) ? area : area.substring(colon + 1);
+    int[] from = parseCell(first, 0);
+    int[] to = parseCell(last, Integer.MAX_VALUE);
+    if (null == from || null == to) {
+      return null;
+    }
+
+    int lastRow = Math.min(to[0], ExcelSheetDimension.MAX_ROWS - 1);
+    int lastColumn = Math.min(to[1], ExcelSheetDimension.MAX_COLUMNS - 1);
+    if (lastRow < from[0] || lastColumn < from[1]) {
+      return null;
+    }
+    return new ExcelCellRange(name, sheetIndex, from[0], lastRow, from[1], lastColumn,
+        columnNames);
+  }
+
+  /**
+   * Returns zero based row and column of a cell reference, given default for a missing part (whole
+   * rows or columns), null if it isn't a cell reference
+   */
+  private static int[] parseCell(String cell, int missing) {
+    String upper = cell.toUpperCase();
+    int letters = 0;
+    while (letters < upper.length() && upper.charAt(letters) >= 'A'
+        && upper.charAt(letters) <= 'Z') {
+      letters++;
+    }
+    if (upper.isEmpty()) {
+      return null;
+    }
+
+    int column = (0 == letters) ? missing : ExcelCellReferences.getColumnIndex(upper);
+    int row = missing;
+    if (letters < upper.length()) {
+      row = ExcelCellReferences.getRowIndex(upper);
+      if (row < 0) {
+        return null;
+      }
+    }
+    return new int[] {row, column};
+  }
+
+  String getName() {
+    return name;
+  }
+
+  int getSheetIndex() {
+    return sheetIndex;
+  }
+
+  int getFirstRow() {
+    return firstRow;
+  }
+
+  int getLastRow() {
+    return lastRow;
+  }
+
+  int getFirstColumn() {
+    return firstColumn;
+  }
+
+  int getLastColumn() {
+    return lastColumn;
+  }
+
+  /**
+   * Returns header names of the columns, null when the first row of the range is the header row
+   * 
+   * @return List&lt;String>
+   */
+  List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  @Override
+  public String toString() {
+    return "ExcelCellRange [name=" + name + ", sheetIndex=" + sheetIndex + ", firstRow="
+        + firstRow + ", lastRow=" + lastRow + ", firstColumn=" + firstColumn + ", lastColumn="
+        + lastColumn + ", columnNames=" + columnNames + "]";
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+/**
+ * Allocation free helpers for A1 style cell references
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+final class ExcelCellReferences {
+
+  private ExcelCellReferences() {
+    // static helpers only
+  }
+
+  /**
+   * Returns zero based column index of given cell reference, e.g. 'B12' gives 1, -1 if the
+   * reference has no column part
+   * 
+   * @param cellReference a {@link String} object
+   * @return int
+   */
+  static int getColumnIndex(String cellReference) {
+    if (null == cellReference) {
+      return -1;
+    }
+
+    int column = 0;
+    for (int i = 0; i < cellReference.length(); i++) {
+      char c = cellReference.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        break;
+      }
+      column = column * 26 + (c - 'A' + 1);
+    }
+    return column - 1;
+  }
+
+  /**
+   * Returns zero based row index of given cell reference, e.g. 'B12' gives 11, -1 if the reference
+   * has no valid row part
+   * 
+   * @param cellReference a {@link String} object
+   * @return int
+   */
+  static int getRowIndex(String cellReference) {
+    if (null == cellReference) {
+      return -1;
+    }
+
+    int i = 0;
+    while (i < cellReference.length() && cellReference.charAt(i) >= 'A'
+        && cellReference.charAt(i) <= 'Z') {
+      i++;
+    }
+    if (i == cellReference.length() || cellReference.length() - i > 9) {
+      return -1;
+    }
+
+    int row = 0;
+    for (; i < cellReference.length(); i++) {
+      char c = cellReference.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      row = row * 10 + (c - '0');
+    }
+    return row - 1;
+  }
+}
@@ -0,0 +1,51 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * Low level WorkSheet contents handler receiving cell values as {@link CharSequence} views instead
+ * of freshly allocated Strings. While streaming an XLSX sheet the view is usually the parser's own
+ * buffer, so a value is only valid until the call returns; call <code>toString()</code> on values
+ * which must be kept.
+ * 
+ * <p>
+ * Handlers placed behind an other handler (e.g. when strings are canonicalized or on the .xls
+ * path) receive Strings through this method as well.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public interface ExcelCellSequenceHandler extends SheetContentsHandler {
+
+  /**
+   * Callback for a cell value, valid only until this method returns
+   * 
+   * @param cellReference a {@link String} object - A1 style cell reference
+   * @param value a {@link CharSequence} object - formatted cell value (can be null)
+   */
+  void cell(String cellReference, CharSequence value);
+
+}
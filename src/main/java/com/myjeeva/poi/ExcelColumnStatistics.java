@@ -0,0 +1,281 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.Serializable;
+
+/**
+ * Statistics of the values of a column (or of a group), accumulated value by value without keeping
+ * any: count of values and of empty cells, numeric count, sum, min and max of the numeric values,
+ * min and max value length and, optionally, an {@link ExcelHyperLogLog} distinct estimate.
+ * Statistics can be merged, see {@link ExcelStatisticsHandler}.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelColumnStatistics implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+      1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  private long count;
+  private long emptyCount;
+  private long numericCount;
+  private double sum;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private int minLength = Integer.MAX_VALUE;
+  private int maxLength;
+  private final ExcelHyperLogLog distinct;
+
+  /**
+   * Constructor
+   * 
+   * @param distinctPrecision a <code>int</code> - precision of the distinct estimate, 0 disables it
+   */
+  public ExcelColumnStatistics(int distinctPrecision) {
+    this.distinct = (distinctPrecision > 0) ? new ExcelHyperLogLog(distinctPrecision) : null;
+  }
+
+  /**
+   * Adds a value, an empty or null value counts as an empty cell
+   * 
+   * @param value a {@link CharSequence} object
+   */
+  public void add(CharSequence value) {
+    int length = (null == value) ? 0 : value.length();
+    if (0 == length) {
+      emptyCount++;
+      return;
+    }
+
+    count++;
+    minLength = Math.min(minLength, length);
+    maxLength = Math.max(maxLength, length);
+    if (null != distinct) {
+      distinct.add(value);
+    }
+
+    double number = parseNumber(value);
+    if (!Double.isNaN(number)) {
+      numericCount++;
+      sum += number;
+      min = Math.min(min, number);
+      max = Math.max(max, number);
+    }
+  }
+
+  /**
+   * Adds an empty cell
+   */
+  public void addEmpty() {
+    emptyCount++;
+  }
+
+  /**
+   * Merges given statistics into these
+   * 
+   * @param other a {@link ExcelColumnStatistics} object
+   */
+  public void merge(ExcelColumnStatistics other) {
+    count += other.count;
+    emptyCount += other.emptyCount;
+    numericCount += other.numericCount;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    minLength = Math.min(minLength, other.minLength);
+    maxLength = Math.max(maxLength, other.maxLength);
+    if (null != distinct && null != other.distinct) {
+      distinct.merge(other.distinct);
+    }
+  }
+
+  /**
+   * Returns a copy of these statistics
+   * 
+   * @return ExcelColumnStatistics
+   */
+  public ExcelColumnStatistics copy() {
+    ExcelColumnStatistics copy =
+        new ExcelColumnStatistics((null == distinct) ? 0 : distinct.getPrecision());
+    copy.merge(this);
+    return copy;
+  }
+
+  /**
+   * Returns the number of non empty values
+   * 
+   * @return long
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the number of empty or missing cells
+   * 
+   * @return long
+   */
+  public long getEmptyCount() {
+    return emptyCount;
+  }
+
+  /**
+   * Returns the number of values parsed as plain numbers, e.g. 1234.5 or -1E3 but not 1,234.50
+   * 
+   * @return long
+   */
+  public long getNumericCount() {
+    return numericCount;
+  }
+
+  /**
+   * Returns the sum of the numeric values
+   * 
+   * @return double
+   */
+  public double getSum() {
+    return sum;
+  }
+
+  /**
+   * Returns the minimum of the numeric values, NaN without any
+   * 
+   * @return double
+   */
+  public double getMin() {
+    return (numericCount > 0) ? min : Double.NaN;
+  }
+
+  /**
+   * Returns the maximum of the numeric values, NaN without any
+   * 
+   * @return double
+   */
+  public double getMax() {
+    return (numericCount > 0) ? max : Double.NaN;
+  }
+
+  /**
+   * Returns the mean of the numeric values, NaN without any
+   * 
+   * @return double
+   */
+  public double getMean() {
+    return (numericCount > 0) ? sum / numericCount : Double.NaN;
+  }
+
+  /**
+   * Returns the length of the shortest value, 0 without any
+   * 
+   * @return int
+   */
+  public int getMinLength() {
+    return (count > 0) ? minLength : 0;
+  }
+
+  /**
+   * Returns the length of the longest value
+   * 
+   * @return int
+   */
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  /**
+   * Returns the estimated number of distinct values, -1 if not estimated
+   * 
+   * @return long
+   */
+  public long getDistinctEstimate() {
+    return (null == distinct) ? -1 : distinct.estimate();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("count=").append(count).append(", empty=").append(emptyCount);
+    sb.append(", numeric=").append(numericCount);
+    if (numericCount > 0) {
+      sb.append(", sum=").append(sum).append(", min=").append(min).append(", max=").append(max);
+    }
+    if (null != distinct) {
+      sb.append(", distinct~").append(distinct.estimate());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Parses a plain decimal number, NaN if the value is not one. Up to 15 digits without exponent
+   * are parsed without creating a String.
+   */
+  static double parseNumber(CharSequence value) {
+    int length = value.length();
+    int i = 0;
+    boolean negative = false;
+    char c = value.charAt(0);
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      i++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < length; i++) {
+      c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        break;
+      }
+    }
+
+    if (0 == digits) {
+      return Double.NaN;
+    }
+    if (i == length && digits <= 15) {
+      double number = (scale > 0) ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+      return negative ? -number : number;
+    }
+    if (i < length && c != 'e' && c != 'E') {
+      return Double.NaN;
+    }
+
+    try {
+      return Double.parseDouble(value.toString());
+    } catch (NumberFormatException nfe) {
+      return Double.NaN;
+    }
+  }
+}
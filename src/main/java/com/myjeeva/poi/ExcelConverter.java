@@ -0,0 +1,665 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * Bulk converter of Excel Workbooks (XLSX or XLS) to CSV or JSON Lines, one output file per
+ * WorkSheet named <code>&lt;workbook>-&lt;sheet>.csv</code> (or <code>.jsonl</code>). The first row
+ * present in a sheet is its header, whatever its row number: CSV output starts with it, JSON Lines
+ * use it as the keys of every row object. Values are the formatted cell values, as delivered to the
+ * other handlers.
+ * 
+ * <br>
+ * <br>
+ * Cells are collected into plain arrays on the parsing thread and handed over in batches to a
+ * writer thread per sheet, which encodes them and writes through a buffered file channel. With
+ * more than one thread, workbooks are converted in parallel and XLSX workbooks are split into one
+ * task per sheet (each task reads the workbook metadata on its own); an XLS workbook is always
+ * converted in a single pass.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>java -cp excelReader.jar:&lt;dependencies> com.myjeeva.poi.ExcelConverter -format jsonl -out /data/out -threads 4 *.xlsx</code>
+ * <br>
+ * <br>
+ * <code>ExcelConverter converter = new ExcelConverter(ExcelConverter.Format.CSV);
+ * <br>converter.setSheets(Arrays.asList("0", "Summary"));
+ * <br>long rows = converter.convert(Arrays.asList(new File("Sample-Person-Data.xlsx")));</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelConverter {
+
+  private static final Log LOG = LogFactory.getLog(ExcelConverter.class);
+
+  private static final String USAGE = "Usage: ExcelConverter [-format csv|jsonl] [-out <directory>]"
+      + " [-sheets <name or index>,...] [-threads <count>] <workbook>...";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int BATCH_SIZE = 256;
+
+  private static final int QUEUE_CAPACITY = 16;
+
+  private static final List<String[]> END_OF_SHEET = new ArrayList<String[]>(0);
+
+  /**
+   * Output formats
+   */
+  public enum Format {
+    CSV("csv"), JSONL("jsonl");
+
+    private final String extension;
+
+    private Format(String extension) {
+      this.extension = extension;
+    }
+
+    public String getExtension() {
+      return extension;
+    }
+  }
+
+  private final Format format;
+  private File outputDirectory;
+  private final Set<String> sheets = new LinkedHashSet<String>();
+  private int threads = 1;
+  private volatile int sheetCount;
+
+  /**
+   * Constructor
+   * 
+   * @param format a {@link Format} object - output format
+   */
+  public ExcelConverter(Format format) {
+    if (null == format) {
+      throw new IllegalArgumentException("Format cannot be null");
+    }
+    this.format = format;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Format format = Format.CSV;
+    File outputDirectory = null;
+    List<String> sheets = new ArrayList<String>();
+    int threads = 1;
+    List<File> workbooks = new ArrayList<File>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if ("-format".equals(arg)) {
+          format = Format.valueOf(getValue(args, ++i).toUpperCase());
+        } else if ("-out".equals(arg)) {
+          outputDirectory = new File(getValue(args, ++i));
+        } else if ("-sheets".equals(arg)) {
+          sheets.addAll(Arrays.asList(getValue(args, ++i).split(",")));
+        } else if ("-threads".equals(arg)) {
+          threads = Integer.parseInt(getValue(args, ++i));
+        } else if (arg.startsWith("-")) {
+          throw new IllegalArgumentException("Unknown option " + arg);
+        } else {
+          workbooks.add(new File(arg));
+        }
+      }
+      if (workbooks.isEmpty()) {
+        throw new IllegalArgumentException("No workbook given");
+      }
+    } catch (IllegalArgumentException iae) {
+      System.err.println(iae.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    ExcelConverter converter = new ExcelConverter(format);
+    converter.setOutputDirectory(outputDirectory);
+    converter.setSheets(sheets);
+    converter.setThreads(threads);
+
+    long start = System.currentTimeMillis();
+    long rows;
+    try {
+      rows = converter.convert(workbooks);
+    } catch (Exception e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+      return;
+    }
+    long millis = Math.max(1, System.currentTimeMillis() - start);
+    System.out.println(String.format("Converted %d rows of %d sheets in %d ms (%d rows/s)", rows,
+        converter.getSheetCount(), millis, rows * 1000 / millis));
+  }
+
+  private static String getValue(String[] args, int index) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("Missing value of option " + args[index - 1]);
+    }
+    return args[index];
+  }
+
+  /**
+   * Returns the output directory, null (default) writes next to each workbook
+   * 
+   * @return File
+   */
+  public File getOutputDirectory() {
+    return outputDirectory;
+  }
+
+  /**
+   * To set the output directory, null (default) writes next to each workbook
+   * 
+   * @param outputDirectory a {@link File} object
+   */
+  public void setOutputDirectory(File outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  /**
+   * To select the WorkSheets to convert by name or zero based index, empty (default) converts all
+   * 
+   * @param sheets a {@link List} object - sheet names or indexes
+   */
+  public void setSheets(List<String> sheets) {
+    this.sheets.clear();
+    this.sheets.addAll(sheets);
+  }
+
+  /**
+   * Returns the number of conversion threads, default it is 1
+   * 
+   * @return int
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * To set the number of conversion threads, default it is 1
+   * 
+   * @param threads a <code>int</code>
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Threads must be positive");
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * Returns the number of sheets written by the last conversion
+   * 
+   * @return int
+   */
+  public int getSheetCount() {
+    return sheetCount;
+  }
+
+  /**
+   * Converts the selected WorkSheets of given workbooks
+   * 
+   * @param workbooks a {@link List} object - XLSX or XLS files
+   * @return long - number of rows written, header rows excluded
+   * @throws Exception if a workbook cannot be read, the output of the sheet being converted is
+   *         deleted
+   */
+  public long convert(List<File> workbooks) throws Exception {
+    sheetCount = 0;
+    List<Task> tasks = new ArrayList<Task>();
+    for (File workbook : workbooks) {
+      if (threads > 1 && workbook.getName().toLowerCase().endsWith(".xlsx")) {
+        List<String> sheetNames = new ExcelReader(workbook, null, null).getSheetNames();
+        for (int sheetIndex = 0; sheetIndex < sheetNames.size(); sheetIndex++) {
+          if (isSelected(sheetIndex, sheetNames.get(sheetIndex))) {
+            tasks.add(new Task(workbook, sheetIndex));
+          }
+        }
+      } else {
+        tasks.add(new Task(workbook, -1));
+      }
+    }
+
+    long rows = 0;
+    if (threads == 1 || tasks.size() == 1) {
+      for (Task task : tasks) {
+        rows += task.call();
+      }
+      return rows;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+    try {
+      List<Future<Long>> results = executor.invokeAll(tasks);
+      for (Future<Long> result : results) {
+        rows += result.get();
+      }
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw new RuntimeException("Conversion failed", cause);
+    } finally {
+      executor.shutdownNow();
+    }
+    return rows;
+  }
+
+  private boolean isSelected(int sheetIndex, String sheetName) {
+    return sheets.isEmpty() || sheets.contains(sheetName)
+        || sheets.contains(String.valueOf(sheetIndex));
+  }
+
+  private File getOutputFile(File workbook, String sheetName) {
+    String name = workbook.getName();
+    int dot = name.lastIndexOf('.');
+    if (dot > 0) {
+      name = name.substring(0, dot);
+    }
+    name = name + "-" + sheetName.replaceAll("[^A-Za-z0-9._-]", "_") + "." + format.getExtension();
+    File directory = (null == outputDirectory) ? workbook.getAbsoluteFile().getParentFile()
+        : outputDirectory;
+    return new File(directory, name);
+  }
+
+  /**
+   * Conversion of one workbook, of all its selected sheets or of a single one
+   */
+  private class Task implements Callable<Long>, ExcelSheetCallback {
+    private final File workbook;
+    private final int sheetIndex;
+    private SheetWriter currentWriter;
+    private long rows;
+
+    Task(File workbook, int sheetIndex) {
+      this.workbook = workbook;
+      this.sheetIndex = sheetIndex;
+    }
+
+    @Override
+    public Long call() throws Exception {
+      if (null != outputDirectory) {
+        outputDirectory.mkdirs();
+      }
+
+      ExcelSheetRouter router = new ExcelSheetRouter() {
+        @Override
+        public SheetContentsHandler getHandler(int index, String sheetName) {
+          if ((sheetIndex >= 0 && index != sheetIndex) || !isSelected(index, sheetName)) {
+            return null;
+          }
+
+          try {
+            currentWriter = new SheetWriter(getOutputFile(workbook, sheetName));
+          } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+          }
+          return currentWriter;
+        }
+      };
+
+      try {
+        ExcelReader excelReader = new ExcelReader(workbook, null, this);
+        excelReader.process(router);
+        if (null != excelReader.getReadFailure()) {
+          throw new IOException("Failed to convert " + workbook + ": "
+              + excelReader.getReadFailure().getMessage(), excelReader.getReadFailure());
+        }
+      } finally {
+        if (null != currentWriter) {
+          // failed within a sheet, stop its writer thread and drop the partial output
+          currentWriter.abort();
+          if (!currentWriter.file.delete() && currentWriter.file.exists()) {
+            LOG.warn("Partial output " + currentWriter.file + " could not be deleted");
+          }
+          currentWriter = null;
+        }
+      }
+      return rows;
+    }
+
+    @Override
+    public void startSheet(int sheetNum, String sheetName) {
+      // writers are created by the router
+    }
+
+    @Override
+    public void endSheet() {
+      if (null != currentWriter) {
+        SheetWriter writer = currentWriter;
+        currentWriter = null;
+        try {
+          writer.close();
+        } catch (IOException e) {
+          throw new RuntimeException(e.getMessage(), e);
+        }
+        rows += writer.getRows();
+        synchronized (ExcelConverter.this) {
+          sheetCount++;
+        }
+        LOG.debug("Converted " + writer.getRows() + " rows to " + writer.file);
+      }
+    }
+  }
+
+  /**
+   * Collects the cells of a sheet into arrays on the parsing thread, encoding and writing is done
+   * by its own thread
+   */
+  private class SheetWriter implements SheetContentsHandler, Runnable {
+    private final File file;
+    private final BlockingQueue<List<String[]>> queue =
+        new ArrayBlockingQueue<List<String[]>>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile Throwable failure;
+    private List<String[]> batch = new ArrayList<String[]>(BATCH_SIZE);
+    private String[] row = new String[16];
+    private int rowSize;
+    private boolean headerSeen;
+    private long rows;
+
+    // writer thread state
+    private String[] header;
+    private final StringBuilder line = new StringBuilder(256);
+
+    SheetWriter(File file) throws IOException {
+      this.file = file;
+      this.thread = new Thread(this, "excel-converter-" + file.getName());
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    long getRows() {
+      return rows;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      Arrays.fill(row, 0, rowSize, null);
+      rowSize = 0;
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue) {
+      int column = ExcelCellReferences.getColumnIndex(cellReference);
+      if (column < 0) {
+        column = rowSize;
+      }
+      if (column >= row.length) {
+        row = Arrays.copyOf(row, Math.max(column + 1, row.length * 2));
+      }
+      row[column] = formattedValue;
+      rowSize = Math.max(rowSize, column + 1);
+    }
+
+    @Override
+    public void endRow() {
+      if (headerSeen) {
+        rows++;
+      }
+      headerSeen = true;
+      batch.add(Arrays.copyOf(row, rowSize));
+      if (batch.size() == BATCH_SIZE) {
+        put(batch);
+        batch = new ArrayList<String[]>(BATCH_SIZE);
+      }
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {
+      // headers and footers are not converted
+    }
+
+    /**
+     * Flushes the pending rows and waits for the writer thread
+     */
+    void close() throws IOException {
+      put(batch);
+      put(END_OF_SHEET);
+      join();
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      } else if (null != failure) {
+        throw new RuntimeException(failure.getMessage(), failure);
+      }
+    }
+
+    void abort() {
+      thread.interrupt();
+      join();
+    }
+
+    private void join() {
+      try {
+        thread.join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while writing " + file, ie);
+      }
+    }
+
+    private void put(List<String[]> rowBatch) {
+      if (null != failure) {
+        throw new RuntimeException("Failed to write " + file, failure);
+      }
+      try {
+        queue.put(rowBatch);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while writing " + file, ie);
+      }
+    }
+
+    @Override
+    public void run() {
+      FileChannel channel = null;
+      try {
+        channel = new FileOutputStream(file).getChannel();
+        CharsetEncoder encoder = UTF_8.newEncoder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (true) {
+          List<String[]> rowBatch = queue.take();
+          if (END_OF_SHEET == rowBatch) {
+            break;
+          }
+
+          for (String[] values : rowBatch) {
+            line.setLength(0);
+            if (null == header) {
+              header = values;
+              if (Format.CSV == format && values.length > 0) {
+                appendCsv(values);
+              }
+            } else if (Format.CSV == format) {
+              appendCsv(values);
+            } else {
+              appendJson(values);
+            }
+            encode(channel, encoder, buffer, CharBuffer.wrap(line), false);
+          }
+        }
+        encode(channel, encoder, buffer, CharBuffer.wrap(""), true);
+        encoder.flush(buffer);
+        write(channel, buffer);
+      } catch (InterruptedException ie) {
+        failure = ie;
+        Thread.currentThread().interrupt();
+      } catch (Throwable t) {
+        failure = t;
+        // keep draining so the parsing thread never blocks on a dead writer
+        try {
+          while (END_OF_SHEET != queue.take()) {
+            // discard
+          }
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      } finally {
+        if (null != channel) {
+          try {
+            channel.close();
+          } catch (IOException e) {
+            if (null == failure) {
+              failure = e;
+            }
+          }
+        }
+      }
+    }
+
+    private void encode(FileChannel channel, CharsetEncoder encoder, ByteBuffer buffer,
+        CharBuffer chars, boolean endOfInput) throws IOException {
+      while (true) {
+        CoderResult result = encoder.encode(chars, buffer, endOfInput);
+        if (result.isOverflow()) {
+          write(channel, buffer);
+        } else if (result.isUnderflow()) {
+          return;
+        } else {
+          result.throwException();
+        }
+      }
+    }
+
+    private void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private void appendCsv(String[] values) {
+      int columns = Math.max(values.length, header.length);
+      for (int i = 0; i < columns; i++) {
+        if (i > 0) {
+          line.append(',');
+        }
+        String value = (i < values.length) ? values[i] : null;
+        if (null == value) {
+          continue;
+        }
+
+        boolean quote = false;
+        for (int c = 0; c < value.length() && !quote; c++) {
+          char ch = value.charAt(c);
+          quote = ch == ',' || ch == '"' || ch == '\r' || ch == '\n';
+        }
+        if (quote) {
+          line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        } else {
+          line.append(value);
+        }
+      }
+      line.append("\r\n");
+    }
+
+    private void appendJson(String[] values) {
+      line.append('{');
+      boolean first = true;
+      int columns = Math.max(values.length, header.length);
+      for (int i = 0; i < columns; i++) {
+        String name = (i < header.length) ? header[i] : null;
+        String value = (i < values.length) ? values[i] : null;
+        if (null == name || name.isEmpty()) {
+          if (null == value || value.isEmpty()) {
+            continue;
+          }
+          name = CellReference.convertNumToColString(i);
+        }
+
+        if (!first) {
+          line.append(',');
+        }
+        first = false;
+        appendJsonString(name);
+        line.append(':');
+        appendJsonString((null == value) ? "" : value);
+      }
+      line.append("}\n");
+    }
+
+    private void appendJsonString(String value) {
+      line.append('"');
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        switch (c) {
+          case '"':
+            line.append("\\\"");
+            break;
+          case '\\':
+            line.append("\\\\");
+            break;
+          case '\n':
+            line.append("\\n");
+            break;
+          case '\r':
+            line.append("\\r");
+            break;
+          case '\t':
+            line.append("\\t");
+            break;
+          default:
+            if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+              line.append(String.format("\\u%04x", (int) c));
+            } else {
+              line.append(c);
+            }
+            break;
+        }
+      }
+      line.append('"');
+    }
+  }
+}
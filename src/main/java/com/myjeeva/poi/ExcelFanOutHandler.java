@@ -0,0 +1,494 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * Delivers every event of a single WorkSheet parse to several contents handlers, e.g. a validation
+ * handler, an {@link ExcelWorkSheetHandler} and a statistics collector.
+ * 
+ * <p>
+ * By default handlers are called in turn on the parsing thread. With a queue capacity each handler
+ * gets its own thread fed through a bounded queue of rows, so the slowest handler only holds back
+ * the parser once its queue is full. {@link ExcelReader} waits for all handlers at the end of every
+ * sheet, before the sheet end callback. A handler failure is rethrown on the parsing thread.
+ * Asynchronous handlers must be closed once done.
+ * </p>
+ * 
+ * <p>
+ * Asynchronous handlers lag the parser, so {@link ExcelReader#getCheckpoint()} called from a
+ * handler thread returns the checkpoint of the row that handler is processing, captured when the
+ * row was queued. It is not available on other threads while the sheet is read.
+ * </p>
+ * 
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelFanOutHandler fanOut = new ExcelFanOutHandler(1024, validationHandler, workSheetHandler, statisticsHandler);
+ * <br>new ExcelReader(file, fanOut, null).process();
+ * <br>fanOut.close();</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelFanOutHandler implements SheetContentsHandler, ExcelRowRejectionAware,
+    ExcelSheetDimensionCallback, Closeable {
+
+  private static final int INITIAL_ROW_CELLS = 16;
+
+  private static final int MAX_INITIAL_ROW_CELLS = 1024;
+
+  private static final Event STOP = new Stop();
+
+  private static final long STOP_OFFER_MILLIS = 100;
+
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  private final List<SheetContentsHandler> handlers;
+  private final List<Worker> workers;
+  private Row currentRow;
+  private int rowCells = INITIAL_ROW_CELLS;
+  private volatile Throwable failure;
+  private ExcelReader checkpointReader;
+
+  /**
+   * Constructor: handlers are called in turn on the parsing thread
+   * 
+   * @param handlers a {@link SheetContentsHandler} array
+   */
+  public ExcelFanOutHandler(SheetContentsHandler... handlers) {
+    this.handlers = Arrays.asList(handlers);
+    this.workers = null;
+  }
+
+  /**
+   * Constructor: each handler runs on its own thread behind a bounded queue
+   * 
+   * @param queueCapacity a <code>int</code> - number of rows queued per handler
+   * @param handlers a {@link SheetContentsHandler} array
+   */
+  public ExcelFanOutHandler(int queueCapacity, SheetContentsHandler... handlers) {
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be positive");
+    }
+
+    this.handlers = Arrays.asList(handlers);
+    this.workers = new ArrayList<Worker>(handlers.length);
+    int instance = INSTANCES.incrementAndGet();
+    for (int i = 0; i < handlers.length; i++) {
+      Worker worker = new Worker(handlers[i], queueCapacity);
+      worker.thread = new Thread(worker, "excel-fan-out-" + instance + "-" + i);
+      worker.thread.setDaemon(true);
+      worker.thread.start();
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * Returns true if handlers run on their own threads
+   * 
+   * @return boolean
+   */
+  public boolean isAsynchronous() {
+    return null != workers;
+  }
+
+  /**
+   * Waits until every handler has processed all events delivered so far. Rethrows the first handler
+   * failure.
+   */
+  public void awaitCompletion() {
+    drain();
+    checkFailure();
+  }
+
+  /**
+   * Waits for the events queued by a read ended by a failure, the handler failure is dropped so
+   * every handler takes part in the next sheet again
+   */
+  void discard() {
+    drain();
+    failure = null;
+  }
+
+  private void drain() {
+    if (isAsynchronous()) {
+      CountDownLatch latch = new CountDownLatch(workers.size());
+      for (Worker worker : workers) {
+        worker.put(new Barrier(latch));
+      }
+      try {
+        latch.await();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for handlers", ie);
+      }
+    }
+  }
+
+  /**
+   * Waits for pending events and stops handler threads, a handler thread no longer running is not
+   * waited for
+   */
+  @Override
+  public void close() {
+    if (isAsynchronous()) {
+      for (Worker worker : workers) {
+        try {
+          while (worker.thread.isAlive()
+              && !worker.queue.offer(STOP, STOP_OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+            // handler still draining a full queue
+          }
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      for (Worker worker : workers) {
+        try {
+          worker.thread.join();
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets the reader whose parser checkpoint is captured with every queued row, null once the sheet
+   * is done
+   * 
+   * @param reader a {@link ExcelReader} object (can be null)
+   */
+  void setCheckpointReader(ExcelReader reader) {
+    this.checkpointReader = reader;
+  }
+
+  /**
+   * Returns the checkpoint of the row the calling handler thread is processing
+   * 
+   * @return ExcelReadCheckpoint
+   * @throws IllegalStateException if not called on a handler thread
+   */
+  ExcelReadCheckpoint getCheckpoint() {
+    Thread current = Thread.currentThread();
+    for (Worker worker : workers) {
+      if (current == worker.thread) {
+        return worker.checkpoint;
+      }
+    }
+    throw new IllegalStateException(
+        "Checkpoints of an asynchronous fan-out are available on its handler threads only");
+  }
+
+  /**
+   * Row is rejected only when every handler rejects it, never in asynchronous mode
+   * 
+   * @see com.myjeeva.poi.ExcelRowRejectionAware#isRowRejected()
+   */
+  @Override
+  public boolean isRowRejected() {
+    if (isAsynchronous()) {
+      return false;
+    }
+
+    for (SheetContentsHandler handler : handlers) {
+      if (!(handler instanceof ExcelRowRejectionAware)
+          || !((ExcelRowRejectionAware) handler).isRowRejected()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Delivers the dimension to the handlers taking it and presizes queued rows to the declared
+   * columns
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    if (isAsynchronous()) {
+      int columns = Math.min(dimension.getColumnCapacity(), dimension.getColumnCount());
+      rowCells = Math.max(INITIAL_ROW_CELLS, Math.min(columns, MAX_INITIAL_ROW_CELLS));
+
+      Dimension event = new Dimension(dimension);
+      for (Worker worker : workers) {
+        worker.put(event);
+      }
+      return;
+    }
+
+    for (SheetContentsHandler handler : handlers) {
+      if (handler instanceof ExcelSheetDimensionCallback) {
+        ((ExcelSheetDimensionCallback) handler).sheetDimension(dimension);
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#startRow(int)
+   */
+  @Override
+  public void startRow(int rowNum) {
+    if (isAsynchronous()) {
+      checkFailure();
+      currentRow = new Row(rowNum, rowCells);
+      return;
+    }
+
+    for (SheetContentsHandler handler : handlers) {
+      handler.startRow(rowNum);
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#cell(java.lang.String,
+   *      java.lang.String)
+   */
+  @Override
+  public void cell(String cellReference, String formattedValue) {
+    if (isAsynchronous()) {
+      currentRow.add(cellReference, formattedValue);
+      return;
+    }
+
+    for (SheetContentsHandler handler : handlers) {
+      handler.cell(cellReference, formattedValue);
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#endRow()
+   */
+  @Override
+  public void endRow() {
+    if (isAsynchronous()) {
+      if (null != checkpointReader) {
+        // the parser has completed this row, the handlers have not yet
+        currentRow.checkpoint = checkpointReader.getParserCheckpoint();
+      }
+      for (Worker worker : workers) {
+        worker.put(currentRow);
+      }
+      currentRow = null;
+      return;
+    }
+
+    for (SheetContentsHandler handler : handlers) {
+      handler.endRow();
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#headerFooter(java.lang.String,
+   *      boolean, java.lang.String)
+   */
+  @Override
+  public void headerFooter(String text, boolean isHeader, String tagName) {
+    if (isAsynchronous()) {
+      HeaderFooter event = new HeaderFooter(text, isHeader, tagName);
+      for (Worker worker : workers) {
+        worker.put(event);
+      }
+      return;
+    }
+
+    for (SheetContentsHandler handler : handlers) {
+      handler.headerFooter(text, isHeader, tagName);
+    }
+  }
+
+  private void checkFailure() {
+    Throwable t = failure;
+    if (null != t) {
+      failure = null;
+      if (t instanceof RuntimeException) {
+        throw (RuntimeException) t;
+      }
+      throw new RuntimeException("Error invoking handler", t);
+    }
+  }
+
+  /**
+   * Queued event, replayed on a handler thread
+   */
+  private interface Event {
+    void replay(SheetContentsHandler handler);
+  }
+
+  /**
+   * Events of one row, shared read only by every handler queue
+   */
+  private static class Row implements Event {
+    private final int rowNum;
+    private ExcelReadCheckpoint checkpoint;
+    private String[] cellReferences;
+    private String[] values;
+    private int size;
+
+    Row(int rowNum, int capacity) {
+      this.rowNum = rowNum;
+      this.cellReferences = new String[capacity];
+      this.values = new String[capacity];
+    }
+
+    void add(String cellReference, String value) {
+      if (size == values.length) {
+        cellReferences = Arrays.copyOf(cellReferences, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      cellReferences[size] = cellReference;
+      values[size] = value;
+      size++;
+    }
+
+    @Override
+    public void replay(SheetContentsHandler handler) {
+      handler.startRow(rowNum);
+      for (int i = 0; i < size; i++) {
+        handler.cell(cellReferences[i], values[i]);
+      }
+      handler.endRow();
+    }
+  }
+
+  private static class Dimension implements Event {
+    private final ExcelSheetDimension dimension;
+
+    Dimension(ExcelSheetDimension dimension) {
+      this.dimension = dimension;
+    }
+
+    @Override
+    public void replay(SheetContentsHandler handler) {
+      if (handler instanceof ExcelSheetDimensionCallback) {
+        ((ExcelSheetDimensionCallback) handler).sheetDimension(dimension);
+      }
+    }
+  }
+
+  private static class HeaderFooter implements Event {
+    private final String text;
+    private final boolean isHeader;
+    private final String tagName;
+
+    HeaderFooter(String text, boolean isHeader, String tagName) {
+      this.text = text;
+      this.isHeader = isHeader;
+      this.tagName = tagName;
+    }
+
+    @Override
+    public void replay(SheetContentsHandler handler) {
+      handler.headerFooter(text, isHeader, tagName);
+    }
+  }
+
+  private static class Barrier implements Event {
+    private final CountDownLatch latch;
+
+    Barrier(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void replay(SheetContentsHandler handler) {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Handler thread draining its own bounded queue
+   */
+  private class Worker implements Runnable {
+    private final SheetContentsHandler handler;
+    private final BlockingQueue<Event> queue;
+    private Thread thread;
+    private boolean failed;
+    private ExcelReadCheckpoint checkpoint;
+
+    Worker(SheetContentsHandler handler, int queueCapacity) {
+      this.handler = handler;
+      this.queue = new ArrayBlockingQueue<Event>(queueCapacity);
+    }
+
+    void put(Event event) {
+      try {
+        queue.put(event);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while queueing row", ie);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Event event = queue.take();
+          if (STOP == event) {
+            return;
+          }
+          if (event instanceof Barrier) {
+            // failure of the sheet is rethrown by the waiting parser thread, next sheet starts over
+            failed = false;
+            event.replay(handler);
+          } else if (!failed) {
+            if (event instanceof Row) {
+              checkpoint = ((Row) event).checkpoint;
+            }
+            try {
+              event.replay(handler);
+            } catch (Throwable t) {
+              // keep draining so the parsing thread never blocks on a dead handler
+              failed = true;
+              failure = t;
+            }
+          }
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static class Stop implements Event {
+    @Override
+    public void replay(SheetContentsHandler handler) {
+      // marker only
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values in fixed memory (2^precision bytes),
+ * standard error is about 1.04 / sqrt(2^precision), e.g. 1.6% for the default precision 12.
+ * Sketches of the same precision can be merged, so sheets read in parallel can be combined
+ * afterwards.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelHyperLogLog implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Default precision, 4096 registers
+   */
+  public static final int DEFAULT_PRECISION = 12;
+
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * Constructor: sketch of default precision
+   */
+  public ExcelHyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param precision a <code>int</code> - 4 to 16, number of registers is 2^precision
+   */
+  public ExcelHyperLogLog(int precision) {
+    if (precision < 4 || precision > 16) {
+      throw new IllegalArgumentException("Precision must be between 4 and 16");
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Returns the precision of this sketch
+   * 
+   * @return int
+   */
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Adds a value, by the characters it is made of
+   * 
+   * @param value a {@link CharSequence} object
+   */
+  public void add(CharSequence value) {
+    // FNV-1a over the chars, spread by the MurmurHash3 finalizer
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    int index = (int) (hash >>> (64 - precision));
+    long rest = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merges given sketch into this one
+   * 
+   * @param other a {@link ExcelHyperLogLog} object - sketch of the same precision
+   */
+  public void merge(ExcelHyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Cannot merge sketches of precision " + other.precision
+          + " and " + precision);
+    }
+
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the estimated number of distinct values added
+   * 
+   * @return long
+   */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (0 == register) {
+        zeros++;
+      }
+    }
+
+    double alpha;
+    if (m == 16) {
+      alpha = 0.673;
+    } else if (m == 32) {
+      alpha = 0.697;
+    } else if (m == 64) {
+      alpha = 0.709;
+    } else {
+      alpha = 0.7213 / (1 + 1.079 / m);
+    }
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // small range correction, linear counting
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Returns a copy of this sketch
+   * 
+   * @return ExcelHyperLogLog
+   */
+  public ExcelHyperLogLog copy() {
+    ExcelHyperLogLog copy = new ExcelHyperLogLog(precision);
+    System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+    return copy;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof ExcelHyperLogLog
+        && Arrays.equals(registers, ((ExcelHyperLogLog) obj).registers);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(registers);
+  }
+}
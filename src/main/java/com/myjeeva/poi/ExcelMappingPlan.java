@@ -0,0 +1,329 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Compiled cell mapping of a bean type: header values, a table of property setters by column index
+ * and the getters of the mapped properties. Bean properties are introspected once when the plan is
+ * compiled, binding a cell is then a table lookup and a setter call. Plans are immutable and thread
+ * safe, {@link #of(Class, Map)} caches them per type and cell mapping (bounded); every
+ * {@link ExcelWorkSheetHandler} is a cheap per-parse handler over a plan.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelMappingPlan&lt;PersonVO> plan = ExcelMappingPlan.of(PersonVO.class, cellMapping);
+ * <br>ExcelWorkSheetHandler&lt;PersonVO> workSheetHandler = new ExcelWorkSheetHandler&lt;PersonVO>(plan);</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelMappingPlan<T> {
+
+  private static final Log LOG = LogFactory.getLog(ExcelMappingPlan.class);
+
+  private static final String HEADER_KEY = "HEADER";
+
+  private static final int MAX_PLANS_PER_TYPE = 32;
+
+  private static final Map<Class<?>, TypePlans> PLANS = new WeakHashMap<Class<?>, TypePlans>();
+
+  private final Class<T> type;
+  private final Map<String, String> cellMapping;
+  private final List<String> headerValues;
+  private final Set<String> properties;
+  private final Constructor<T> constructor;
+  private final Method[] setters;
+  private final Map<String, Method> getters;
+  private final Map<String, Method> propertySetters;
+
+  private ExcelMappingPlan(Class<T> type, Map<String, String> cellMapping) {
+    this.type = type;
+    this.cellMapping = Collections.unmodifiableMap(new LinkedHashMap<String, String>(cellMapping));
+
+    String header = cellMapping.get(HEADER_KEY);
+    this.headerValues =
+        (null == header) ? null : Collections.unmodifiableList(Arrays.asList(header.split(",")));
+
+    Map<String, PropertyDescriptor> descriptors = new HashMap<String, PropertyDescriptor>();
+    for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(type)) {
+      descriptors.put(descriptor.getName(), descriptor);
+    }
+
+    Set<String> mappedProperties = new LinkedHashSet<String>();
+    Map<String, Method> readMethods = new HashMap<String, Method>();
+    Map<String, Method> propertyWriteMethods = new HashMap<String, Method>();
+    Method[] writeMethods = new Method[0];
+    for (Map.Entry<String, String> entry : cellMapping.entrySet()) {
+      if (StringUtils.equalsIgnoreCase(HEADER_KEY, entry.getKey())) {
+        continue;
+      }
+
+      String property = entry.getValue();
+      mappedProperties.add(property);
+      PropertyDescriptor descriptor = descriptors.get(property);
+      if (null != descriptor && null != descriptor.getReadMethod()) {
+        readMethods.put(property, descriptor.getReadMethod());
+      }
+
+      Method setter = (null == descriptor) ? null : descriptor.getWriteMethod();
+      boolean stringSetter =
+          null != setter && setter.getParameterTypes()[0].isAssignableFrom(String.class);
+      if (stringSetter) {
+        propertyWriteMethods.put(property, setter);
+      }
+
+      int column = ExcelCellReferences.getColumnIndex(entry.getKey());
+      if (column < 0) {
+        continue;
+      }
+
+      if (!stringSetter) {
+        LOG.error("Property (" + property + ") of " + type.getName() + " has no String setter");
+        continue;
+      }
+      if (column >= writeMethods.length) {
+        writeMethods = Arrays.copyOf(writeMethods, column + 1);
+      }
+      writeMethods[column] = setter;
+    }
+    this.properties = Collections.unmodifiableSet(mappedProperties);
+    this.getters = readMethods;
+    this.propertySetters = propertyWriteMethods;
+    this.setters = writeMethods;
+    this.constructor = getConstructor(type);
+  }
+
+  /**
+   * Returns the compiled plan of given type and cell mapping, shared by every handler of them. The
+   * cache is weakly keyed by the type and holds plans softly, up to {@value #MAX_PLANS_PER_TYPE}
+   * mappings per type (least recently used dropped first): plans outlive their handlers, and are
+   * only collected when memory runs low or their class loader is gone.
+   * 
+   * @param type a {@link Class} object
+   * @param cellMapping a {@link Map} object - column letter to property, header values under HEADER
+   * @return ExcelMappingPlan&lt;T>
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> ExcelMappingPlan<T> of(Class<T> type, Map<String, String> cellMapping) {
+    if (null == type || null == cellMapping) {
+      throw new IllegalArgumentException("Type and cell mapping are required");
+    }
+
+    Map<String, String> key = new HashMap<String, String>(cellMapping);
+    synchronized (PLANS) {
+      TypePlans plans = PLANS.get(type);
+      if (null == plans) {
+        plans = new TypePlans();
+        PLANS.put(type, plans);
+      }
+
+      SoftReference<ExcelMappingPlan<?>> reference = plans.get(key);
+      ExcelMappingPlan<?> plan = (null == reference) ? null : reference.get();
+      if (null == plan) {
+        plan = new ExcelMappingPlan<T>(type, cellMapping);
+        plans.put(key, new SoftReference<ExcelMappingPlan<?>>(plan));
+      }
+      return (ExcelMappingPlan<T>) plan;
+    }
+  }
+
+  /**
+   * Returns the bean type
+   * 
+   * @return Class&lt;T>
+   */
+  public Class<T> getType() {
+    return type;
+  }
+
+  /**
+   * Returns the cell mapping the plan is compiled from
+   * 
+   * @return Map&lt;String, String>
+   */
+  public Map<String, String> getCellMapping() {
+    return cellMapping;
+  }
+
+  /**
+   * Returns the expected header values, null if the mapping has no HEADER
+   * 
+   * @return List&lt;String>
+   */
+  public List<String> getHeaderValues() {
+    return headerValues;
+  }
+
+  /**
+   * Returns the mapped property names, in mapping order
+   * 
+   * @return Set&lt;String>
+   */
+  public Set<String> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Returns true if a column (zero based) is bound to a property
+   * 
+   * @param column a <code>int</code>
+   * @return boolean
+   */
+  public boolean isMapped(int column) {
+    return column >= 0 && column < setters.length && null != setters[column];
+  }
+
+  /**
+   * Creates a new bean, null (logged) if it cannot be created
+   */
+  T newInstance() {
+    if (null == constructor) {
+      return null;
+    }
+
+    try {
+      return constructor.newInstance();
+    } catch (InstantiationException ie) {
+      LOG.error(ie.getMessage());
+    } catch (IllegalAccessException iae) {
+      LOG.error(iae.getMessage());
+    } catch (InvocationTargetException ite) {
+      LOG.error(ite.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Sets the value of a column on the bean, returns false (logged) if it isn't bound
+   */
+  boolean setValue(Object target, int column, String value) {
+    if (!isMapped(column)) {
+      LOG.error("Cell mapping doesn't exists!");
+      return false;
+    }
+
+    try {
+      setters[column].invoke(target, value);
+      return true;
+    } catch (IllegalAccessException iae) {
+      LOG.error(iae.getMessage());
+    } catch (InvocationTargetException ite) {
+      LOG.error(ite.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * Returns the value of a mapped property as String, empty if it is blank or not readable
+   */
+  String getValue(Object target, String property) {
+    Method getter = getters.get(property);
+    if (null == getter) {
+      LOG.error("Given property (" + property + ") is not readable!");
+      return "";
+    }
+
+    try {
+      Object v = getter.invoke(target);
+      return (null != v && StringUtils.isNotBlank(v.toString())) ? v.toString() : "";
+    } catch (IllegalAccessException iae) {
+      LOG.error(iae.getMessage());
+    } catch (InvocationTargetException ite) {
+      LOG.error(ite.getMessage());
+    }
+    return "";
+  }
+
+  /**
+   * Returns the getter of a mapped property, null if it isn't readable
+   */
+  Method getReadMethod(String property) {
+    return getters.get(property);
+  }
+
+  /**
+   * Returns the String setter of a mapped property, null if it has none
+   */
+  Method getWriteMethod(String property) {
+    return propertySetters.get(property);
+  }
+
+  /**
+   * Returns the public no-arg constructor of the bean type, null if it has none
+   */
+  Constructor<T> getConstructor() {
+    return constructor;
+  }
+
+  private static <T> Constructor<T> getConstructor(Class<T> type) {
+    try {
+      Constructor<T> constructor = type.getConstructor();
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (NoSuchMethodException nsme) {
+      LOG.error("No public no-arg constructor of " + type.getName());
+    } catch (SecurityException se) {
+      LOG.error(se.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Softly held plans of one type by cell mapping, least recently used first
+   */
+  private static final class TypePlans extends
+      LinkedHashMap<Map<String, String>, SoftReference<ExcelMappingPlan<?>>> {
+    private static final long serialVersionUID = -1519384862461557046L;
+
+    TypePlans() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(
+        Map.Entry<Map<String, String>, SoftReference<ExcelMappingPlan<?>>> eldest) {
+      return size() > MAX_PLANS_PER_TYPE;
+    }
+  }
+}
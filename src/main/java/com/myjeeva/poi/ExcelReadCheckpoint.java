@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.Serializable;
+
+/**
+ * Position of a WorkSheet read, captured after a completed row. Pass it to
+ * {@link ExcelReader#resume(ExcelReadCheckpoint)} to continue reading right after that row instead
+ * of starting the Workbook again from row zero.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong> Recording a checkpoint once a batch is committed<br>
+ * <code>sink.commit();
+ * <br>ExcelReadCheckpoint checkpoint = excelReader.getCheckpoint();</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelReadCheckpoint implements Serializable {
+  private static final long serialVersionUID = -3825014163871342907L;
+
+  private final int sheetNumber;
+  private final int sheetIndex;
+  private final String sheetName;
+  private final int rowNum;
+  private final long byteOffset;
+
+  /**
+   * Constructor
+   * 
+   * @param sheetNumber a <code>int</code> - requested sheet number of the read, -1 for all sheets
+   * @param sheetIndex a <code>int</code> - zero based index of the sheet being read
+   * @param sheetName a {@link String} object - name of the sheet being read
+   * @param rowNum a <code>int</code> - zero based number of the last completed row
+   * @param byteOffset a <code>long</code> - inflated sheet XML bytes consumed by the parser
+   */
+  public ExcelReadCheckpoint(int sheetNumber, int sheetIndex, String sheetName, int rowNum,
+      long byteOffset) {
+    this.sheetNumber = sheetNumber;
+    this.sheetIndex = sheetIndex;
+    this.sheetName = sheetName;
+    this.rowNum = rowNum;
+    this.byteOffset = byteOffset;
+  }
+
+  /**
+   * Returns the sheet number originally requested, -1 when all sheets are read
+   * 
+   * @return int
+   */
+  public int getSheetNumber() {
+    return sheetNumber;
+  }
+
+  /**
+   * Returns the zero based index of the sheet the checkpoint belongs to
+   * 
+   * @return int
+   */
+  public int getSheetIndex() {
+    return sheetIndex;
+  }
+
+  /**
+   * Returns the name of the sheet the checkpoint belongs to
+   * 
+   * @return String
+   */
+  public String getSheetName() {
+    return sheetName;
+  }
+
+  /**
+   * Returns the zero based number of the last completed row
+   * 
+   * @return int
+   */
+  public int getRowNum() {
+    return rowNum;
+  }
+
+  /**
+   * Returns the number of inflated sheet XML bytes the parser had consumed when the row completed.
+   * The parser reads ahead, so this is an upper bound of the row end position.
+   * 
+   * @return long
+   */
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  @Override
+  public String toString() {
+    return "ExcelReadCheckpoint [sheetNumber=" + sheetNumber + ", sheetIndex=" + sheetIndex
+        + ", sheetName=" + sheetName + ", rowNum=" + rowNum + ", byteOffset=" + byteOffset + "]";
+  }
+}
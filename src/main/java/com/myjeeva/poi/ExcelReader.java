@@ -22,31 +22,40 @@
 package com.myjeeva.poi;
 
 /**
- * Generic Excel File(XLSX) Reading using Apache POI
+ * Generic Excel File(XLSX) Reading using Apache POI. Legacy Excel files (XLS, BIFF8) given as a
+ * file are streamed with the HSSF event API into the same handlers.
  * 
  * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
  * 
  * @since v1.0
  */
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.util.IOUtils;
-import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
-import org.apache.poi.xssf.eventusermodel.XSSFReader;
-import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
-import org.apache.poi.xssf.model.StylesTable;
-import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -57,10 +66,39 @@ public class ExcelReader {
 
   private static final int READ_ALL = -1;
 
+  private static final int ALL_ROWS = -1;
+
+  private static final int DEFAULT_STRING_DICTIONARY_SIZE = 1024;
+
   private OPCPackage xlsxPackage;
+  private File file;
   private SheetContentsHandler sheetContentsHandler;
   private ExcelSheetCallback sheetCallback;
 
+  private int readSheetNumber = READ_ALL;
+  private int currentSheetIndex;
+  private String currentSheetName;
+  private ExcelSheetXMLFilter currentSheetFilter;
+  private ExcelCellRange currentRange;
+  private boolean currentPage;
+  private CountingInputStream currentSheetStream;
+  private volatile ExcelFanOutHandler currentFanOut;
+  private boolean skipEmptyRows = false;
+  private int emptyRowLimit = 0;
+  private boolean canonicalizeStrings = false;
+  private int stringDictionarySize = DEFAULT_STRING_DICTIONARY_SIZE;
+  private ExcelStringCanonicalizer stringCanonicalizer;
+  private ExcelWorkbookMetadata workbookMetadata;
+  private SAXParserFactory saxFactory;
+  private ExcelCellFormatter cellFormatter;
+  private Locale cellFormatterLocale;
+  private File indexDirectory;
+  private final Map<Integer, ExcelSheetIndex> sheetIndexes =
+      new HashMap<Integer, ExcelSheetIndex>();
+  private ExcelResultCache resultCache;
+  private byte[] sharedPartsDigest;
+  private Exception readFailure;
+
   /**
    * Constructor: Microsoft Excel File (XSLX) Reader
    * 
@@ -77,22 +115,24 @@ public class ExcelReader {
   }
 
   /**
-   * Constructor: Microsoft Excel File (XSLX) Reader
+   * Constructor: Microsoft Excel File (XSLX or XLS) Reader
    * 
-   * @param filePath a {@link String} object - The path of XLSX file
+   * @param filePath a {@link String} object - The path of XLSX or XLS file
    * @param sheetContentsHandler a {@link SheetContentsHandler} object - WorkSheet contents handler
    * @param sheetCallback a {@link ExcelSheetCallback} object - WorkSheet callback for sheet
    *        processing begin and end (can be null)
    */
   public ExcelReader(String filePath, SheetContentsHandler sheetContentsHandler,
       ExcelSheetCallback sheetCallback) throws Exception {
-    this(getOPCPackage(getFile(filePath)), sheetContentsHandler, sheetCallback);
+    this(getFile(filePath), sheetContentsHandler, sheetCallback);
   }
 
   /**
-   * Constructor: Microsoft Excel File (XSLX) Reader
+   * Constructor: Microsoft Excel File (XSLX or XLS) Reader. An XLS file (BIFF8) is detected by its
+   * OLE2 header and read with the HSSF event API, record by record; reading a table or defined
+   * name, checkpoints, row indexes and string canonicalization are XLSX only.
    * 
-   * @param file a {@link File} object - The File object of XLSX file
+   * @param file a {@link File} object - The File object of XLSX or XLS file
    * @param sheetContentsHandler a {@link SheetContentsHandler} object - WorkSheet contents handler
    * @param sheetCallback a {@link ExcelSheetCallback} object - WorkSheet callback for sheet
    *        processing begin and end (can be null)
@@ -100,6 +140,7 @@ public class ExcelReader {
   public ExcelReader(File file, SheetContentsHandler sheetContentsHandler,
       ExcelSheetCallback sheetCallback) throws Exception {
     this(getOPCPackage(file), sheetContentsHandler, sheetCallback);
+    this.file = file;
   }
 
   /**
@@ -149,53 +190,678 @@ public class ExcelReader {
     read(sheetNumber);
   }
 
+  /**
+   * Processing of the routed WorkSheets from XLSX Workbook in a single pass, each sheet with its own
+   * contents handler. Workbook metadata is parsed once per reader, so repeated process calls don't
+   * parse it again.
+   * 
+   * <br>
+   * <br>
+   * <strong>Example:</strong><br>
+   * <code>ExcelReader excelReader = new ExcelReader(pkg, null, sheetCallback);
+   * <br>excelReader.process(new ExcelSheetRouter().route(0, personHandler).route("Summary", summaryHandler));</code>
+   * 
+   * @param router a {@link ExcelSheetRouter} object
+   * @throws Exception
+   */
+  public void process(ExcelSheetRouter router) throws Exception {
+    if (null == router) {
+      throw new IllegalArgumentException("Sheet router cannot be null");
+    }
+
+    read(READ_ALL, null, router, null);
+  }
+
+  /**
+   * Processing of the cell range of an Excel Table or a defined name (named range) from XLSX
+   * Workbook. Name is resolved from the table parts and the defined names of workbook.xml, case
+   * insensitive. Only rows and cells inside the range are parsed, the rest of the sheet is skipped
+   * at the XML tokenizer level.
+   * 
+   * <br>
+   * <br>
+   * The range is delivered as if it were a sheet of its own: its first column is column A and its
+   * header row is row zero. For an Excel Table the header row is made of the table column names,
+   * the totals row is left out. For a defined name the first row of the range is the header row.
+   * So the cell mapping of a handler refers to the columns of the range.
+   * 
+   * <br>
+   * <br>
+   * <strong>Example:</strong><br>
+   * <code>ExcelReader excelReader = new ExcelReader(file, workSheetHandler, sheetCallback);
+   * <br>excelReader.process("PersonTable");</code>
+   * 
+   * @param name a {@link String} object - Excel Table name or defined name
+   * @throws Exception
+   */
+  public void process(String name) throws Exception {
+    if (null == name || name.isEmpty()) {
+      throw new IllegalArgumentException("Table or defined name cannot be empty");
+    }
+
+    read(READ_ALL, null, null, name);
+  }
+
+  /**
+   * Processing of a page of rows of particular WorkSheet (zero based) from XLSX Workbook, rows from
+   * the given row number up to the given count. The header row (row zero) is always delivered as
+   * well, header aware handlers rely on it. Parsing stops after the last row of the page.
+   * 
+   * <br>
+   * <br>
+   * With an index directory set (see {@link #setIndexDirectory(File)}) the first page read of a
+   * sheet writes a sidecar row index and an inflated copy of the sheet XML there, later pages seek
+   * straight to their rows. The index is built again once the size or last modified time of the
+   * XLSX file changes. Without an index directory, or for a reader created from an
+   * {@link OPCPackage}, every page is parsed from the start of the sheet.
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>ExcelReader excelReader = new ExcelReader(file, workSheetHandler, sheetCallback);
+   * <br>excelReader.setIndexDirectory(new File("/var/cache/excel"));
+   * <br>excelReader.readRows(0, 2001, 100);</code>
+   * 
+   * @param sheetNumber a <code>int</code> - zero based sheet number
+   * @param fromRow a <code>int</code> - zero based row number of the first row
+   * @param count a <code>int</code> - number of rows
+   * @throws Exception
+   */
+  public void readRows(int sheetNumber, int fromRow, int count) throws Exception {
+    if (sheetNumber < 0 || fromRow < 0 || count < 1) {
+      throw new IllegalArgumentException("Invalid page: sheet " + sheetNumber + ", row "
+          + fromRow + ", count " + count);
+    }
+
+    read(sheetNumber, null, null, null, fromRow, count);
+  }
+
+  /**
+   * Returns the WorkSheet names of XLSX Workbook in workbook order, index in the list is the zero
+   * based sheet number. Workbook metadata is parsed once per reader.
+   * 
+   * @return List&lt;String>
+   * @throws Exception
+   */
+  public List<String> getSheetNames() throws Exception {
+    if (null == xlsxPackage) {
+      throw new UnsupportedOperationException("Sheet names are available for XLSX files only");
+    }
+
+    ExcelWorkbookMetadata metadata = getWorkbookMetadata();
+    List<String> sheetNames = new ArrayList<String>(metadata.getSheetCount());
+    for (int sheetIndex = 0; sheetIndex < metadata.getSheetCount(); sheetIndex++) {
+      sheetNames.add(metadata.getSheetName(sheetIndex));
+    }
+    return sheetNames;
+  }
+
+  /**
+   * Returns the directory of the sidecar row indexes, null if indexing is disabled (default)
+   * 
+   * @return File
+   */
+  public File getIndexDirectory() {
+    return indexDirectory;
+  }
+
+  /**
+   * Sets the directory of the sidecar row indexes used by {@link #readRows(int, int, int)}, created
+   * if missing. Each indexed sheet keeps an inflated copy of its XML there, so plan for about the
+   * uncompressed size of the sheets.
+   * 
+   * @param indexDirectory a {@link File} object - null disables indexing
+   */
+  public void setIndexDirectory(File indexDirectory) {
+    this.indexDirectory = indexDirectory;
+    this.sheetIndexes.clear();
+  }
+
+  /**
+   * Returns the result cache of whole sheet reads, null if caching is disabled (default)
+   * 
+   * @return ExcelResultCache
+   */
+  public ExcelResultCache getResultCache() {
+    return resultCache;
+  }
+
+  /**
+   * Sets the result cache of whole sheet reads. An XLSX sheet unchanged since it was cached is
+   * replayed into the WorkSheet contents handler without parsing; other sheets are parsed as usual
+   * and recorded. Pages of rows, tables, defined names and the sheet resumed from a checkpoint are
+   * never cached, and checkpoints are not available for a replayed sheet. A read rejecting rows
+   * ({@link ExcelRowRejectionAware}) skips part of the sheet, so it is not recorded; it replays
+   * the recording of a full read. A cache can be shared by readers of many workbooks.
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>excelReader.setResultCache(new ExcelResultCache(new File("cache"), 512L << 20));</code>
+   * 
+   * @param resultCache a {@link ExcelResultCache} object - null disables caching
+   */
+  public void setResultCache(ExcelResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /**
+   * Returns empty row skipping state, default it is disabled
+   * 
+   * @return boolean
+   */
+  public boolean isSkipEmptyRows() {
+    return skipEmptyRows;
+  }
+
+  /**
+   * To skip rows without any cell value, e.g. rows of styled empty cells written by other tools.
+   * Such rows are detected while parsing and never delivered to the WorkSheet contents handler,
+   * not even their start and end. The header row (row zero) is always delivered. Disabled by
+   * default, so every row element of the sheet is delivered.
+   * 
+   * @param skipEmptyRows a boolean
+   */
+  public void setSkipEmptyRows(boolean skipEmptyRows) {
+    this.skipEmptyRows = skipEmptyRows;
+  }
+
+  /**
+   * Returns number of consecutive empty rows ending a sheet, default is 0 (disabled)
+   * 
+   * @return int
+   */
+  public int getEmptyRowLimit() {
+    return emptyRowLimit;
+  }
+
+  /**
+   * To stop reading a sheet after given number of consecutive empty rows, the rest of the sheet is
+   * not parsed. Counts row elements without any cell value, row numbers missing from the sheet
+   * are not counted. Needs empty row skipping, 0 disables it.
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>excelReader.setSkipEmptyRows(true);
+   * <br>excelReader.setEmptyRowLimit(1000);</code>
+   * 
+   * @param emptyRowLimit a <code>int</code>
+   */
+  public void setEmptyRowLimit(int emptyRowLimit) {
+    this.emptyRowLimit = emptyRowLimit;
+  }
+
+  /**
+   * Returns string canonicalization state, default it is disabled
+   * 
+   * @return boolean
+   */
+  public boolean isCanonicalizeStrings() {
+    return canonicalizeStrings;
+  }
+
+  /**
+   * To enable string canonicalization, repeated cell values are then delivered as one shared
+   * {@link String} instance. Shared string cells share the instance per shared-string index, other
+   * values per column up to the string dictionary size. Cuts retained heap of low cardinality
+   * columns like country, status or currency.
+   * 
+   * @param canonicalizeStrings a boolean
+   */
+  public void setCanonicalizeStrings(boolean canonicalizeStrings) {
+    this.canonicalizeStrings = canonicalizeStrings;
+  }
+
+  /**
+   * Returns the number of distinct non shared string values canonicalized per column, default is
+   * 1024
+   * 
+   * @return int
+   */
+  public int getStringDictionarySize() {
+    return stringDictionarySize;
+  }
+
+  /**
+   * To set the number of distinct non shared string values canonicalized per column, default is
+   * 1024
+   * 
+   * @param stringDictionarySize a <code>int</code>
+   */
+  public void setStringDictionarySize(int stringDictionarySize) {
+    this.stringDictionarySize = stringDictionarySize;
+  }
+
+  /**
+   * Resumes a read right after the row recorded in the given checkpoint. Rows up to the checkpoint
+   * row are skipped at the XML tokenizer level, they are neither formatted nor delivered to the
+   * WorkSheet contents handler. The header row (row zero) of the checkpoint sheet is always
+   * delivered again, so header aware handlers keep their column mapping.
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>ExcelReader excelReader = new ExcelReader(file, workSheetHandler, sheetCallback);
+   * <br>excelReader.resume(checkpoint);</code>
+   * 
+   * @param checkpoint a {@link ExcelReadCheckpoint} object - taken from {@link #getCheckpoint()}
+   * @throws Exception
+   */
+  public void resume(ExcelReadCheckpoint checkpoint) throws Exception {
+    if (null == checkpoint) {
+      throw new IllegalArgumentException("Checkpoint cannot be null");
+    }
+
+    read(checkpoint.getSheetNumber(), checkpoint);
+  }
+
+  /**
+   * Returns the position after the last completed row of the current (or last) read, null if no
+   * row has completed yet. Call it from the contents handler once a batch is committed downstream,
+   * the row being ended is counted as completed. Not available while reading a table, a defined
+   * name or a page of rows.
+   * 
+   * <p>
+   * While an asynchronous {@link ExcelFanOutHandler} reads a sheet, call it from one of its handler
+   * threads: the checkpoint is the one of the row that handler is processing, the parser is ahead.
+   * </p>
+   * 
+   * @return ExcelReadCheckpoint
+   * @throws IllegalStateException if called off the handler threads of an asynchronous fan-out
+   *         while it reads a sheet
+   */
+  public ExcelReadCheckpoint getCheckpoint() {
+    ExcelFanOutHandler fanOut = currentFanOut;
+    if (null != fanOut) {
+      return fanOut.getCheckpoint();
+    }
+    return getParserCheckpoint();
+  }
+
+  /**
+   * Returns the position after the last row completed by the parser
+   */
+  ExcelReadCheckpoint getParserCheckpoint() {
+    if (null == currentSheetFilter || null != currentRange || currentPage
+        || currentSheetFilter.getLastCompletedRow() < 0) {
+      return null;
+    }
+
+    return new ExcelReadCheckpoint(readSheetNumber, currentSheetIndex, currentSheetName,
+        currentSheetFilter.getLastCompletedRow(), currentSheetStream.getCount());
+  }
+
   private void read(int sheetNumber) throws RuntimeException {
-    ReadOnlySharedStringsTable strings;
+    read(sheetNumber, null, null, null);
+  }
+
+  private void read(int sheetNumber, ExcelReadCheckpoint checkpoint) throws RuntimeException {
+    read(sheetNumber, checkpoint, null, null);
+  }
+
+  private void read(int sheetNumber, ExcelReadCheckpoint checkpoint, ExcelSheetRouter router,
+      String rangeName) throws RuntimeException {
+    read(sheetNumber, checkpoint, router, rangeName, 0, ALL_ROWS);
+  }
+
+  private void read(int sheetNumber, ExcelReadCheckpoint checkpoint, ExcelSheetRouter router,
+      String rangeName, int fromRow, int rowCount) throws RuntimeException {
+    this.readFailure = null;
+    if (null == xlsxPackage && null != file) {
+      if (null != checkpoint || null != rangeName) {
+        throw new UnsupportedOperationException(
+            "Tables, defined names and checkpoints are supported for XLSX files only");
+      }
+      readBiff(sheetNumber, router, fromRow, rowCount);
+      return;
+    }
+
     try {
-      strings = new ReadOnlySharedStringsTable(this.xlsxPackage);
-      XSSFReader xssfReader = new XSSFReader(this.xlsxPackage);
-      StylesTable styles = xssfReader.getStylesTable();
-      XSSFReader.SheetIterator worksheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+      ExcelWorkbookMetadata metadata = getWorkbookMetadata();
+
+      this.currentRange = (null == rangeName) ? null : metadata.getRange(rangeName);
+      if (null != currentRange) {
+        sheetNumber = currentRange.getSheetIndex();
+      }
+      this.readSheetNumber = sheetNumber;
+      this.currentPage = ALL_ROWS != rowCount;
+      int lastRow = currentPage ? fromRow + rowCount - 1 : Integer.MAX_VALUE;
+      this.currentSheetFilter = null;
+      this.stringCanonicalizer = canonicalizeStrings ? new ExcelStringCanonicalizer(
+          metadata.getSharedStrings().getUniqueCount(), stringDictionarySize) : null;
+      for (int sheetIndex = 0; sheetIndex < metadata.getSheetCount(); sheetIndex++) {
+        String sheetName = metadata.getSheetName(sheetIndex);
+        int firstRow = fromRow;
+        if (null != checkpoint && sheetIndex == checkpoint.getSheetIndex()) {
+          if (!sheetName.equals(checkpoint.getSheetName())) {
+            throw new IllegalArgumentException("Checkpoint sheet '" + checkpoint.getSheetName()
+                + "' doesn't match sheet '" + sheetName + "' of the workbook");
+          }
+          firstRow = checkpoint.getRowNum() + 1;
+        }
 
-      for (int sheetIndex = 0; worksheets.hasNext(); sheetIndex++) {
-        InputStream stream = worksheets.next();
         if (null != sheetCallback)
-          this.sheetCallback.startSheet(sheetIndex, worksheets.getSheetName());
+          this.sheetCallback.startSheet(sheetIndex, sheetName);
+
+        SheetContentsHandler handler = null;
+        if (null != router) {
+          handler = router.getHandler(sheetIndex, sheetName);
+        } else if (((READ_ALL == sheetNumber) || (sheetIndex == sheetNumber))
+            && (null == checkpoint || sheetIndex >= checkpoint.getSheetIndex())) {
+          handler = this.sheetContentsHandler;
+        }
 
-        if ((READ_ALL == sheetNumber) || (sheetIndex == sheetNumber)) {
-          readSheet(styles, strings, stream);
+        if (null != handler) {
+          this.currentSheetIndex = sheetIndex;
+          this.currentSheetName = sheetName;
+          ExcelFanOutHandler fanOut = (handler instanceof ExcelFanOutHandler)
+              ? (ExcelFanOutHandler) handler : null;
+          if (null != fanOut && fanOut.isAsynchronous()) {
+            fanOut.setCheckpointReader(this);
+            this.currentFanOut = fanOut;
+          }
+          boolean completed = false;
+          try {
+            if (null != resultCache && null == currentRange && !currentPage && 0 == firstRow) {
+              readCachedSheet(metadata, handler, sheetIndex);
+            } else {
+              InputStream stream = openSheet(metadata, sheetIndex, firstRow);
+              try {
+                readSheet(metadata, handler, stream, firstRow, lastRow, currentRange);
+              } finally {
+                IOUtils.closeQuietly(stream);
+              }
+            }
+
+            if (null != fanOut) {
+              completed = true;
+              fanOut.awaitCompletion();
+            }
+          } finally {
+            if (null != fanOut) {
+              if (!completed) {
+                fanOut.discard();
+              }
+              fanOut.setCheckpointReader(null);
+              this.currentFanOut = null;
+            }
+          }
         }
-        IOUtils.closeQuietly(stream);
 
         if (null != sheetCallback)
           this.sheetCallback.endSheet();
       }
     } catch (IOException | SAXException | OpenXML4JException | ParserConfigurationException e) {
+      this.readFailure = e;
+      log.error(e.getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * Streams the records of a legacy Excel file (XLS) into the contents handlers, sheet callbacks
+   * and handler selection are the same as for XLSX.
+   */
+  private void readBiff(final int sheetNumber, final ExcelSheetRouter router, int fromRow,
+      int rowCount) throws RuntimeException {
+    this.readSheetNumber = sheetNumber;
+    this.currentPage = ALL_ROWS != rowCount;
+    this.currentRange = null;
+    this.currentSheetFilter = null;
+    this.stringCanonicalizer = null;
+
+    ExcelBiffListener listener =
+        new ExcelBiffListener(new ExcelBiffListener.SheetLifecycle() {
+          @Override
+          public SheetContentsHandler startSheet(int sheetIndex, String sheetName) {
+            if (null != sheetCallback)
+              sheetCallback.startSheet(sheetIndex, sheetName);
+
+            currentSheetIndex = sheetIndex;
+            currentSheetName = sheetName;
+            if (null != router) {
+              return router.getHandler(sheetIndex, sheetName);
+            }
+            if ((READ_ALL == sheetNumber) || (sheetIndex == sheetNumber)) {
+              return sheetContentsHandler;
+            }
+            return null;
+          }
+
+          @Override
+          public ExcelSheetDimensionCallback getDimensionCallback(SheetContentsHandler handler) {
+            return ExcelReader.this.getDimensionCallback(handler);
+          }
+
+          @Override
+          public void endSheet(SheetContentsHandler handler) {
+            if (handler instanceof ExcelFanOutHandler) {
+              ((ExcelFanOutHandler) handler).awaitCompletion();
+            }
+
+            if (null != sheetCallback)
+              sheetCallback.endSheet();
+          }
+        }, Locale.getDefault());
+    listener.setSkipEmptyRows(skipEmptyRows);
+    listener.setEmptyRowLimit(skipEmptyRows ? emptyRowLimit : 0);
+    listener.setRows(fromRow, currentPage ? fromRow + rowCount - 1 : Integer.MAX_VALUE);
+    if (null == router && READ_ALL != sheetNumber) {
+      listener.setLastSheetIndex(sheetNumber);
+    }
+
+    NPOIFSFileSystem fileSystem = null;
+    try {
+      fileSystem = new NPOIFSFileSystem(file, true);
+      HSSFRequest request = new HSSFRequest();
+      request.addListenerForAllRecords(listener);
+      new HSSFEventFactory().abortableProcessWorkbookEvents(request, fileSystem.getRoot());
+    } catch (IOException | HSSFUserException e) {
+      this.readFailure = e;
       log.error(e.getMessage(), e.getCause());
+    } finally {
+      IOUtils.closeQuietly(fileSystem);
     }
   }
 
   /**
-   * Parses the content of one sheet using the specified styles and shared-strings tables.
+   * Returns the parse or IO failure that ended the last read, null if it completed. Such failures
+   * are logged and not thrown, the rest of the workbook is then skipped.
    * 
-   * @param styles a {@link StylesTable} object
-   * @param sharedStringsTable a {@link ReadOnlySharedStringsTable} object
+   * @return Exception
+   */
+  Exception getReadFailure() {
+    return readFailure;
+  }
+
+  /**
+   * Returns workbook metadata (shared strings, styles and sheets), parsed on first use and kept for
+   * the life of this reader.
+   */
+  private ExcelWorkbookMetadata getWorkbookMetadata() throws IOException, SAXException,
+      OpenXML4JException, ParserConfigurationException {
+    if (null == workbookMetadata) {
+      workbookMetadata = ExcelWorkbookMetadata.read(this.xlsxPackage);
+    }
+    return workbookMetadata;
+  }
+
+  /**
+   * Opens the XML of a sheet. For a page read with an index directory the stream comes from the
+   * sidecar row index, positioned near the first row; the index is built on first use and whenever
+   * it is no longer current. Index failures fall back to the sheet part of the package.
+   */
+  private InputStream openSheet(ExcelWorkbookMetadata metadata, int sheetIndex, int fromRow)
+      throws IOException {
+    if (!currentPage || null == indexDirectory || null == file) {
+      return metadata.openSheet(sheetIndex);
+    }
+
+    try {
+      ExcelSheetIndex index = sheetIndexes.get(sheetIndex);
+      if (null == index || !index.isCurrent()) {
+        index = ExcelSheetIndex.load(indexDirectory, file, sheetIndex);
+      }
+      if (null == index) {
+        InputStream stream = metadata.openSheet(sheetIndex);
+        try {
+          index = ExcelSheetIndex.build(indexDirectory, file, sheetIndex, stream);
+        } finally {
+          IOUtils.closeQuietly(stream);
+        }
+        log.debug("Row index of sheet '" + currentSheetName + "' written to " + indexDirectory);
+      }
+      sheetIndexes.put(sheetIndex, index);
+      return index.openRows(fromRow);
+    } catch (IOException e) {
+      log.warn("Row index of sheet '" + currentSheetName + "' isn't available, "
+          + e.getMessage());
+      return metadata.openSheet(sheetIndex);
+    }
+  }
+
+  /**
+   * Reads a whole sheet through the result cache: replayed if it is cached and unchanged, parsed
+   * and recorded otherwise. Sheets of a package not read from a zip file are always parsed.
+   */
+  private void readCachedSheet(ExcelWorkbookMetadata metadata, SheetContentsHandler handler,
+      int sheetIndex) throws IOException, ParserConfigurationException, SAXException {
+    PackagePart sheetPart = metadata.getSheetPart(sheetIndex);
+    getCellFormatter(metadata);
+    String key =
+        ExcelResultCache.getKey("skipEmptyRows=" + skipEmptyRows + ",emptyRowLimit="
+            + emptyRowLimit + ",locale=" + cellFormatterLocale, sheetPart,
+            metadata.getSharedStringsPart(), metadata.getStylesPart());
+    if (null != key) {
+      if (null == sharedPartsDigest) {
+        sharedPartsDigest =
+            ExcelResultCache.digest(metadata.getSharedStringsPart(), metadata.getStylesPart());
+      }
+      if (resultCache.replay(key, sheetPart, sharedPartsDigest, handler,
+          getDimensionCallback(handler, null))) {
+        this.currentSheetFilter = null;
+        log.debug("Sheet '" + currentSheetName + "' is replayed from the result cache");
+        return;
+      }
+    }
+
+    ExcelResultCache.Recorder recorder =
+        (null == key) ? null : resultCache.record(key, sharedPartsDigest, handler);
+    InputStream stream = metadata.openSheet(sheetIndex);
+    try {
+      if (null == recorder) {
+        readSheet(metadata, handler, stream, 0, Integer.MAX_VALUE, null);
+      } else {
+        readSheet(metadata, recorder, recorder.wrap(stream), 0, Integer.MAX_VALUE, null);
+        recorder.finish();
+      }
+    } finally {
+      IOUtils.closeQuietly(stream);
+      if (null != recorder) {
+        recorder.discard();
+      }
+    }
+  }
+
+  /**
+   * Parses the content of one sheet using the workbook styles and shared-strings tables.
+   * 
+   * @param metadata a {@link ExcelWorkbookMetadata} object
+   * @param handler a {@link SheetContentsHandler} object - contents handler of the sheet
    * @param sheetInputStream a {@link InputStream} object
+   * @param firstRow a <code>int</code> - zero based row number to start delivering rows from
+   * @param lastRow a <code>int</code> - zero based row number to stop after
+   * @param range a {@link ExcelCellRange} object - cell range to read (can be null)
    * @throws IOException
    * @throws ParserConfigurationException
    * @throws SAXException
    */
-  private void readSheet(StylesTable styles, ReadOnlySharedStringsTable sharedStringsTable,
-      InputStream sheetInputStream) throws IOException, ParserConfigurationException, SAXException {
+  private void readSheet(ExcelWorkbookMetadata metadata, SheetContentsHandler handler,
+      InputStream sheetInputStream, int firstRow, int lastRow, ExcelCellRange range)
+      throws IOException, ParserConfigurationException, SAXException {
 
-    SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+    if (null == saxFactory) {
+      saxFactory = SAXParserFactory.newInstance();
+    }
     XMLReader sheetParser = saxFactory.newSAXParser().getXMLReader();
 
-    ContentHandler handler =
-        new XSSFSheetXMLHandler(styles, sharedStringsTable, sheetContentsHandler, true);
+    SheetContentsHandler output = (null == stringCanonicalizer) ? handler : stringCanonicalizer;
+    ExcelSheetXMLHandler xmlHandler =
+        new ExcelSheetXMLHandler(metadata.getSharedStrings(), output, getCellFormatter(metadata),
+            true);
+    xmlHandler.setDimensionCallback(getDimensionCallback(handler));
+    xmlHandler.setSkipEmptyRows(skipEmptyRows);
+    xmlHandler.setEmptyRowLimit(skipEmptyRows ? emptyRowLimit : 0);
+
+    this.currentSheetStream = new CountingInputStream(sheetInputStream);
+    this.currentSheetFilter =
+        new ExcelSheetXMLFilter(xmlHandler, firstRow, getRowRejection(handler), range);
+    currentSheetFilter.setLastRow(lastRow);
+    if (null != stringCanonicalizer) {
+      currentSheetFilter.setTrackSharedStrings(true);
+      stringCanonicalizer.startSheet(currentSheetFilter, handler);
+    }
+
+    sheetParser.setContentHandler(currentSheetFilter);
+    try {
+      sheetParser.parse(new InputSource(currentSheetStream));
+    } catch (ExcelSheetXMLHandler.StopSheetException e) {
+      log.debug(e.getMessage() + ", rest of sheet '" + currentSheetName + "' is skipped");
+    }
+  }
+
+  /**
+   * Returns the cell formatter, created on first use with the default locale of that time and kept
+   * for the life of this reader
+   */
+  private ExcelCellFormatter getCellFormatter(ExcelWorkbookMetadata metadata) {
+    if (null == cellFormatter) {
+      cellFormatterLocale = Locale.getDefault();
+      cellFormatter = new ExcelCellFormatter(metadata.getStyles(), cellFormatterLocale);
+    }
+    return cellFormatter;
+  }
 
-    sheetParser.setContentHandler(handler);
-    sheetParser.parse(new InputSource(sheetInputStream));
+  /**
+   * Returns callback delivering the sheet dimension to the sheet callback, the string canonicalizer
+   * and the contents handler, whichever of them take it. Null if none does.
+   */
+  private ExcelSheetDimensionCallback getDimensionCallback(SheetContentsHandler handler) {
+    return getDimensionCallback(handler, stringCanonicalizer);
+  }
+
+  private ExcelSheetDimensionCallback getDimensionCallback(SheetContentsHandler handler,
+      ExcelStringCanonicalizer canonicalizer) {
+    final List<ExcelSheetDimensionCallback> callbacks =
+        new ArrayList<ExcelSheetDimensionCallback>(3);
+    if (sheetCallback instanceof ExcelSheetDimensionCallback) {
+      callbacks.add((ExcelSheetDimensionCallback) sheetCallback);
+    }
+    if (null != canonicalizer) {
+      callbacks.add(canonicalizer);
+    }
+    if (handler instanceof ExcelSheetDimensionCallback) {
+      callbacks.add((ExcelSheetDimensionCallback) handler);
+    }
+
+    if (callbacks.isEmpty()) {
+      return null;
+    }
+    return new ExcelSheetDimensionCallback() {
+      @Override
+      public void sheetDimension(ExcelSheetDimension dimension) {
+        for (ExcelSheetDimensionCallback callback : callbacks) {
+          callback.sheetDimension(dimension);
+        }
+      }
+    };
+  }
+
+  private static ExcelRowRejectionAware getRowRejection(SheetContentsHandler handler) {
+    if (handler instanceof ExcelRowRejectionAware) {
+      return (ExcelRowRejectionAware) handler;
+    }
+    return null;
   }
 
   private static File getFile(String filePath) throws Exception {
@@ -206,11 +872,63 @@ public class ExcelReader {
     return new File(filePath);
   }
 
+  /**
+   * Opens the package of an XLSX file, null for an XLS file (OLE2 container) which is read with the
+   * HSSF event API instead
+   */
   private static OPCPackage getOPCPackage(File file) throws Exception {
     if (null == file || !file.canRead()) {
       throw new Exception("File object is null or cannot have read permission");
     }
 
+    InputStream stream = new BufferedInputStream(new FileInputStream(file));
+    try {
+      if (NPOIFSFileSystem.hasPOIFSHeader(stream)) {
+        return null;
+      }
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
     return OPCPackage.open(file, PackageAccess.READ);
   }
+
+  /**
+   * Counts the inflated sheet bytes handed to the XML parser, used for checkpoint offsets.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    long getCount() {
+      return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
+    }
+  }
 }
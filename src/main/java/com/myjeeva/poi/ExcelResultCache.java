@@ -0,0 +1,835 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.ZipPackagePart;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * On-disk cache of WorkSheet results for workbooks read again and again, e.g. the same upload
+ * received many times with a few sheets changed. The rows delivered for a sheet are recorded once
+ * and replayed into the WorkSheet contents handler as long as the sheet is unchanged, so only
+ * changed sheets are parsed and formatted.
+ * 
+ * <p>
+ * A sheet is looked up by the CRC and sizes the zip directory keeps for its part and for the
+ * shared strings and styles parts, a cheap pre-check needing no inflating. A candidate is replayed
+ * only if the SHA-256 digest of those parts' content matches the recorded one. Entries are evicted
+ * least recently used first once the cache grows past its size bound.
+ * </p>
+ * 
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelResultCache resultCache = new ExcelResultCache(new File("cache"), 512L << 20);
+ * <br>excelReader.setResultCache(resultCache);</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelResultCache {
+
+  private static final Log log = LogFactory.getLog(ExcelResultCache.class);
+
+  private static final int MAGIC = 0x58525243;
+
+  private static final int VERSION = 1;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String SUFFIX = ".rows";
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private static final int DIGEST_LENGTH = 32;
+
+  private static final int HEADER_LENGTH = 4 + 4 + 8 + DIGEST_LENGTH;
+
+  private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+  private static final int MAX_DICTIONARY_LENGTH = 64;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte DIMENSION = 'D';
+  private static final byte START_ROW = 'R';
+  private static final byte CELL = 'C';
+  private static final byte END_ROW = 'E';
+  private static final byte HEADER_FOOTER = 'H';
+  private static final byte END_SHEET = 'Z';
+
+  private static final int NULL_VALUE = -1;
+  private static final int NEW_VALUE = -2;
+  private static final int LITERAL_VALUE = -3;
+
+  private final File directory;
+  private final long maxBytes;
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f,
+      true);
+  private boolean loaded;
+  private long size;
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Constructor
+   * 
+   * @param directory a {@link File} object - cache directory, created if missing
+   * @param maxBytes a <code>long</code> - size bound of the cached entries in bytes
+   */
+  public ExcelResultCache(File directory, long maxBytes) {
+    if (null == directory) {
+      throw new IllegalArgumentException("Cache directory cannot be null");
+    }
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("Cache size bound must be greater than zero");
+    }
+
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cache directory
+   * 
+   * @return File
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns the size bound of the cached entries in bytes
+   * 
+   * @return long
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the size of the cached entries in bytes
+   * 
+   * @return long
+   */
+  public synchronized long getSize() {
+    load();
+    return size;
+  }
+
+  /**
+   * Returns the number of sheets replayed from the cache
+   * 
+   * @return long
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of sheets looked up but parsed, recorded for the next time
+   * 
+   * @return long
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the lookup key of a sheet, built from the zip directory entries of its part and of the
+   * shared parts plus the read options changing the delivered values. Null if a part isn't read
+   * from a zip file with known CRC and sizes, the sheet isn't cached then.
+   * 
+   * @param options a {@link String} object - read options
+   * @param parts a {@link PackagePart} array - sheet part first, absent parts are null
+   * @return String
+   */
+  static String getKey(String options, PackagePart... parts) {
+    MessageDigest digest = newDigest();
+    digest.update(Integer.toString(VERSION).getBytes(UTF_8));
+    digest.update(options.getBytes(UTF_8));
+    for (PackagePart part : parts) {
+      long crc = -1;
+      long length = -1;
+      long compressedLength = -1;
+      if (null != part) {
+        ZipEntry entry =
+            (part instanceof ZipPackagePart) ? ((ZipPackagePart) part).getZipArchive() : null;
+        if (null == entry || entry.getCrc() < 0 || entry.getSize() < 0
+            || entry.getCompressedSize() < 0) {
+          return null;
+        }
+        crc = entry.getCrc();
+        length = entry.getSize();
+        compressedLength = entry.getCompressedSize();
+      }
+      digest.update(("|" + crc + ":" + length + ":" + compressedLength).getBytes(UTF_8));
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns the content digest of the shared parts (shared strings and styles) of a workbook
+   * 
+   * @param parts a {@link PackagePart} array - absent parts are null
+   * @return byte[]
+   * @throws IOException
+   */
+  static byte[] digest(PackagePart... parts) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    for (PackagePart part : parts) {
+      digest.update((byte) (null == part ? 0 : 1));
+      if (null == part) {
+        continue;
+      }
+      InputStream in = part.getInputStream();
+      try {
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+          digest.update(buffer, 0, n);
+        }
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Replays the recorded rows of a sheet into the contents handler, if there is an entry for the
+   * key and the content digest of the sheet part and shared parts matches it. Nothing is delivered
+   * when it returns false.
+   * 
+   * @param key a {@link String} object - from {@link #getKey(String, PackagePart...)}
+   * @param sheetPart a {@link PackagePart} object - sheet part
+   * @param sharedDigest a <code>byte[]</code> - from {@link #digest(PackagePart...)}
+   * @param handler a {@link SheetContentsHandler} object - contents handler of the sheet
+   * @param dimensionCallback a {@link ExcelSheetDimensionCallback} object - can be null
+   * @return boolean - true if the sheet was replayed
+   * @throws IOException - reading the entry failed part way, after rows were delivered
+   */
+  boolean replay(String key, PackagePart sheetPart, byte[] sharedDigest,
+      SheetContentsHandler handler, ExcelSheetDimensionCallback dimensionCallback)
+      throws IOException {
+    File file = getFile(key);
+    DataInputStream in = null;
+    boolean current = false;
+    try {
+      if (!file.isFile()) {
+        return miss();
+      }
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+      byte[] recorded = new byte[DIGEST_LENGTH];
+      if (MAGIC != in.readInt() || VERSION != in.readInt() || file.length() != in.readLong()) {
+        return miss();
+      }
+      in.readFully(recorded);
+
+      InputStream sheetInputStream = sheetPart.getInputStream();
+      try {
+        DigestingInputStream digesting = new DigestingInputStream(sheetInputStream);
+        digesting.drain();
+        if (!Arrays.equals(recorded, digesting.getDigest(sharedDigest))) {
+          return miss();
+        }
+      } finally {
+        IOUtils.closeQuietly(sheetInputStream);
+      }
+      current = true;
+    } catch (EOFException e) {
+      // truncated entry, recorded again
+      return miss();
+    } catch (IOException e) {
+      log.warn("Result cache entry '" + file.getName() + "' isn't readable, " + e.getMessage());
+      return miss();
+    } finally {
+      if (!current) {
+        // stale entry, closed before it is recorded again
+        IOUtils.closeQuietly(in);
+      }
+    }
+
+    try {
+      touch(key, file);
+      replay(in, handler, dimensionCallback);
+      return true;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Returns a recorder of the rows delivered for a sheet, which are stored under the key once
+   * {@link Recorder#finish()} is called
+   * 
+   * @param key a {@link String} object - from {@link #getKey(String, PackagePart...)}
+   * @param sharedDigest a <code>byte[]</code> - from {@link #digest(PackagePart...)}
+   * @param handler a {@link SheetContentsHandler} object - contents handler of the sheet
+   * @return Recorder
+   */
+  Recorder record(String key, byte[] sharedDigest, SheetContentsHandler handler) {
+    return new Recorder(key, sharedDigest, handler);
+  }
+
+  private void replay(DataInputStream in, SheetContentsHandler handler,
+      ExcelSheetDimensionCallback dimensionCallback) throws IOException {
+    List<String> dictionary = new ArrayList<String>();
+    while (true) {
+      byte event = in.readByte();
+      switch (event) {
+        case DIMENSION:
+          ExcelSheetDimension dimension =
+              new ExcelSheetDimension(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+          if (null != dimensionCallback) {
+            dimensionCallback.sheetDimension(dimension);
+          }
+          break;
+        case START_ROW:
+          handler.startRow(in.readInt());
+          break;
+        case CELL:
+          String cellReference = readString(in);
+          handler.cell(cellReference, readValue(in, dictionary));
+          break;
+        case END_ROW:
+          handler.endRow();
+          break;
+        case HEADER_FOOTER:
+          String text = readString(in);
+          boolean isHeader = in.readBoolean();
+          handler.headerFooter(text, isHeader, readString(in));
+          break;
+        case END_SHEET:
+          return;
+        default:
+          throw new IOException("Unknown event '" + (char) event + "' in result cache entry");
+      }
+    }
+  }
+
+  private synchronized boolean miss() {
+    missCount++;
+    return false;
+  }
+
+  private synchronized void touch(String key, File file) {
+    load();
+    hitCount++;
+    if (null == entries.get(key)) {
+      entries.put(key, file.length());
+      size += file.length();
+    }
+    if (!file.setLastModified(System.currentTimeMillis())) {
+      log.debug("Access time of result cache entry '" + file.getName() + "' isn't updated");
+    }
+  }
+
+  private synchronized void add(String key, long length) {
+    load();
+    Long previous = entries.put(key, length);
+    size += length - (null == previous ? 0 : previous);
+    evict(key);
+  }
+
+  /**
+   * Deletes least recently used entries until the cache fits its size bound
+   * 
+   * @param keep a {@link String} object - key of an entry kept anyway (can be null)
+   */
+  private void evict(String keep) {
+    Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+    while (size > maxBytes && eldest.hasNext()) {
+      Map.Entry<String, Long> entry = eldest.next();
+      if (entry.getKey().equals(keep)) {
+        continue;
+      }
+      try {
+        Files.deleteIfExists(getFile(entry.getKey()).toPath());
+      } catch (IOException e) {
+        log.warn("Result cache entry '" + entry.getKey() + "' isn't evicted, " + e.getMessage());
+      }
+      size -= entry.getValue();
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Lists the entries of the cache directory on first use, least recently used first by their last
+   * modified time
+   */
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+
+    File[] files = directory.listFiles();
+    if (null == files) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File f1, File f2) {
+        long m1 = f1.lastModified();
+        long m2 = f2.lastModified();
+        return (m1 < m2) ? -1 : ((m1 == m2) ? 0 : 1);
+      }
+    });
+    for (File file : files) {
+      String name = file.getName();
+      if (file.isFile() && name.endsWith(SUFFIX)) {
+        entries.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+        size += file.length();
+      }
+    }
+    evict(null);
+  }
+
+  private File getFile(String key) {
+    return new File(directory, key + SUFFIX);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(DIGEST_ALGORITHM + " digest isn't available", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (null == value) {
+      out.writeInt(NULL_VALUE);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (NULL_VALUE == length) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Reads a cell value, a short repeated value is written once and then referenced by its index
+   * in a per entry dictionary, so replayed rows share one instance of it
+   */
+  private static String readValue(DataInputStream in, List<String> dictionary) throws IOException {
+    int code = in.readInt();
+    if (code >= 0) {
+      return dictionary.get(code);
+    }
+    if (NULL_VALUE == code) {
+      return null;
+    }
+
+    String value = readString(in);
+    if (NEW_VALUE == code) {
+      dictionary.add(value);
+    }
+    return value;
+  }
+
+  /**
+   * WorkSheet contents handler decorator recording the rows it forwards into a cache entry. The
+   * entry is written aside and moved in place on {@link #finish()}; a failed write stops the
+   * recording, never the read. Row rejection and {@link CharSequence} values are passed through to
+   * the handler; once a row is rejected the rest of it is never seen, so such a recording is
+   * incomplete and is not stored.
+   */
+  final class Recorder implements ExcelCellSequenceHandler, ExcelRowRejectionAware,
+      ExcelSheetDimensionCallback {
+    private final String key;
+    private final byte[] sharedDigest;
+    private final SheetContentsHandler delegate;
+    private final ExcelCellSequenceHandler sequenceDelegate;
+    private final ExcelRowRejectionAware rowRejection;
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private byte[] bytes = new byte[MAX_DICTIONARY_LENGTH * 3];
+    private DigestingInputStream sheetInputStream;
+    private File temp;
+    private DataOutputStream out;
+
+    Recorder(String key, byte[] sharedDigest, SheetContentsHandler delegate) {
+      this.key = key;
+      this.sharedDigest = sharedDigest;
+      this.delegate = delegate;
+      this.sequenceDelegate =
+          (delegate instanceof ExcelCellSequenceHandler) ? (ExcelCellSequenceHandler) delegate
+              : null;
+      this.rowRejection =
+          (delegate instanceof ExcelRowRejectionAware) ? (ExcelRowRejectionAware) delegate : null;
+      try {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+          throw new IOException("Cache directory '" + directory + "' cannot be created");
+        }
+        this.temp = File.createTempFile(key, null, directory);
+        this.out =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp),
+                BUFFER_SIZE));
+        out.write(new byte[HEADER_LENGTH]);
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    /**
+     * Wraps the sheet XML stream to digest the bytes read from it, closing the wrapper leaves the
+     * stream open
+     * 
+     * @param in a {@link InputStream} object - sheet XML
+     * @return InputStream
+     */
+    InputStream wrap(InputStream in) {
+      this.sheetInputStream = new DigestingInputStream(in);
+      return sheetInputStream;
+    }
+
+    /**
+     * Stores the recorded rows, the rest of the sheet XML not needed by the read is digested first
+     * 
+     * @throws IOException - reading the sheet XML failed
+     */
+    void finish() throws IOException {
+      sheetInputStream.drain();
+      if (null == out) {
+        return;
+      }
+
+      File file = getFile(key);
+      try {
+        out.writeByte(END_SHEET);
+        out.close();
+        out = null;
+
+        RandomAccessFile header = new RandomAccessFile(temp, "rw");
+        try {
+          header.writeInt(MAGIC);
+          header.writeInt(VERSION);
+          header.writeLong(header.length());
+          header.write(sheetInputStream.getDigest(sharedDigest));
+        } finally {
+          header.close();
+        }
+        long length = temp.length();
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        add(key, length);
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    /**
+     * Drops an unfinished recording
+     */
+    void discard() {
+      IOUtils.closeQuietly(out);
+      out = null;
+      if (null != temp && !temp.delete() && temp.exists()) {
+        log.debug("Result cache file '" + temp + "' isn't deleted");
+      }
+    }
+
+    @Override
+    public boolean isRowRejected() {
+      if (null == rowRejection || !rowRejection.isRowRejected()) {
+        return false;
+      }
+      if (null != out) {
+        log.debug("Rows are rejected while reading, result cache entry '" + key
+            + "' isn't written");
+        discard();
+      }
+      return true;
+    }
+
+    @Override
+    public void sheetDimension(ExcelSheetDimension dimension) {
+      if (null != out) {
+        try {
+          out.writeByte(DIMENSION);
+          out.writeInt(dimension.getFirstRow());
+          out.writeInt(dimension.getLastRow());
+          out.writeInt(dimension.getFirstColumn());
+          out.writeInt(dimension.getLastColumn());
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+      if (delegate instanceof ExcelSheetDimensionCallback) {
+        ((ExcelSheetDimensionCallback) delegate).sheetDimension(dimension);
+      }
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      if (null != out) {
+        try {
+          out.writeByte(START_ROW);
+          out.writeInt(rowNum);
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+      delegate.startRow(rowNum);
+    }
+
+    @Override
+    public void endRow() {
+      if (null != out) {
+        try {
+          out.writeByte(END_ROW);
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+      delegate.endRow();
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue) {
+      if (null != out) {
+        try {
+          out.writeByte(CELL);
+          writeString(out, cellReference);
+          writeValue(formattedValue);
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+      delegate.cell(cellReference, formattedValue);
+    }
+
+    @Override
+    public void cell(String cellReference, CharSequence value) {
+      if (null != out) {
+        try {
+          out.writeByte(CELL);
+          writeString(out, cellReference);
+          if (null == value || value.length() <= MAX_DICTIONARY_LENGTH) {
+            writeValue((null == value) ? null : value.toString());
+          } else {
+            out.writeInt(LITERAL_VALUE);
+            writeChars(value);
+          }
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+
+      if (null != sequenceDelegate) {
+        sequenceDelegate.cell(cellReference, value);
+      } else {
+        delegate.cell(cellReference, (null == value) ? null : value.toString());
+      }
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {
+      if (null != out) {
+        try {
+          out.writeByte(HEADER_FOOTER);
+          writeString(out, text);
+          out.writeBoolean(isHeader);
+          writeString(out, tagName);
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+      delegate.headerFooter(text, isHeader, tagName);
+    }
+
+    private void writeValue(String value) throws IOException {
+      if (null == value) {
+        out.writeInt(NULL_VALUE);
+        return;
+      }
+
+      Integer index = dictionary.get(value);
+      if (null != index) {
+        out.writeInt(index);
+      } else if (value.length() <= MAX_DICTIONARY_LENGTH
+          && dictionary.size() < MAX_DICTIONARY_SIZE) {
+        dictionary.put(value, dictionary.size());
+        out.writeInt(NEW_VALUE);
+        writeString(out, value);
+      } else {
+        out.writeInt(LITERAL_VALUE);
+        writeString(out, value);
+      }
+    }
+
+    /**
+     * Writes a long value as UTF-8 straight from the view, same bytes as
+     * {@link String#getBytes(Charset)} gives
+     */
+    private void writeChars(CharSequence value) throws IOException {
+      int length = value.length();
+      if (bytes.length < length * 3) {
+        bytes = new byte[length * 3];
+      }
+
+      int n = 0;
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          bytes[n++] = (byte) c;
+        } else if (c < 0x800) {
+          bytes[n++] = (byte) (0xC0 | (c >> 6));
+          bytes[n++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          bytes[n++] = (byte) (0xF0 | (codePoint >> 18));
+          bytes[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          bytes[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          bytes[n++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          // unpaired surrogate, replaced as String.getBytes does
+          bytes[n++] = '?';
+        } else {
+          bytes[n++] = (byte) (0xE0 | (c >> 12));
+          bytes[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          bytes[n++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+      out.writeInt(n);
+      out.write(bytes, 0, n);
+    }
+
+    private void fail(IOException e) {
+      log.warn("Result cache entry '" + key + "' isn't written, " + e.getMessage());
+      discard();
+    }
+  }
+
+  /**
+   * Digests the bytes read from a sheet XML stream, closing it leaves the underlying stream open
+   * for the caller
+   */
+  private static final class DigestingInputStream extends FilterInputStream {
+    private final MessageDigest digest = newDigest();
+
+    DigestingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        digest.update((byte) b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        digest.update(b, off, n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+      int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+      // underlying stream is closed by the caller
+    }
+
+    void drain() throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (read(buffer, 0, buffer.length) >= 0) {
+        // digested while read
+      }
+    }
+
+    /**
+     * Returns the digest of the sheet XML read so far combined with the shared parts digest
+     */
+    byte[] getDigest(byte[] sharedDigest) {
+      MessageDigest combined = newDigest();
+      combined.update(digest.digest());
+      combined.update(sharedDigest);
+      return combined.digest();
+    }
+  }
+}
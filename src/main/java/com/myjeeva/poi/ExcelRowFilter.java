@@ -0,0 +1,112 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Row filter evaluated on the raw cell values of selected columns as they arrive. A row is kept
+ * only if every predicate accepts its column value, a missing or blank cell is tested with null.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong> Keep only active persons<br>
+ * <code>workSheetHandler.setRowFilter(new ExcelRowFilter().whereEquals("G", "ACTIVE"));</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelRowFilter {
+
+  private final List<String> columns = new ArrayList<String>();
+  private final List<ExcelCellPredicate> predicates = new ArrayList<ExcelCellPredicate>();
+
+  /**
+   * Adds a predicate for given column
+   * 
+   * @param column a {@link String} object - column reference, e.g. "A"
+   * @param predicate a {@link ExcelCellPredicate} object
+   * @return ExcelRowFilter - this filter
+   */
+  public ExcelRowFilter where(String column, ExcelCellPredicate predicate) {
+    if (StringUtils.isBlank(column) || null == predicate) {
+      throw new IllegalArgumentException("Column and predicate are required");
+    }
+    if (columns.contains(column)) {
+      throw new IllegalArgumentException("Column '" + column + "' already has a predicate");
+    }
+
+    columns.add(column);
+    predicates.add(predicate);
+    return this;
+  }
+
+  /**
+   * Adds a predicate accepting rows whose column value equals to given value
+   * 
+   * @param column a {@link String} object - column reference, e.g. "A"
+   * @param expected a {@link String} object
+   * @return ExcelRowFilter - this filter
+   */
+  public ExcelRowFilter whereEquals(String column, final String expected) {
+    return where(column, new ExcelCellPredicate() {
+      @Override
+      public boolean test(String value) {
+        return StringUtils.equals(expected, value);
+      }
+    });
+  }
+
+  /**
+   * Returns number of predicates
+   * 
+   * @return int
+   */
+  public int size() {
+    return columns.size();
+  }
+
+  /**
+   * Returns predicate position of given column, -1 if the column has no predicate
+   * 
+   * @param column a {@link String} object
+   * @return int
+   */
+  public int indexOf(String column) {
+    return columns.indexOf(column);
+  }
+
+  /**
+   * Evaluates predicate at given position
+   * 
+   * @param index a <code>int</code> - predicate position
+   * @param value a {@link String} object - cell value, null if missing
+   * @return boolean
+   */
+  public boolean test(int index, String value) {
+    return predicates.get(index).test(value);
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+/**
+ * Used range of a WorkSheet as declared by its dimension element (e.g. A1:F1500), zero based and
+ * inclusive. It is a hint written by the producing application: rows and cells may still fall
+ * outside of it, so it is only meant to presize buffers.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelSheetDimension {
+
+  /**
+   * Number of rows of an Excel WorkSheet grid
+   */
+  public static final int MAX_ROWS = 1048576;
+
+  /**
+   * Number of columns of an Excel WorkSheet grid
+   */
+  public static final int MAX_COLUMNS = 16384;
+
+  private final int firstRow;
+  private final int lastRow;
+  private final int firstColumn;
+  private final int lastColumn;
+
+  /**
+   * Constructor
+   * 
+   * @param firstRow a <code>int</code> - zero based first row
+   * @param lastRow a <code>int</code> - zero based last row
+   * @param firstColumn a <code>int</code> - zero based first column
+   * @param lastColumn a <code>int</code> - zero based last column
+   */
+  public ExcelSheetDimension(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+    if (firstRow < 0 || lastRow < firstRow || lastRow >= MAX_ROWS || firstColumn < 0
+        || lastColumn < firstColumn || lastColumn >= MAX_COLUMNS) {
+      throw new IllegalArgumentException("Invalid sheet dimension: rows " + firstRow + "-"
+          + lastRow + ", columns " + firstColumn + "-" + lastColumn);
+    }
+
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+    this.firstColumn = firstColumn;
+    this.lastColumn = lastColumn;
+  }
+
+  /**
+   * Parses a dimension reference like A1:F1500 or A1, null if it is missing or bogus
+   * 
+   * @param ref a {@link String} object - value of the dimension 'ref' attribute
+   * @return ExcelSheetDimension
+   */
+  static ExcelSheetDimension parse(String ref) {
+    if (null == ref) {
+      return null;
+    }
+
+    int colon = ref.indexOf(':');
+    String first = (colon < 0) ? ref : ref.substring(0, colon);
+    String last = (colon < 0) ? ref : ref.substring(colon + 1);
+    int firstRow = ExcelCellReferences.getRowIndex(first);
+    int lastRow = ExcelCellReferences.getRowIndex(last);
+    int firstColumn = ExcelCellReferences.getColumnIndex(first);
+    int lastColumn = ExcelCellReferences.getColumnIndex(last);
+    if (firstRow < 0 || lastRow < firstRow || lastRow >= MAX_ROWS || firstColumn < 0
+        || lastColumn < firstColumn || lastColumn >= MAX_COLUMNS) {
+      return null;
+    }
+    return new ExcelSheetDimension(firstRow, lastRow, firstColumn, lastColumn);
+  }
+
+  /**
+   * Returns the zero based first row
+   * 
+   * @return int
+   */
+  public int getFirstRow() {
+    return firstRow;
+  }
+
+  /**
+   * Returns the zero based last row
+   * 
+   * @return int
+   */
+  public int getLastRow() {
+    return lastRow;
+  }
+
+  /**
+   * Returns the zero based first column
+   * 
+   * @return int
+   */
+  public int getFirstColumn() {
+    return firstColumn;
+  }
+
+  /**
+   * Returns the zero based last column
+   * 
+   * @return int
+   */
+  public int getLastColumn() {
+    return lastColumn;
+  }
+
+  /**
+   * Returns number of declared rows
+   * 
+   * @return int
+   */
+  public int getRowCount() {
+    return lastRow - firstRow + 1;
+  }
+
+  /**
+   * Returns number of declared columns
+   * 
+   * @return int
+   */
+  public int getColumnCount() {
+    return lastColumn - firstColumn + 1;
+  }
+
+  /**
+   * Returns number of declared rows from given zero based row on, to presize row buffers. Zero when
+   * the range reaches the last row of the grid, some applications declare whole columns as used.
+   * 
+   * @param fromRow a <code>int</code> - zero based row, e.g. first data row after the header
+   * @return int
+   */
+  public int getRowCapacity(int fromRow) {
+    if (MAX_ROWS - 1 == lastRow) {
+      return 0;
+    }
+    return Math.max(0, lastRow - Math.max(firstRow, fromRow) + 1);
+  }
+
+  /**
+   * Returns number of column slots (last column + 1) to presize per column buffers. Zero when the
+   * range reaches the last column of the grid, some applications declare whole rows as used.
+   * 
+   * @return int
+   */
+  public int getColumnCapacity() {
+    if (MAX_COLUMNS - 1 == lastColumn) {
+      return 0;
+    }
+    return lastColumn + 1;
+  }
+
+  /**
+   * Returns this dimension narrowed to given rows, e.g. to the page of rows being read; null if none
+   * of them is declared
+   * 
+   * @param fromRow a <code>int</code> - zero based first row
+   * @param toRow a <code>int</code> - zero based last row
+   * @return ExcelSheetDimension
+   */
+  ExcelSheetDimension narrowRows(int fromRow, int toRow) {
+    int first = Math.max(firstRow, fromRow);
+    int last = Math.min(lastRow, toRow);
+    if (last < first) {
+      return null;
+    }
+    if (first == firstRow && last == lastRow) {
+      return this;
+    }
+    return new ExcelSheetDimension(first, last, firstColumn, lastColumn);
+  }
+
+  @Override
+  public String toString() {
+    return "ExcelSheetDimension [firstRow=" + firstRow + ", lastRow=" + lastRow
+        + ", firstColumn=" + firstColumn + ", lastColumn=" + lastColumn + "]";
+  }
+}
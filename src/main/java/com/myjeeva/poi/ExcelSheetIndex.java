@@ -0,0 +1,441 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.apache.poi.util.IOUtils;
+
+/**
+ * Sidecar row index of a WorkSheet, kept in an index directory next to a cached inflated copy of
+ * the sheet XML. The start offset of every {@value #ROW_INTERVAL}th row is recorded, so a read
+ * from any row seeks into the cached XML and tokenizes at most {@value #ROW_INTERVAL} rows ahead
+ * of it instead of inflating and parsing the sheet from the start.
+ * 
+ * <p>
+ * The index is bound to the size and last modified time of the source XLSX file, it is no longer
+ * current once either changes.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+final class ExcelSheetIndex {
+
+  private static final int MAGIC = 0x58524958;
+
+  private static final int VERSION = 1;
+
+  private static final int ROW_INTERVAL = 64;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String XML_SUFFIX = ".xml";
+
+  private static final String INDEX_SUFFIX = ".idx";
+
+  private final File source;
+  private final File xmlFile;
+  private final long sourceLength;
+  private final long sourceModified;
+  private final long xmlLength;
+  private final int[] rowNums;
+  private final long[] offsets;
+  private final int size;
+
+  private ExcelSheetIndex(File source, File xmlFile, long sourceLength, long sourceModified,
+      long xmlLength, int[] rowNums, long[] offsets, int size) {
+    this.source = source;
+    this.xmlFile = xmlFile;
+    this.sourceLength = sourceLength;
+    this.sourceModified = sourceModified;
+    this.xmlLength = xmlLength;
+    this.rowNums = rowNums;
+    this.offsets = offsets;
+    this.size = size;
+  }
+
+  /**
+   * Loads the index of a sheet from the index directory
+   * 
+   * @param directory a {@link File} object - index directory
+   * @param source a {@link File} object - source XLSX file
+   * @param sheetIndex a <code>int</code> - zero based index of the sheet
+   * @return ExcelSheetIndex - null if there is none or it is no longer current
+   * @throws IOException
+   */
+  static ExcelSheetIndex load(File directory, File source, int sheetIndex) throws IOException {
+    File indexFile = getFile(directory, source, sheetIndex, INDEX_SUFFIX);
+    File xmlFile = getFile(directory, source, sheetIndex, XML_SUFFIX);
+    if (!indexFile.isFile() || !xmlFile.isFile()) {
+      return null;
+    }
+
+    DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), BUFFER_SIZE));
+    try {
+      if (MAGIC != in.readInt() || VERSION != in.readInt()
+          || !source.getCanonicalPath().equals(in.readUTF())) {
+        return null;
+      }
+      long sourceLength = in.readLong();
+      long sourceModified = in.readLong();
+      long xmlLength = in.readLong();
+      int size = in.readInt();
+      int[] rowNums = new int[size];
+      long[] offsets = new long[size];
+      for (int i = 0; i < size; i++) {
+        rowNums[i] = in.readInt();
+        offsets[i] = in.readLong();
+      }
+
+      ExcelSheetIndex index =
+          new ExcelSheetIndex(source, xmlFile, sourceLength, sourceModified, xmlLength, rowNums,
+              offsets, size);
+      return index.isCurrent() ? index : null;
+    } catch (EOFException e) {
+      // truncated index, built again
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Builds the index of a sheet, inflating the sheet XML once into the index directory. Files are
+   * written aside and moved in place, so a concurrent reader never sees half an index.
+   * 
+   * @param directory a {@link File} object - index directory, created if missing
+   * @param source a {@link File} object - source XLSX file
+   * @param sheetIndex a <code>int</code> - zero based index of the sheet
+   * @param sheetInputStream a {@link InputStream} object - sheet XML of the source file
+   * @return ExcelSheetIndex
+   * @throws IOException
+   */
+  static ExcelSheetIndex build(File directory, File source, int sheetIndex,
+      InputStream sheetInputStream) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Index directory '" + directory + "' cannot be created");
+    }
+    long sourceLength = source.length();
+    long sourceModified = source.lastModified();
+    File indexFile = getFile(directory, source, sheetIndex, INDEX_SUFFIX);
+    File xmlFile = getFile(directory, source, sheetIndex, XML_SUFFIX);
+
+    File xmlTemp = File.createTempFile(xmlFile.getName(), null, directory);
+    File indexTemp = File.createTempFile(indexFile.getName(), null, directory);
+    try {
+      RowScanner scanner = new RowScanner();
+      OutputStream out = new FileOutputStream(xmlTemp);
+      try {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = sheetInputStream.read(buffer)) > 0) {
+          out.write(buffer, 0, n);
+          scanner.scan(buffer, n);
+        }
+      } finally {
+        out.close();
+      }
+
+      ExcelSheetIndex index =
+          new ExcelSheetIndex(source, xmlFile, sourceLength, sourceModified, xmlTemp.length(),
+              scanner.rowNums, scanner.offsets, scanner.getSize());
+      index.write(indexTemp);
+
+      Files.deleteIfExists(indexFile.toPath());
+      Files.move(xmlTemp.toPath(), xmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Files.move(indexTemp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return index;
+    } finally {
+      Files.deleteIfExists(xmlTemp.toPath());
+      Files.deleteIfExists(indexTemp.toPath());
+    }
+  }
+
+  /**
+   * Returns true while the source file and the cached sheet XML are unchanged since indexing
+   * 
+   * @return boolean
+   */
+  boolean isCurrent() {
+    return source.length() == sourceLength && source.lastModified() == sourceModified
+        && xmlFile.length() == xmlLength;
+  }
+
+  /**
+   * Opens the cached sheet XML positioned at the indexed row at or before the given row. The stream
+   * is still a complete sheet document: the part ahead of the first row and the first
+   * {@value #ROW_INTERVAL} rows (with the header row) are kept in front of the seek position.
+   * 
+   * @param fromRow a <code>int</code> - zero based row number
+   * @return InputStream
+   * @throws IOException
+   */
+  InputStream openRows(int fromRow) throws IOException {
+    int entry = Arrays.binarySearch(rowNums, 0, size, fromRow);
+    if (entry < 0) {
+      entry = -entry - 2;
+    }
+
+    if (entry <= 1) {
+      return new FileInputStream(xmlFile);
+    }
+    return new SequenceInputStream(openSegment(0, offsets[1]), openSegment(offsets[entry],
+        xmlLength));
+  }
+
+  private InputStream openSegment(long start, long end) throws IOException {
+    FileInputStream in = new FileInputStream(xmlFile);
+    in.getChannel().position(start);
+    return new SegmentInputStream(in, end - start);
+  }
+
+  private void write(File indexFile) throws IOException {
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile),
+            BUFFER_SIZE));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(source.getCanonicalPath());
+      out.writeLong(sourceLength);
+      out.writeLong(sourceModified);
+      out.writeLong(xmlLength);
+      out.writeInt(size);
+      for (int i = 0; i < size; i++) {
+        out.writeInt(rowNums[i]);
+        out.writeLong(offsets[i]);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static File getFile(File directory, File source, int sheetIndex, String suffix)
+      throws IOException {
+    String path = source.getCanonicalPath();
+    return new File(directory, source.getName() + "." + Integer.toHexString(path.hashCode())
+        + ".sheet" + sheetIndex + suffix);
+  }
+
+  /**
+   * Finds the row start tags in the raw sheet XML bytes, recording the row number and offset of
+   * every {@value #ROW_INTERVAL}th row. Rows without a reference are numbered in sequence; once one
+   * is seen only the first row is kept, since rows after a seek could no longer be numbered.
+   */
+  private static final class RowScanner {
+    private static final int TEXT = 0;
+    private static final int NAME = 1;
+    private static final int ATTRIBUTES = 2;
+    private static final int VALUE = 3;
+    private static final int REF_VALUE = 4;
+
+    private static final byte[] ROW = { 'r', 'o', 'w' };
+
+    private int[] rowNums = new int[ROW_INTERVAL];
+    private long[] offsets = new long[ROW_INTERVAL];
+    private int size;
+    private long position;
+    private int state = TEXT;
+    private long tagStart;
+    private int nameLength;
+    private boolean rowName;
+    private int attributeLength;
+    private byte attributeStart;
+    private boolean attributeEnded;
+    private boolean refAttribute;
+    private byte quote;
+    private int ref;
+    private long rowCount;
+    private int lastRowNum = -1;
+    private boolean refsMissing;
+
+    int getSize() {
+      return refsMissing ? Math.min(size, 1) : size;
+    }
+
+    void scan(byte[] bytes, int length) {
+      for (int i = 0; i < length; i++, position++) {
+        byte c = bytes[i];
+        switch (state) {
+          case TEXT:
+            if ('<' == c) {
+              state = NAME;
+              tagStart = position;
+              nameLength = 0;
+              rowName = true;
+            }
+            break;
+          case NAME:
+            if (':' == c) {
+              // prefixed element, name starts after the prefix
+              nameLength = 0;
+              rowName = true;
+            } else if ('>' == c || '/' == c || isWhitespace(c)) {
+              if (rowName && ROW.length == nameLength) {
+                ref = -1;
+                attributeLength = 0;
+                attributeEnded = false;
+                refAttribute = false;
+                state = ATTRIBUTES;
+                if ('>' == c) {
+                  this.endRow();
+                }
+              } else {
+                state = TEXT;
+              }
+            } else {
+              rowName = rowName && nameLength < ROW.length && ROW[nameLength] == c;
+              nameLength++;
+            }
+            break;
+          case ATTRIBUTES:
+            if ('>' == c) {
+              this.endRow();
+            } else if ('"' == c || '\'' == c) {
+              quote = c;
+              state = refAttribute ? REF_VALUE : VALUE;
+              if (refAttribute) {
+                ref = 0;
+              }
+            } else if ('=' == c) {
+              refAttribute = 1 == attributeLength && 'r' == attributeStart;
+            } else if (isWhitespace(c)) {
+              attributeEnded = true;
+            } else if ('/' != c) {
+              if (attributeEnded || 0 == attributeLength) {
+                attributeStart = c;
+                attributeLength = 0;
+                attributeEnded = false;
+              }
+              attributeLength++;
+            }
+            break;
+          case VALUE:
+          case REF_VALUE:
+            if (quote == c) {
+              state = ATTRIBUTES;
+              attributeLength = 0;
+              refAttribute = false;
+            } else if (REF_VALUE == state && c >= '0' && c <= '9') {
+              ref = ref * 10 + (c - '0');
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    }
+
+    private void endRow() {
+      int rowNum;
+      if (ref > 0) {
+        rowNum = ref - 1;
+      } else {
+        rowNum = lastRowNum + 1;
+        refsMissing = true;
+      }
+
+      if (0 == rowCount % ROW_INTERVAL) {
+        if (size == rowNums.length) {
+          rowNums = Arrays.copyOf(rowNums, size * 2);
+          offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        rowNums[size] = rowNum;
+        offsets[size] = tagStart;
+        size++;
+      }
+      rowCount++;
+      lastRowNum = rowNum;
+      state = TEXT;
+    }
+
+    private static boolean isWhitespace(byte c) {
+      return ' ' == c || '\t' == c || '\r' == c || '\n' == c;
+    }
+  }
+
+  /**
+   * Reads a segment of the cached sheet XML, up to a byte count
+   */
+  private static final class SegmentInputStream extends FilterInputStream {
+    private long remaining;
+
+    SegmentInputStream(InputStream in, long length) {
+      super(in);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = super.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int n = super.read(b, off, (int) Math.min(len, remaining));
+      if (n > 0) {
+        remaining -= n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(Math.min(n, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(super.available(), remaining);
+    }
+  }
+}
@@ -0,0 +1,362 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Annotation processor generating a specialized WorkSheet contents handler for each
+ * {@link ExcelSheet} ValueObject. Generated handler binds cells with a switch on the column index
+ * and typed parsing through the setters, no reflection and no cell mapping lookups. It is
+ * registered as a service, so it runs when this library is on the compile classpath.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+@SupportedAnnotationTypes("com.myjeeva.poi.ExcelSheet")
+public class ExcelSheetProcessor extends AbstractProcessor {
+
+  private static final String HANDLER_SUFFIX = "SheetHandler";
+
+  private static final Map<String, String> PARSERS = new HashMap<String, String>();
+
+  static {
+    PARSERS.put("java.lang.String", "%s");
+    PARSERS.put("int", "Integer.parseInt(%s.trim())");
+    PARSERS.put("java.lang.Integer", "Integer.valueOf(%s.trim())");
+    PARSERS.put("long", "Long.parseLong(%s.trim())");
+    PARSERS.put("java.lang.Long", "Long.valueOf(%s.trim())");
+    PARSERS.put("short", "Short.parseShort(%s.trim())");
+    PARSERS.put("java.lang.Short", "Short.valueOf(%s.trim())");
+    PARSERS.put("byte", "Byte.parseByte(%s.trim())");
+    PARSERS.put("java.lang.Byte", "Byte.valueOf(%s.trim())");
+    PARSERS.put("double", "Double.parseDouble(%s.trim())");
+    PARSERS.put("java.lang.Double", "Double.valueOf(%s.trim())");
+    PARSERS.put("float", "Float.parseFloat(%s.trim())");
+    PARSERS.put("java.lang.Float", "Float.valueOf(%s.trim())");
+    PARSERS.put("boolean", "Boolean.parseBoolean(%s.trim())");
+    PARSERS.put("java.lang.Boolean", "Boolean.valueOf(%s.trim())");
+    PARSERS.put("java.math.BigDecimal", "new java.math.BigDecimal(%s.trim())");
+    PARSERS.put("java.math.BigInteger", "new java.math.BigInteger(%s.trim())");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(ExcelSheet.class)) {
+      if (ElementKind.CLASS != element.getKind()) {
+        error(element, "@ExcelSheet is applicable to classes only");
+        continue;
+      }
+
+      TypeElement type = (TypeElement) element;
+      List<Column> columns = getColumns(type);
+      if (null != columns) {
+        generateHandler(type, columns);
+      }
+    }
+    return true;
+  }
+
+  private List<Column> getColumns(TypeElement type) {
+    boolean valid = hasPublicNoArgConstructor(type);
+    if (!valid) {
+      error(type, "@ExcelSheet class requires a public no-arg constructor");
+    }
+
+    List<ExecutableElement> methods =
+        ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+    List<Column> columns = new ArrayList<Column>();
+    for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+      ExcelColumn excelColumn = field.getAnnotation(ExcelColumn.class);
+      if (null == excelColumn) {
+        continue;
+      }
+
+      String name = field.getSimpleName().toString();
+      String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      ExecutableElement method = findSetter(methods, setter);
+      if (null == method) {
+        error(field, "@ExcelColumn field requires a public setter " + setter);
+        valid = false;
+        continue;
+      }
+
+      String parameterType = method.getParameters().get(0).asType().toString();
+      String parser = PARSERS.get(parameterType);
+      if (null == parser) {
+        error(field, "@ExcelColumn setter parameter type " + parameterType + " is not supported");
+        valid = false;
+        continue;
+      }
+
+      if (!excelColumn.column().matches("[A-Z]{1,3}")) {
+        error(field, "@ExcelColumn column '" + excelColumn.column() + "' is not a column reference");
+        valid = false;
+        continue;
+      }
+
+      int index = CellReference.convertColStringToIndex(excelColumn.column());
+      for (Column column : columns) {
+        if (column.index == index) {
+          error(field, "@ExcelColumn column '" + excelColumn.column() + "' is mapped twice");
+          valid = false;
+        }
+      }
+      columns.add(new Column(index, excelColumn.header(), setter, String.format(parser, "value")));
+    }
+
+    Collections.sort(columns, new Comparator<Column>() {
+      @Override
+      public int compare(Column c1, Column c2) {
+        return c1.index - c2.index;
+      }
+    });
+    return valid ? columns : null;
+  }
+
+  private void generateHandler(TypeElement type, List<Column> columns) {
+    PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+    String packageName = pkg.getQualifiedName().toString();
+    String typeName = type.getSimpleName().toString();
+    String handlerName = typeName + HANDLER_SUFFIX;
+
+    int headerCount = 0;
+    for (Column column : columns) {
+      if (!column.header.isEmpty()) {
+        headerCount++;
+      }
+    }
+
+    StringBuilder src = new StringBuilder();
+    if (!pkg.isUnnamed()) {
+      src.append("package ").append(packageName).append(";\n\n");
+    }
+    src.append("import java.util.ArrayList;\n");
+    src.append("import java.util.List;\n\n");
+    src.append("import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;\n\n");
+    src.append("import com.myjeeva.poi.ExcelSheetDimension;\n");
+    src.append("import com.myjeeva.poi.ExcelSheetDimensionCallback;\n\n");
+    src.append("/**\n");
+    src.append(" * WorkSheet contents handler for {@link ").append(typeName).append("}, generated by ")
+        .append(ExcelSheetProcessor.class.getName()).append(". Do not edit.\n");
+    src.append(" */\n");
+    src.append("public class ").append(handlerName)
+        .append(" implements SheetContentsHandler, ExcelSheetDimensionCallback {\n\n");
+    src.append("  private static final int HEADER_ROW = 0;\n");
+    src.append("  private static final int HEADER_COUNT = ").append(headerCount).append(";\n\n");
+    src.append("  private final ArrayList<").append(typeName).append("> valueList = new ArrayList<")
+        .append(typeName).append(">();\n");
+    src.append("  private boolean verifiyHeader = true;\n");
+    src.append("  private int currentRow;\n");
+    src.append("  private int headerMatches;\n");
+    src.append("  private ").append(typeName).append(" objCurrentRow;\n\n");
+
+    src.append("  public List<").append(typeName).append("> getValueList() {\n");
+    src.append("    return valueList;\n");
+    src.append("  }\n\n");
+    src.append("  public boolean isVerifiyHeader() {\n");
+    src.append("    return verifiyHeader;\n");
+    src.append("  }\n\n");
+    src.append("  public void setVerifiyHeader(boolean verifiyHeader) {\n");
+    src.append("    this.verifiyHeader = verifiyHeader;\n");
+    src.append("  }\n\n");
+
+    src.append("  @Override\n");
+    src.append("  public void sheetDimension(ExcelSheetDimension dimension) {\n");
+    src.append("    valueList.ensureCapacity(valueList.size() + dimension.getRowCapacity(HEADER_ROW + 1));\n");
+    src.append("  }\n\n");
+
+    src.append("  @Override\n");
+    src.append("  public void startRow(int rowNum) {\n");
+    src.append("    this.currentRow = rowNum;\n");
+    src.append("    this.headerMatches = 0;\n");
+    src.append("    this.objCurrentRow = null;\n");
+    src.append("  }\n\n");
+
+    src.append("  @Override\n");
+    src.append("  public void cell(String cellReference, String value) {\n");
+    src.append("    if (null == value || value.trim().isEmpty()) {\n");
+    src.append("      return;\n");
+    src.append("    }\n\n");
+    src.append("    int column = getColumnIndex(cellReference);\n");
+    src.append("    if (HEADER_ROW == currentRow) {\n");
+    src.append("      if (verifiyHeader && isHeader(column, value)) {\n");
+    src.append("        headerMatches++;\n");
+    src.append("      }\n");
+    src.append("      return;\n");
+    src.append("    }\n\n");
+    src.append("    try {\n");
+    src.append("      switch (column) {\n");
+    for (Column column : columns) {
+      src.append("        case ").append(column.index).append(":\n");
+      src.append("          current().").append(column.setter).append("(").append(column.parser)
+          .append(");\n");
+      src.append("          break;\n");
+    }
+    src.append("        default:\n");
+    src.append("          break;\n");
+    src.append("      }\n");
+    src.append("    } catch (NumberFormatException e) {\n");
+    src.append("      throw new IllegalArgumentException(\"Cell \" + cellReference + \" value '\" + value\n");
+    src.append("          + \"' doesn't match its field type\", e);\n");
+    src.append("    }\n");
+    src.append("  }\n\n");
+
+    src.append("  @Override\n");
+    src.append("  public void endRow() {\n");
+    src.append("    if (HEADER_ROW == currentRow) {\n");
+    src.append("      if (verifiyHeader && HEADER_COUNT != headerMatches) {\n");
+    src.append("        throw new RuntimeException(\"Header values doesn't match, so invalid Excel file!\");\n");
+    src.append("      }\n");
+    src.append("    } else if (null != objCurrentRow) {\n");
+    src.append("      valueList.add(objCurrentRow);\n");
+    src.append("    }\n");
+    src.append("  }\n\n");
+
+    src.append("  @Override\n");
+    src.append("  public void headerFooter(String text, boolean isHeader, String tagName) {\n");
+    src.append("    // currently not consider for implementation\n");
+    src.append("  }\n\n");
+
+    src.append("  private ").append(typeName).append(" current() {\n");
+    src.append("    if (null == objCurrentRow) {\n");
+    src.append("      objCurrentRow = new ").append(typeName).append("();\n");
+    src.append("    }\n");
+    src.append("    return objCurrentRow;\n");
+    src.append("  }\n\n");
+
+    src.append("  private static boolean isHeader(int column, String value) {\n");
+    src.append("    switch (column) {\n");
+    for (Column column : columns) {
+      if (!column.header.isEmpty()) {
+        src.append("      case ").append(column.index).append(":\n");
+        src.append("        return \"").append(escape(column.header))
+            .append("\".equals(value.trim());\n");
+      }
+    }
+    src.append("      default:\n");
+    src.append("        return false;\n");
+    src.append("    }\n");
+    src.append("  }\n\n");
+
+    src.append("  private static int getColumnIndex(String cellReference) {\n");
+    src.append("    int column = 0;\n");
+    src.append("    for (int i = 0; i < cellReference.length(); i++) {\n");
+    src.append("      char c = cellReference.charAt(i);\n");
+    src.append("      if (c < 'A' || c > 'Z') {\n");
+    src.append("        break;\n");
+    src.append("      }\n");
+    src.append("      column = column * 26 + (c - 'A' + 1);\n");
+    src.append("    }\n");
+    src.append("    return column - 1;\n");
+    src.append("  }\n");
+    src.append("}\n");
+
+    String qualifiedName = pkg.isUnnamed() ? handlerName : packageName + "." + handlerName;
+    try {
+      Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+      try {
+        writer.write(src.toString());
+      } finally {
+        writer.close();
+      }
+    } catch (IOException ioe) {
+      error(type, "Unable to generate " + qualifiedName + ": " + ioe.getMessage());
+    }
+  }
+
+  private boolean hasPublicNoArgConstructor(TypeElement type) {
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty()
+          && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ExecutableElement findSetter(List<ExecutableElement> methods, String name) {
+    for (ExecutableElement method : methods) {
+      if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1
+          && method.getModifiers().contains(Modifier.PUBLIC)
+          && !method.getModifiers().contains(Modifier.STATIC)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  /**
+   * Resolved column of the ValueObject
+   */
+  private static class Column {
+    private final int index;
+    private final String header;
+    private final String setter;
+    private final String parser;
+
+    Column(int index, String header, String setter, String parser) {
+      this.index = index;
+      this.header = header;
+      this.setter = setter;
+      this.parser = parser;
+    }
+  }
+}
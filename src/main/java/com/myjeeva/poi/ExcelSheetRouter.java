@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * Routes WorkSheets to their own contents handler, by zero based sheet index or by sheet name. Used
+ * with {@link ExcelReader#process(ExcelSheetRouter)} to read several sheets with different handlers
+ * in a single pass over the package. Sheets without a route are not parsed.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>excelReader.process(new ExcelSheetRouter().route(0, personHandler).route("Lot 3 Data", rowCallbackHandler));</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelSheetRouter {
+
+  private final Map<Integer, SheetContentsHandler> indexRoutes =
+      new HashMap<Integer, SheetContentsHandler>();
+  private final Map<String, SheetContentsHandler> nameRoutes =
+      new HashMap<String, SheetContentsHandler>();
+
+  /**
+   * Routes sheet at given index to the handler
+   * 
+   * @param sheetIndex a <code>int</code> - zero based sheet index
+   * @param handler a {@link SheetContentsHandler} object
+   * @return ExcelSheetRouter - this router
+   */
+  public ExcelSheetRouter route(int sheetIndex, SheetContentsHandler handler) {
+    if (sheetIndex < 0 || null == handler) {
+      throw new IllegalArgumentException("Sheet index and handler are required");
+    }
+
+    indexRoutes.put(sheetIndex, handler);
+    return this;
+  }
+
+  /**
+   * Routes sheet with given name to the handler
+   * 
+   * @param sheetName a {@link String} object
+   * @param handler a {@link SheetContentsHandler} object
+   * @return ExcelSheetRouter - this router
+   */
+  public ExcelSheetRouter route(String sheetName, SheetContentsHandler handler) {
+    if (StringUtils.isEmpty(sheetName) || null == handler) {
+      throw new IllegalArgumentException("Sheet name and handler are required");
+    }
+
+    nameRoutes.put(sheetName, handler);
+    return this;
+  }
+
+  /**
+   * Returns the handler of given sheet, index routes take precedence over name routes. Null if the
+   * sheet has no route.
+   * 
+   * @param sheetIndex a <code>int</code> - zero based sheet index
+   * @param sheetName a {@link String} object
+   * @return SheetContentsHandler
+   */
+  public SheetContentsHandler getHandler(int sheetIndex, String sheetName) {
+    SheetContentsHandler handler = indexRoutes.get(sheetIndex);
+    if (null == handler) {
+      handler = nameRoutes.get(sheetName);
+    }
+    return handler;
+  }
+}
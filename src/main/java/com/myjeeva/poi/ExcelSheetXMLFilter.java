@@ -0,0 +1,391 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.List;
+
+import org.apache.poi.ss.util.CellReference;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Tokenizer level filter in front of the WorkSheet XML handler. Rows before the requested first row
+ * are dropped as raw SAX events, so they are never formatted nor delivered to the
+ * {@link org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler}. The header
+ * row (row zero) is always passed through, handlers rely on it for column mapping. Cells of a row
+ * rejected by an {@link ExcelRowRejectionAware} handler are dropped the same way, once the handler
+ * has seen the start of that row. Parsing stops at the first row past the requested last row. The
+ * sheet dimension is narrowed to the requested rows, so handlers presize for them only.
+ * 
+ * <p>
+ * When reading a cell range (Excel Table or defined name) only rows and cells inside the range are
+ * passed through, and parsing stops after its last row. Row and cell references are rebased so the
+ * range starts at A1 with its header row as row zero; for a table the header row is made of the
+ * table column names. The sheet dimension is narrowed to the range the same way.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+class ExcelSheetXMLFilter extends XMLFilterImpl {
+
+  private static final int HEADER_ROW = 0;
+
+  private static final String ROW_ELEMENT = "row";
+
+  private static final String CELL_ELEMENT = "c";
+
+  private static final String VALUE_ELEMENT = "v";
+
+  private static final String DIMENSION_ELEMENT = "dimension";
+
+  private static final String SHEET_DATA_ELEMENT = "sheetData";
+
+  private static final String REF_ATTRIBUTE = "r";
+
+  private final ExcelSheetXMLHandler sheetHandler;
+  private final int firstRow;
+  private int lastRow = Integer.MAX_VALUE;
+  private final ExcelRowRejectionAware rowRejection;
+  private final ExcelCellRange range;
+  private final int rowOffset;
+  private boolean headerPending;
+  private boolean skipDimension;
+  private int rebasedRow;
+  private final AttributesImpl rebased = new AttributesImpl();
+  private int currentRow = -1;
+  private int lastCompletedRow = -1;
+  private boolean skipRow;
+  private boolean skipCell;
+  private boolean trackSharedStrings;
+  private boolean sharedStringCell;
+  private boolean sharedStringValue;
+  private int sharedStringIndex = -1;
+
+  /**
+   * Constructor
+   * 
+   * @param handler a {@link ExcelSheetXMLHandler} object - WorkSheet XML handler to feed
+   * @param firstRow a <code>int</code> - zero based row number to start delivering rows from
+   * @param rowRejection a {@link ExcelRowRejectionAware} object - consulted before each cell (can
+   *        be null)
+   * @param range a {@link ExcelCellRange} object - cell range to read, first row is then ignored
+   *        (can be null)
+   */
+  ExcelSheetXMLFilter(ExcelSheetXMLHandler handler, int firstRow,
+      ExcelRowRejectionAware rowRejection, ExcelCellRange range) {
+    this.sheetHandler = handler;
+    this.firstRow = firstRow;
+    this.rowRejection = rowRejection;
+    this.range = range;
+    if (null != range) {
+      this.headerPending = null != range.getColumnNames();
+      this.rowOffset = range.getFirstRow() - (headerPending ? 1 : 0);
+    } else {
+      this.rowOffset = 0;
+    }
+    setContentHandler(handler);
+  }
+
+  /**
+   * Returns the zero based number of the last completed row, -1 if none yet. The row being ended is
+   * counted as completed while its end row callback runs.
+   * 
+   * @return int
+   */
+  int getLastCompletedRow() {
+    return lastCompletedRow;
+  }
+
+  /**
+   * Sets the zero based row number to stop after, parsing ends at the first row past it. Default
+   * every row is read.
+   * 
+   * @param lastRow a <code>int</code>
+   */
+  void setLastRow(int lastRow) {
+    this.lastRow = lastRow;
+  }
+
+  /**
+   * To enable tracking of the shared string index of the current cell, default it is disabled
+   * 
+   * @param trackSharedStrings a boolean
+   */
+  void setTrackSharedStrings(boolean trackSharedStrings) {
+    this.trackSharedStrings = trackSharedStrings;
+  }
+
+  /**
+   * Returns the shared string index of the current cell, -1 if the cell is not a shared string or
+   * tracking is disabled. Complete by the time the cell value is delivered.
+   * 
+   * @return int
+   */
+  int getSharedStringIndex() {
+    return sharedStringIndex;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+      throws SAXException {
+    if (skipRow || skipCell) {
+      return;
+    }
+
+    if (null != rowRejection && CELL_ELEMENT.equals(qName) && sheetHandler.isRowStarted()
+        && rowRejection.isRowRejected()) {
+      skipCell = true;
+      return;
+    }
+
+    Attributes attributes = atts;
+    if (ROW_ELEMENT.equals(qName)) {
+      currentRow = getRowNum(atts);
+      if (null != range) {
+        if (currentRow < range.getFirstRow()) {
+          skipRow = true;
+          return;
+        }
+        if (currentRow > range.getLastRow()) {
+          this.endRange();
+        }
+
+        this.startHeader();
+        rebasedRow = currentRow - rowOffset;
+        attributes = rebase(atts, Integer.toString(rebasedRow + 1));
+      } else if (currentRow > lastRow) {
+        throw new ExcelSheetXMLHandler.StopSheetException("Last requested row " + (lastRow + 1)
+            + " reached");
+      } else if (HEADER_ROW != currentRow && currentRow < firstRow) {
+        skipRow = true;
+        return;
+      }
+    } else if (null != range && CELL_ELEMENT.equals(qName)) {
+      int column = ExcelCellReferences.getColumnIndex(atts.getValue(REF_ATTRIBUTE));
+      if (column >= 0) {
+        if (column < range.getFirstColumn() || column > range.getLastColumn()) {
+          skipCell = true;
+          return;
+        }
+        attributes = rebase(atts, getCellReference(column - range.getFirstColumn(), rebasedRow));
+      }
+    } else if (null != range && DIMENSION_ELEMENT.equals(qName)) {
+      String ref = rebaseDimension(atts.getValue("ref"));
+      if (null == ref) {
+        skipDimension = true;
+        return;
+      }
+      attributes = rebase(atts, null);
+      rebased.setValue(rebased.getIndex("ref"), ref);
+    } else if (DIMENSION_ELEMENT.equals(qName) && (firstRow > 0 || lastRow < Integer.MAX_VALUE)) {
+      String ref = narrowDimension(atts.getValue("ref"));
+      if (null == ref) {
+        skipDimension = true;
+        return;
+      }
+      attributes = rebase(atts, null);
+      rebased.setValue(rebased.getIndex("ref"), ref);
+    }
+
+    if (trackSharedStrings && !ROW_ELEMENT.equals(qName)) {
+      this.trackSharedString(qName, attributes);
+    }
+
+    super.startElement(uri, localName, qName, attributes);
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    if (skipRow) {
+      if (ROW_ELEMENT.equals(qName)) {
+        skipRow = false;
+      }
+      return;
+    }
+
+    if (skipCell) {
+      if (CELL_ELEMENT.equals(qName)) {
+        skipCell = false;
+      }
+      return;
+    }
+
+    if (ROW_ELEMENT.equals(qName)) {
+      lastCompletedRow = currentRow;
+    } else if (null != range && SHEET_DATA_ELEMENT.equals(qName)) {
+      this.startHeader();
+    } else if (skipDimension && DIMENSION_ELEMENT.equals(qName)) {
+      skipDimension = false;
+      return;
+    }
+    sharedStringValue = false;
+
+    super.endElement(uri, localName, qName);
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    if (!skipRow && !skipCell) {
+      if (sharedStringValue) {
+        for (int i = start; i < start + length; i++) {
+          sharedStringIndex = sharedStringIndex * 10 + (ch[i] - '0');
+        }
+      }
+      super.characters(ch, start, length);
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    if (!skipRow && !skipCell) {
+      super.ignorableWhitespace(ch, start, length);
+    }
+  }
+
+  private void trackSharedString(String qName, Attributes atts) {
+    if (CELL_ELEMENT.equals(qName)) {
+      sharedStringCell = "s".equals(atts.getValue("t"));
+      sharedStringIndex = -1;
+    } else if (sharedStringCell && VALUE_ELEMENT.equals(qName)) {
+      sharedStringValue = true;
+      sharedStringIndex = 0;
+    }
+  }
+
+  /**
+   * Delivers the header row made of the table column names, once, before the first range row
+   */
+  private void startHeader() throws SAXException {
+    if (!headerPending) {
+      return;
+    }
+    headerPending = false;
+    sharedStringIndex = -1;
+
+    AttributesImpl rowAtts = new AttributesImpl();
+    rowAtts.addAttribute("", REF_ATTRIBUTE, REF_ATTRIBUTE, "CDATA", "1");
+    super.startElement("", ROW_ELEMENT, ROW_ELEMENT, rowAtts);
+
+    List<String> columnNames = range.getColumnNames();
+    AttributesImpl noAtts = new AttributesImpl();
+    for (int i = 0; i < columnNames.size(); i++) {
+      AttributesImpl cellAtts = new AttributesImpl();
+      cellAtts.addAttribute("", REF_ATTRIBUTE, REF_ATTRIBUTE, "CDATA", getCellReference(i, 0));
+      cellAtts.addAttribute("", "t", "t", "CDATA", "inlineStr");
+      super.startElement("", CELL_ELEMENT, CELL_ELEMENT, cellAtts);
+      super.startElement("", "is", "is", noAtts);
+      super.startElement("", "t", "t", noAtts);
+      char[] text = columnNames.get(i).toCharArray();
+      super.characters(text, 0, text.length);
+      super.endElement("", "t", "t");
+      super.endElement("", "is", "is");
+      super.endElement("", CELL_ELEMENT, CELL_ELEMENT);
+    }
+    super.endElement("", ROW_ELEMENT, ROW_ELEMENT);
+  }
+
+  /**
+   * Completes the range, rest of the sheet isn't parsed
+   */
+  private void endRange() throws SAXException {
+    this.startHeader();
+    throw new ExcelSheetXMLHandler.StopSheetException("End of range '" + range.getName()
+        + "' reached at row " + currentRow);
+  }
+
+  /**
+   * Returns given attributes with a new cell or row reference (if not null)
+   */
+  private Attributes rebase(Attributes atts, String ref) {
+    rebased.setAttributes(atts);
+    if (null != ref) {
+      int index = rebased.getIndex(REF_ATTRIBUTE);
+      if (index < 0) {
+        rebased.addAttribute("", REF_ATTRIBUTE, REF_ATTRIBUTE, "CDATA", ref);
+      } else {
+        rebased.setValue(index, ref);
+      }
+    }
+    return rebased;
+  }
+
+  /**
+   * Returns the sheet dimension narrowed to the range and rebased, null if it has no cell in the
+   * range (or no dimension is given)
+   */
+  private String rebaseDimension(String ref) {
+    ExcelSheetDimension dimension = ExcelSheetDimension.parse(ref);
+    if (null == dimension) {
+      return null;
+    }
+
+    boolean header = null != range.getColumnNames();
+    int lastRow = Math.min(dimension.getLastRow(), range.getLastRow()) - rowOffset;
+    int firstRow = header ? 0 : Math.max(dimension.getFirstRow(), range.getFirstRow()) - rowOffset;
+    int firstColumn = Math.max(dimension.getFirstColumn(), range.getFirstColumn());
+    int lastColumn = Math.min(dimension.getLastColumn(), range.getLastColumn());
+    if (header) {
+      // header row spans every table column
+      firstColumn = range.getFirstColumn();
+      lastColumn = range.getLastColumn();
+      lastRow = Math.max(lastRow, 0);
+    }
+    if (lastRow < firstRow || lastColumn < firstColumn) {
+      return null;
+    }
+    return getCellReference(firstColumn - range.getFirstColumn(), firstRow) + ":"
+        + getCellReference(lastColumn - range.getFirstColumn(), lastRow);
+  }
+
+  /**
+   * Returns the sheet dimension narrowed to the requested rows, null if none of them is declared
+   * (or no dimension is given)
+   */
+  private String narrowDimension(String ref) {
+    ExcelSheetDimension dimension = ExcelSheetDimension.parse(ref);
+    if (null != dimension) {
+      dimension = dimension.narrowRows(firstRow, lastRow);
+    }
+    if (null == dimension) {
+      return null;
+    }
+    return getCellReference(dimension.getFirstColumn(), dimension.getFirstRow()) + ":"
+        + getCellReference(dimension.getLastColumn(), dimension.getLastRow());
+  }
+
+  private static String getCellReference(int column, int row) {
+    return CellReference.convertNumToColString(column) + (row + 1);
+  }
+
+  private int getRowNum(Attributes atts) {
+    String r = atts.getValue("r");
+    if (null == r) {
+      // row reference is optional, rows are then in sequence
+      return currentRow + 1;
+    }
+    return Integer.parseInt(r) - 1;
+  }
+}
@@ -0,0 +1,405 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * WorkSheet XML handler turning sheet SAX events into {@link SheetContentsHandler} events, the
+ * counterpart of {@link org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler} working on the lean
+ * {@link ExcelStyles}. Shared and inline strings are decoded without building rich text objects, so
+ * no OOXML schema class is loaded while streaming. Numeric cells are formatted by the compiled
+ * formats of {@link ExcelCellFormatter}.
+ * 
+ * <p>
+ * Rows without any cell value (e.g. only styled empty cells) can be skipped: the start of a row is
+ * then delivered with its first cell value, and a row without one is never delivered. The header
+ * row (row zero) is always delivered.
+ * </p>
+ * 
+ * <p>
+ * An {@link ExcelCellSequenceHandler} output receives the value and formula buffers themselves when
+ * a value needs no formatting or decoding, instead of a String copy of them.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+class ExcelSheetXMLHandler extends DefaultHandler {
+
+  private static final Log LOG = LogFactory.getLog(ExcelSheetXMLHandler.class);
+
+  /**
+   * Escaped characters of OOXML strings, e.g. _x000D_
+   */
+  private static final Pattern UTF_PATTERN = Pattern.compile("_x([0-9A-F]{4})_");
+
+  private static final int HEADER_ROW = 0;
+
+  /**
+   * Thrown to stop parsing the rest of a sheet, e.g. once the empty row limit is reached
+   */
+  static class StopSheetException extends SAXException {
+    private static final long serialVersionUID = 1L;
+
+    StopSheetException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Kinds of cell value, kept between the start and the end of a cell
+   */
+  private enum CellType {
+    BOOLEAN, ERROR, FORMULA, INLINE_STRING, SST_STRING, NUMBER
+  }
+
+  private final ReadOnlySharedStringsTable sharedStringsTable;
+  private final SheetContentsHandler output;
+  private final ExcelCellSequenceHandler sequenceOutput;
+  private final ExcelCellFormatter formatter;
+  private final boolean formulasNotResults;
+  private ExcelSheetDimensionCallback dimensionCallback;
+  private boolean skipEmptyRows;
+  private int emptyRowLimit;
+
+  private boolean vIsOpen;
+  private boolean fIsOpen;
+  private boolean isIsOpen;
+  private boolean hfIsOpen;
+  private CellType nextDataType = CellType.NUMBER;
+  private int styleIndex;
+  private String cellRef;
+  private int currentRow = -1;
+  private boolean rowStarted;
+  private int consecutiveEmptyRows;
+  private final List<String> blankCellReferences = new ArrayList<String>();
+  private final List<String> blankCellValues = new ArrayList<String>();
+  private boolean sharedFormulaWarned;
+
+  private final StringBuilder value = new StringBuilder(64);
+  private final StringBuilder formula = new StringBuilder(64);
+  private final StringBuilder headerFooter = new StringBuilder(64);
+
+  /**
+   * Constructor
+   * 
+   * @param strings a {@link ReadOnlySharedStringsTable} object
+   * @param sheetContentsHandler a {@link SheetContentsHandler} object
+   * @param cellFormatter a {@link ExcelCellFormatter} object - formats numeric cells with a style
+   * @param formulasNotResults a boolean - deliver formula text instead of the cached result
+   */
+  ExcelSheetXMLHandler(ReadOnlySharedStringsTable strings,
+      SheetContentsHandler sheetContentsHandler, ExcelCellFormatter cellFormatter,
+      boolean formulasNotResults) {
+    this.sharedStringsTable = strings;
+    this.output = sheetContentsHandler;
+    this.sequenceOutput =
+        (sheetContentsHandler instanceof ExcelCellSequenceHandler)
+            ? (ExcelCellSequenceHandler) sheetContentsHandler : null;
+    this.formatter = cellFormatter;
+    this.formulasNotResults = formulasNotResults;
+  }
+
+  /**
+   * To set the callback receiving the declared sheet dimension before the first row
+   * 
+   * @param dimensionCallback a {@link ExcelSheetDimensionCallback} object (can be null)
+   */
+  void setDimensionCallback(ExcelSheetDimensionCallback dimensionCallback) {
+    this.dimensionCallback = dimensionCallback;
+  }
+
+  /**
+   * To skip rows without any cell value, default it is disabled
+   * 
+   * @param skipEmptyRows a boolean
+   */
+  void setSkipEmptyRows(boolean skipEmptyRows) {
+    this.skipEmptyRows = skipEmptyRows;
+  }
+
+  /**
+   * To stop the sheet after given number of consecutive empty rows, 0 disables it. Needs skipping
+   * of empty rows.
+   * 
+   * @param emptyRowLimit a <code>int</code>
+   */
+  void setEmptyRowLimit(int emptyRowLimit) {
+    this.emptyRowLimit = emptyRowLimit;
+  }
+
+  /**
+   * Returns true once the start of the current row has been delivered
+   * 
+   * @return boolean
+   */
+  boolean isRowStarted() {
+    return rowStarted;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String name, Attributes attributes)
+      throws SAXException {
+    if ("v".equals(name)) {
+      vIsOpen = true;
+      value.setLength(0);
+    } else if ("is".equals(name)) {
+      // Inline string, text of its runs is gathered until the end of it
+      isIsOpen = true;
+      value.setLength(0);
+    } else if ("t".equals(name) && isIsOpen) {
+      vIsOpen = true;
+    } else if ("f".equals(name)) {
+      formula.setLength(0);
+      if (CellType.NUMBER == nextDataType) {
+        nextDataType = CellType.FORMULA;
+      }
+
+      String type = attributes.getValue("t");
+      if ("shared".equals(type) && null == attributes.getValue("ref")) {
+        // Uses a shared formula defined by an other cell, its text isn't available
+        if (formulasNotResults && !sharedFormulaWarned) {
+          LOG.warn("Shared formulas are not supported, their cells have an empty value");
+          sharedFormulaWarned = true;
+        }
+      } else {
+        fIsOpen = true;
+      }
+    } else if (isHeaderFooter(name)) {
+      hfIsOpen = true;
+      headerFooter.setLength(0);
+    } else if ("row".equals(name)) {
+      String r = attributes.getValue("r");
+      currentRow = (null == r) ? currentRow + 1 : Integer.parseInt(r) - 1;
+      rowStarted = false;
+      if (!skipEmptyRows || HEADER_ROW == currentRow) {
+        this.startRow();
+      }
+    } else if ("c".equals(name)) {
+      this.startCell(attributes);
+    } else if ("dimension".equals(name) && null != dimensionCallback) {
+      ExcelSheetDimension dimension = ExcelSheetDimension.parse(attributes.getValue("ref"));
+      if (null == dimension) {
+        LOG.debug("Ignoring sheet dimension '" + attributes.getValue("ref") + "'");
+      } else {
+        dimensionCallback.sheetDimension(dimension);
+      }
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String name) throws SAXException {
+    if ("v".equals(name)) {
+      vIsOpen = false;
+      this.cell(getCellValue());
+    } else if ("t".equals(name) && isIsOpen) {
+      vIsOpen = false;
+    } else if ("is".equals(name)) {
+      isIsOpen = false;
+      this.cell(getCellValue());
+    } else if ("f".equals(name)) {
+      fIsOpen = false;
+    } else if ("row".equals(name)) {
+      this.endRow();
+    } else if ("oddHeader".equals(name) || "evenHeader".equals(name)
+        || "firstHeader".equals(name)) {
+      hfIsOpen = false;
+      output.headerFooter(headerFooter.toString(), true, name);
+    } else if ("oddFooter".equals(name) || "evenFooter".equals(name)
+        || "firstFooter".equals(name)) {
+      hfIsOpen = false;
+      output.headerFooter(headerFooter.toString(), false, name);
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    if (vIsOpen) {
+      value.append(ch, start, length);
+    }
+    if (fIsOpen) {
+      formula.append(ch, start, length);
+    }
+    if (hfIsOpen) {
+      headerFooter.append(ch, start, length);
+    }
+  }
+
+  private void startRow() {
+    rowStarted = true;
+    output.startRow(currentRow);
+  }
+
+  /**
+   * Delivers a cell value, the row start is delivered with the first non empty value. Empty values
+   * before it are held back and delivered with it, so handlers see every cell in order.
+   */
+  private void cell(CharSequence formattedValue) {
+    if (!rowStarted) {
+      if (null == formattedValue || 0 == formattedValue.length()) {
+        blankCellReferences.add(cellRef);
+        blankCellValues.add((null == formattedValue) ? null : "");
+        return;
+      }
+
+      this.startRow();
+      for (int i = 0; i < blankCellReferences.size(); i++) {
+        output.cell(blankCellReferences.get(i), blankCellValues.get(i));
+      }
+    }
+
+    if (null != sequenceOutput) {
+      // Buffers are handed over as they are, valid until the call returns
+      sequenceOutput.cell(cellRef, formattedValue);
+    } else {
+      output.cell(cellRef, (null == formattedValue) ? null : formattedValue.toString());
+    }
+  }
+
+  private void endRow() throws SAXException {
+    blankCellReferences.clear();
+    blankCellValues.clear();
+    if (rowStarted) {
+      consecutiveEmptyRows = 0;
+      output.endRow();
+      return;
+    }
+
+    consecutiveEmptyRows++;
+    if (emptyRowLimit > 0 && consecutiveEmptyRows >= emptyRowLimit) {
+      throw new StopSheetException("Empty row limit reached at row " + currentRow);
+    }
+  }
+
+  private void startCell(Attributes attributes) {
+    this.nextDataType = CellType.NUMBER;
+    this.styleIndex = -1;
+    this.cellRef = attributes.getValue("r");
+
+    String cellType = attributes.getValue("t");
+    if ("s".equals(cellType)) {
+      nextDataType = CellType.SST_STRING;
+    } else if ("inlineStr".equals(cellType)) {
+      nextDataType = CellType.INLINE_STRING;
+    } else if ("b".equals(cellType)) {
+      nextDataType = CellType.BOOLEAN;
+    } else if ("e".equals(cellType)) {
+      nextDataType = CellType.ERROR;
+    } else if ("str".equals(cellType)) {
+      nextDataType = CellType.FORMULA;
+    } else {
+      String cellStyleStr = attributes.getValue("s");
+      if (null != cellStyleStr) {
+        // Number, but almost certainly with a special style or format
+        this.styleIndex = Integer.parseInt(cellStyleStr);
+      }
+    }
+  }
+
+  /**
+   * Returns the value of the current cell, the value or formula buffer itself when it needs no
+   * conversion
+   */
+  private CharSequence getCellValue() {
+    switch (nextDataType) {
+      case BOOLEAN:
+        return (value.length() > 0 && value.charAt(0) == '0') ? "FALSE" : "TRUE";
+      case ERROR:
+        return "ERROR:" + value.toString();
+      case FORMULA:
+        if (formulasNotResults) {
+          return formula;
+        }
+        return formatNumber(true);
+      case INLINE_STRING:
+        return (value.indexOf("_x") < 0) ? value : decode(value.toString());
+      case SST_STRING:
+        return getSharedString();
+      case NUMBER:
+        return formatNumber(false);
+      default:
+        // every cell type is handled above
+        throw new IllegalStateException("Unexpected cell type " + nextDataType + " of cell "
+            + cellRef);
+    }
+  }
+
+  private String getSharedString() {
+    try {
+      return decode(sharedStringsTable.getEntryAt(Integer.parseInt(value.toString())));
+    } catch (NumberFormatException ex) {
+      LOG.error("Failed to parse SST index '" + value + "': " + ex.toString());
+      return null;
+    }
+  }
+
+  private CharSequence formatNumber(boolean mayBeText) {
+    try {
+      String formatted = formatter.format(styleIndex, value);
+      return (null == formatted) ? value : formatted;
+    } catch (NumberFormatException nfe) {
+      if (mayBeText) {
+        // Formula is a String result not a Numeric one
+        return value;
+      }
+      throw nfe;
+    }
+  }
+
+  private static boolean isHeaderFooter(String name) {
+    return "oddHeader".equals(name) || "evenHeader".equals(name) || "firstHeader".equals(name)
+        || "firstFooter".equals(name) || "oddFooter".equals(name) || "evenFooter".equals(name);
+  }
+
+  /**
+   * Decodes escaped characters of OOXML strings, returns given instance when there is none
+   */
+  static String decode(String value) {
+    if (null == value || value.indexOf("_x") < 0) {
+      return value;
+    }
+
+    StringBuilder buf = new StringBuilder(value.length());
+    Matcher m = UTF_PATTERN.matcher(value);
+    int idx = 0;
+    while (m.find()) {
+      buf.append(value, idx, m.start());
+      buf.append((char) Integer.parseInt(m.group(1), 16));
+      idx = m.end();
+    }
+    buf.append(value, idx, value.length());
+    return buf.toString();
+  }
+}
@@ -0,0 +1,467 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.poi.util.IOUtils;
+
+/**
+ * Append only {@link java.util.List} of bound row objects with a heap budget. Rows are kept on the
+ * heap until their estimated size reaches the budget, rows past it are written to a temp file in a
+ * compact binary form (the String values of the mapped properties) and read back lazily, an object
+ * at a time, when accessed. So an oversized sheet degrades to disk I/O instead of running out of
+ * heap.
+ * 
+ * <br>
+ * <br>
+ * Sequential access (iterator, for loop over {@link #get(int)}) streams the temp file, random
+ * access seeks to the nearest of the offsets recorded every {@value #OFFSET_INTERVAL} rows. Each
+ * {@link #get(int)} of a spilled row returns a new object, changes to it are not kept. Call
+ * {@link #close()} once done to delete the temp file.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>workSheetHandler.setHeapBudget(64L * 1024 * 1024);
+ * <br>excelReader.process();
+ * <br>ExcelSpillList&lt;PersonVO> persons = (ExcelSpillList&lt;PersonVO>) workSheetHandler.getValueList();
+ * <br>try { for (PersonVO person : persons) { ... } } finally { persons.close(); }</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public final class ExcelSpillList<T> extends AbstractList<T> implements Closeable {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int ROW_OVERHEAD = 24;
+
+  private static final int VALUE_OVERHEAD = 40;
+
+  private static final int OFFSET_INTERVAL = 128;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final String[] properties;
+  private final Method[] getters;
+  private final Method[] setters;
+  private final Constructor<T> constructor;
+  private final long heapBudget;
+  private final File directory;
+  private final ArrayList<T> heapRows = new ArrayList<T>();
+  private long heapSize;
+  private File file;
+  private OutputStream out;
+  private long position;
+  private long[] offsets = new long[16];
+  private int spilledRows;
+  private byte[] record = new byte[256];
+  private int recordLength;
+  private InputStream in;
+  private int cursor;
+  private boolean dirty;
+  private boolean closed;
+
+  /**
+   * Constructor
+   * 
+   * @param type a {@link Class} object - type of the row objects
+   * @param properties a {@link Collection} object - String properties bound from the cells
+   * @param heapBudget a <code>long</code> - estimated heap bytes of rows kept in memory
+   * @param directory a {@link File} object - directory of the temp file (can be null, for the
+   *        default temp directory)
+   */
+  public ExcelSpillList(Class<T> type, Collection<String> properties, long heapBudget,
+      File directory) {
+    this(properties, getConstructor(type), heapBudget, directory);
+    Map<String, PropertyDescriptor> descriptors = new HashMap<String, PropertyDescriptor>();
+    for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(type)) {
+      descriptors.put(descriptor.getName(), descriptor);
+    }
+    for (int i = 0; i < this.properties.length; i++) {
+      PropertyDescriptor descriptor = descriptors.get(this.properties[i]);
+      Method setter = (null == descriptor) ? null : descriptor.getWriteMethod();
+      getters[i] = (null == descriptor) ? null : descriptor.getReadMethod();
+      setters[i] =
+          (null != setter && setter.getParameterTypes()[0].isAssignableFrom(String.class))
+              ? setter : null;
+    }
+    checkAccessors(type);
+  }
+
+  /**
+   * Constructor: getters, setters and constructor of the row objects come from a mapping plan
+   * 
+   * @param plan a {@link ExcelMappingPlan} object - plan of the row objects, all its mapped
+   *        properties are kept
+   * @param heapBudget a <code>long</code> - estimated heap bytes of rows kept in memory
+   * @param directory a {@link File} object - directory of the temp file (can be null, for the
+   *        default temp directory)
+   */
+  public ExcelSpillList(ExcelMappingPlan<T> plan, long heapBudget, File directory) {
+    this(plan.getProperties(), plan.getConstructor(), heapBudget, directory);
+    for (int i = 0; i < properties.length; i++) {
+      getters[i] = plan.getReadMethod(properties[i]);
+      setters[i] = plan.getWriteMethod(properties[i]);
+    }
+    checkAccessors(plan.getType());
+  }
+
+  private ExcelSpillList(Collection<String> properties, Constructor<T> constructor,
+      long heapBudget, File directory) {
+    if (heapBudget < 0) {
+      throw new IllegalArgumentException("Heap budget cannot be negative");
+    }
+    this.properties = properties.toArray(new String[properties.size()]);
+    this.getters = new Method[this.properties.length];
+    this.setters = new Method[this.properties.length];
+    this.constructor = constructor;
+    this.heapBudget = heapBudget;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns true once rows are written to disk
+   * 
+   * @return boolean
+   */
+  public boolean isSpilled() {
+    return null != file;
+  }
+
+  /**
+   * Returns the number of rows written to disk
+   * 
+   * @return int
+   */
+  public int getSpilledCount() {
+    return spilledRows;
+  }
+
+  @Override
+  public boolean add(T row) {
+    checkOpen();
+    if (null == file) {
+      long rowSize = estimateSize(row);
+      if (heapSize + rowSize <= heapBudget) {
+        heapRows.add(row);
+        heapSize += rowSize;
+        modCount++;
+        return true;
+      }
+    }
+
+    try {
+      this.spill(row);
+    } catch (IOException e) {
+      throw new RuntimeException("Row cannot be written to " + file + ", " + e.getMessage(), e);
+    }
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public T get(int index) {
+    checkOpen();
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    if (index < heapRows.size()) {
+      return heapRows.get(index);
+    }
+    try {
+      return this.read(index - heapRows.size());
+    } catch (IOException e) {
+      throw new RuntimeException("Row cannot be read from " + file + ", " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int size() {
+    return heapRows.size() + spilledRows;
+  }
+
+  /**
+   * Deletes the temp file and releases the rows, the list is empty afterwards
+   */
+  @Override
+  public void close() {
+    IOUtils.closeQuietly(in);
+    IOUtils.closeQuietly(out);
+    in = null;
+    out = null;
+    if (null != file && !file.delete()) {
+      file.deleteOnExit();
+    }
+    heapRows.clear();
+    spilledRows = 0;
+    closed = true;
+    modCount++;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("List is closed");
+    }
+  }
+
+  private long estimateSize(T row) {
+    long size = ROW_OVERHEAD;
+    if (null != row) {
+      for (Method getter : getters) {
+        String value = getValue(row, getter);
+        if (null != value) {
+          size += VALUE_OVERHEAD + 2L * value.length();
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Appends a row record: its length, then per property the value length plus one (zero for null)
+   * and the UTF-8 bytes. A zero record length marks a null row.
+   */
+  private void spill(T row) throws IOException {
+    if (null == out) {
+      file = File.createTempFile("excelReader", ".rows", directory);
+      out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    }
+
+    recordLength = 0;
+    if (null != row) {
+      for (Method getter : getters) {
+        String value = getValue(row, getter);
+        if (null == value) {
+          writeVarInt(0);
+        } else {
+          byte[] bytes = value.getBytes(UTF_8);
+          writeVarInt(bytes.length + 1);
+          ensureRecord(bytes.length);
+          System.arraycopy(bytes, 0, record, recordLength, bytes.length);
+          recordLength += bytes.length;
+        }
+      }
+    }
+
+    if (0 == spilledRows % OFFSET_INTERVAL) {
+      int block = spilledRows / OFFSET_INTERVAL;
+      if (block == offsets.length) {
+        offsets = Arrays.copyOf(offsets, block * 2);
+      }
+      offsets[block] = position;
+    }
+    int length = (null == row) ? 0 : recordLength + 1;
+    int header = 0;
+    do {
+      int b = length & 0x7F;
+      length >>>= 7;
+      out.write((0 == length) ? b : b | 0x80);
+      header++;
+    } while (0 != length);
+    out.write(record, 0, recordLength);
+    position += header + recordLength;
+    spilledRows++;
+    dirty = true;
+  }
+
+  private T read(int row) throws IOException {
+    if (dirty) {
+      out.flush();
+      dirty = false;
+    }
+
+    int block = row / OFFSET_INTERVAL;
+    if (null == in || row < cursor || block > cursor / OFFSET_INTERVAL) {
+      IOUtils.closeQuietly(in);
+      FileInputStream stream = new FileInputStream(file);
+      stream.getChannel().position(offsets[block]);
+      in = new BufferedInputStream(stream, BUFFER_SIZE);
+      cursor = block * OFFSET_INTERVAL;
+    }
+
+    while (cursor < row) {
+      int length = readVarInt(in);
+      skipFully(in, (0 == length) ? 0 : length - 1);
+      cursor++;
+    }
+
+    int length = readVarInt(in);
+    cursor++;
+    if (0 == length) {
+      return null;
+    }
+    recordLength = length - 1;
+    ensureRecord(0);
+    readFully(in, record, recordLength);
+
+    T target = newInstance();
+    int offset = 0;
+    for (Method setter : setters) {
+      int valueLength = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = record[offset++];
+        valueLength |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (0 != (b & 0x80));
+
+      if (valueLength > 0) {
+        setValue(target, setter, new String(record, offset, valueLength - 1, UTF_8));
+        offset += valueLength - 1;
+      }
+    }
+    return target;
+  }
+
+  private void writeVarInt(int value) {
+    ensureRecord(5);
+    do {
+      int b = value & 0x7F;
+      value >>>= 7;
+      record[recordLength++] = (byte) ((0 == value) ? b : b | 0x80);
+    } while (0 != value);
+  }
+
+  private void ensureRecord(int extra) {
+    if (recordLength + extra > record.length) {
+      record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + extra));
+    }
+  }
+
+  private static int readVarInt(InputStream stream) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = stream.read();
+      if (b < 0) {
+        throw new EOFException("Truncated row record");
+      }
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (0 != (b & 0x80));
+    return value;
+  }
+
+  private static void readFully(InputStream stream, byte[] bytes, int length) throws IOException {
+    int count = 0;
+    while (count < length) {
+      int n = stream.read(bytes, count, length - count);
+      if (n < 0) {
+        throw new EOFException("Truncated row record");
+      }
+      count += n;
+    }
+  }
+
+  private static void skipFully(InputStream stream, long length) throws IOException {
+    while (length > 0) {
+      long n = stream.skip(length);
+      if (n <= 0) {
+        throw new EOFException("Truncated row record");
+      }
+      length -= n;
+    }
+  }
+
+  /**
+   * Fails fast on a property without a getter or a String setter, instead of on the first row
+   */
+  private void checkAccessors(Class<T> type) {
+    if (null == constructor) {
+      throw new IllegalArgumentException("No public no-arg constructor of " + type.getName());
+    }
+    for (int i = 0; i < properties.length; i++) {
+      if (null == getters[i] || null == setters[i]) {
+        throw new IllegalArgumentException("Property (" + properties[i] + ") of "
+            + type.getName() + " needs a getter and a String setter");
+      }
+    }
+  }
+
+  private T newInstance() {
+    try {
+      return constructor.newInstance();
+    } catch (InstantiationException ie) {
+      throw new RuntimeException(ie.getMessage(), ie);
+    } catch (IllegalAccessException iae) {
+      throw new RuntimeException(iae.getMessage(), iae);
+    } catch (InvocationTargetException ite) {
+      throw new RuntimeException(ite.getMessage(), ite);
+    }
+  }
+
+  private static String getValue(Object target, Method getter) {
+    try {
+      Object value = getter.invoke(target);
+      return (null == value) ? null : value.toString();
+    } catch (IllegalAccessException iae) {
+      throw new RuntimeException(iae.getMessage(), iae);
+    } catch (InvocationTargetException ite) {
+      throw new RuntimeException(ite.getMessage(), ite);
+    }
+  }
+
+  private static void setValue(Object target, Method setter, String value) {
+    try {
+      setter.invoke(target, value);
+    } catch (IllegalAccessException iae) {
+      throw new RuntimeException(iae.getMessage(), iae);
+    } catch (InvocationTargetException ite) {
+      throw new RuntimeException(ite.getMessage(), ite);
+    }
+  }
+
+  private static <T> Constructor<T> getConstructor(Class<T> type) {
+    try {
+      return type.getConstructor();
+    } catch (NoSuchMethodException nsme) {
+      return null;
+    }
+  }
+}
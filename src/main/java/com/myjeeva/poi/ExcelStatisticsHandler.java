@@ -0,0 +1,343 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Excel Worksheet Handler computing statistics of every column in a single pass, without keeping
+ * any row: see {@link ExcelColumnStatistics}. Columns are identified by their header value, so
+ * statistics of several sheets with the same header add up. The header row of a sheet is its first
+ * row delivered, row zero or the first row present. Group-by sums and counts of a value column per
+ * distinct value of a key column can be added with {@link #groupBy(String, String)}.
+ * 
+ * <br>
+ * <br>
+ * Handlers of sheets read in parallel (e.g. one {@link ExcelReader} per sheet) are combined with
+ * {@link #merge(ExcelStatisticsHandler)}. Values are taken as {@link CharSequence} views (see
+ * {@link ExcelCellSequenceHandler}), only group keys are copied.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelStatisticsHandler statistics =
+ * <br>&nbsp;&nbsp;new ExcelStatisticsHandler().groupBy("Department", "Salary");
+ * <br>new ExcelReader(file, statistics, null).process();
+ * <br>long emails = statistics.getStatistics().get("Email Address").getDistinctEstimate();
+ * <br>double sales = statistics.getGroups("Department", "Salary").get("Sales").getSum();</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelStatisticsHandler implements ExcelCellSequenceHandler,
+    ExcelSheetDimensionCallback {
+
+  private final int distinctPrecision;
+  private final Map<String, ExcelColumnStatistics> statistics =
+      new LinkedHashMap<String, ExcelColumnStatistics>();
+  private final List<GroupBy> groupBys = new ArrayList<GroupBy>();
+  private long rowCount;
+
+  // by column index of the current sheet, null for columns without header
+  private ExcelColumnStatistics[] columns = new ExcelColumnStatistics[16];
+  private int[] lastRows = new int[16];
+  private int columnCount;
+  private int currentRow;
+  private boolean headerRow;
+  private boolean sheetStarted = true;
+
+  /**
+   * Constructor: distinct values are estimated with the default precision
+   */
+  public ExcelStatisticsHandler() {
+    this(ExcelHyperLogLog.DEFAULT_PRECISION);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param distinctPrecision a <code>int</code> - precision of the distinct estimates (see
+   *        {@link ExcelHyperLogLog}), 0 disables them
+   */
+  public ExcelStatisticsHandler(int distinctPrecision) {
+    this.distinctPrecision = distinctPrecision;
+  }
+
+  /**
+   * Adds sums and counts of a value column per distinct value of a key column, by header values
+   * 
+   * @param keyColumn a {@link String} object - header of the key column
+   * @param valueColumn a {@link String} object - header of the value column
+   * @return ExcelStatisticsHandler - this handler
+   */
+  public ExcelStatisticsHandler groupBy(String keyColumn, String valueColumn) {
+    if (null == keyColumn || null == valueColumn) {
+      throw new IllegalArgumentException("Key and value columns are required");
+    }
+
+    if (null == getGroupBy(keyColumn, valueColumn)) {
+      groupBys.add(new GroupBy(keyColumn, valueColumn));
+    }
+    return this;
+  }
+
+  /**
+   * Returns the number of data rows seen, header rows excluded
+   * 
+   * @return long
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Returns statistics by column header, in order of appearance
+   * 
+   * @return Map&lt;String, ExcelColumnStatistics>
+   */
+  public Map<String, ExcelColumnStatistics> getStatistics() {
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  /**
+   * Returns statistics of the value column by key, null if not grouped by these columns. Count of
+   * a group is its number of non empty values, empty count the rest of its rows.
+   * 
+   * @param keyColumn a {@link String} object - header of the key column
+   * @param valueColumn a {@link String} object - header of the value column
+   * @return Map&lt;String, ExcelColumnStatistics>
+   */
+  public Map<String, ExcelColumnStatistics> getGroups(String keyColumn, String valueColumn) {
+    GroupBy groupBy = getGroupBy(keyColumn, valueColumn);
+    return (null == groupBy) ? null : Collections.unmodifiableMap(groupBy.groups);
+  }
+
+  /**
+   * Merges statistics and groups of given handler into this one, e.g. once sheets read in parallel
+   * are done
+   * 
+   * @param other a {@link ExcelStatisticsHandler} object
+   */
+  public void merge(ExcelStatisticsHandler other) {
+    rowCount += other.rowCount;
+    mergeInto(statistics, other.statistics);
+    for (GroupBy otherGroupBy : other.groupBys) {
+      GroupBy groupBy = getGroupBy(otherGroupBy.keyColumn, otherGroupBy.valueColumn);
+      if (null == groupBy) {
+        groupBy = new GroupBy(otherGroupBy.keyColumn, otherGroupBy.valueColumn);
+        groupBys.add(groupBy);
+      }
+      mergeInto(groupBy.groups, otherGroupBy.groups);
+    }
+  }
+
+  private static void mergeInto(Map<String, ExcelColumnStatistics> target,
+      Map<String, ExcelColumnStatistics> source) {
+    for (Map.Entry<String, ExcelColumnStatistics> entry : source.entrySet()) {
+      ExcelColumnStatistics existing = target.get(entry.getKey());
+      if (null == existing) {
+        target.put(entry.getKey(), entry.getValue().copy());
+      } else {
+        existing.merge(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Presizes the column slots to the declared columns, the next row starts a new sheet
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    ensureColumns(dimension.getColumnCapacity());
+    this.sheetStarted = true;
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#startRow(int)
+   */
+  @Override
+  public void startRow(int rowNum) {
+    // rows of a sheet ascend, a sheet without dimension starts where they don't
+    this.headerRow = sheetStarted || rowNum <= currentRow;
+    this.sheetStarted = false;
+    this.currentRow = rowNum;
+    if (headerRow) {
+      // new sheet, columns are mapped again by its header
+      Arrays.fill(columns, null);
+      Arrays.fill(lastRows, -1);
+      columnCount = 0;
+      for (GroupBy groupBy : groupBys) {
+        groupBy.keyIndex = -1;
+        groupBy.valueIndex = -1;
+      }
+    } else {
+      for (GroupBy groupBy : groupBys) {
+        groupBy.key = "";
+        groupBy.value = null;
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#cell(java.lang.String,
+   *      java.lang.String)
+   */
+  @Override
+  public void cell(String cellReference, String formattedValue) {
+    this.cell(cellReference, (CharSequence) formattedValue);
+  }
+
+  /**
+   * @see com.myjeeva.poi.ExcelCellSequenceHandler#cell(java.lang.String, java.lang.CharSequence)
+   */
+  @Override
+  public void cell(String cellReference, CharSequence value) {
+    int column = ExcelCellReferences.getColumnIndex(cellReference);
+    if (column < 0) {
+      return;
+    }
+
+    if (headerRow) {
+      if (null != value && value.length() > 0) {
+        mapColumn(column, value.toString());
+      }
+      return;
+    }
+
+    if (column >= columnCount || null == columns[column] || lastRows[column] == currentRow) {
+      return;
+    }
+    lastRows[column] = currentRow;
+    columns[column].add(value);
+
+    for (GroupBy groupBy : groupBys) {
+      if (column == groupBy.keyIndex && null != value) {
+        groupBy.key = value.toString();
+      } else if (column == groupBy.valueIndex && null != value) {
+        groupBy.value = value.toString();
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#endRow()
+   */
+  @Override
+  public void endRow() {
+    if (headerRow) {
+      return;
+    }
+
+    rowCount++;
+    for (int column = 0; column < columnCount; column++) {
+      if (null != columns[column] && lastRows[column] != currentRow) {
+        columns[column].addEmpty();
+      }
+    }
+
+    for (GroupBy groupBy : groupBys) {
+      if (groupBy.keyIndex >= 0 && groupBy.valueIndex >= 0) {
+        ExcelColumnStatistics group = groupBy.groups.get(groupBy.key);
+        if (null == group) {
+          group = new ExcelColumnStatistics(0);
+          groupBy.groups.put(groupBy.key, group);
+        }
+        group.add(groupBy.value);
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#headerFooter(java.lang.String,
+   *      boolean, java.lang.String)
+   */
+  @Override
+  public void headerFooter(String text, boolean isHeader, String tagName) {
+    // headers and footers are not processed
+  }
+
+  private void mapColumn(int column, String header) {
+    ensureColumns(column + 1);
+    ExcelColumnStatistics columnStatistics = statistics.get(header);
+    if (null == columnStatistics) {
+      columnStatistics = new ExcelColumnStatistics(distinctPrecision);
+      statistics.put(header, columnStatistics);
+    }
+    columns[column] = columnStatistics;
+    columnCount = Math.max(columnCount, column + 1);
+
+    for (GroupBy groupBy : groupBys) {
+      if (header.equals(groupBy.keyColumn)) {
+        groupBy.keyIndex = column;
+      }
+      if (header.equals(groupBy.valueColumn)) {
+        groupBy.valueIndex = column;
+      }
+    }
+  }
+
+  private void ensureColumns(int count) {
+    if (count > columns.length) {
+      int oldLength = columns.length;
+      columns = Arrays.copyOf(columns, count);
+      lastRows = Arrays.copyOf(lastRows, count);
+      Arrays.fill(lastRows, oldLength, count, -1);
+    }
+  }
+
+  private GroupBy getGroupBy(String keyColumn, String valueColumn) {
+    for (GroupBy groupBy : groupBys) {
+      if (groupBy.keyColumn.equals(keyColumn) && groupBy.valueColumn.equals(valueColumn)) {
+        return groupBy;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Group-by of a value column per key column, with the cells of the current row
+   */
+  private static class GroupBy {
+    private final String keyColumn;
+    private final String valueColumn;
+    private final Map<String, ExcelColumnStatistics> groups =
+        new HashMap<String, ExcelColumnStatistics>();
+    private int keyIndex = -1;
+    private int valueIndex = -1;
+    private String key;
+    private String value;
+
+    GroupBy(String keyColumn, String valueColumn) {
+      this.keyColumn = keyColumn;
+      this.valueColumn = valueColumn;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * WorkSheet contents handler decorator sharing one {@link String} instance per repeated cell value.
+ * Shared string cells are canonicalized by their shared-string index, all other values through a
+ * per column dictionary bounded to a number of distinct values. Once a column dictionary is full,
+ * its new values are passed through as is.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+class ExcelStringCanonicalizer implements SheetContentsHandler, ExcelSheetDimensionCallback {
+
+  private SheetContentsHandler delegate;
+  private final int dictionarySize;
+  private final String[] sharedStrings;
+  private ExcelSheetXMLFilter sheetFilter;
+  private Map<String, String>[] columnDictionaries;
+
+  /**
+   * Constructor
+   * 
+   * @param sharedStringCount a <code>int</code> - unique count of the shared strings table
+   * @param dictionarySize a <code>int</code> - distinct values kept per column for other values
+   */
+  ExcelStringCanonicalizer(int sharedStringCount, int dictionarySize) {
+    this.dictionarySize = dictionarySize;
+    this.sharedStrings = new String[Math.max(0, sharedStringCount)];
+  }
+
+  /**
+   * Starts a new sheet, shared string instances are kept, column dictionaries are dropped
+   * 
+   * @param sheetFilter a {@link ExcelSheetXMLFilter} object - filter tracking the shared string
+   *        index of the current cell
+   * @param delegate a {@link SheetContentsHandler} object - handler receiving canonical values
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  void startSheet(ExcelSheetXMLFilter sheetFilter, SheetContentsHandler delegate) {
+    this.sheetFilter = sheetFilter;
+    this.delegate = delegate;
+    this.columnDictionaries = new Map[16];
+  }
+
+  /**
+   * Presizes the column dictionary slots to the declared columns
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    int columns = dimension.getColumnCapacity();
+    if (columns > columnDictionaries.length) {
+      columnDictionaries = Arrays.copyOf(columnDictionaries, columns);
+    }
+  }
+
+  @Override
+  public void startRow(int rowNum) {
+    delegate.startRow(rowNum);
+  }
+
+  @Override
+  public void endRow() {
+    delegate.endRow();
+  }
+
+  @Override
+  public void cell(String cellReference, String formattedValue) {
+    delegate.cell(cellReference, canonicalize(cellReference, formattedValue));
+  }
+
+  @Override
+  public void headerFooter(String text, boolean isHeader, String tagName) {
+    delegate.headerFooter(text, isHeader, tagName);
+  }
+
+  private String canonicalize(String cellReference, String value) {
+    if (null == value || value.isEmpty()) {
+      // Blank cells held back until the first value of a row reach here with the shared-string
+      // index of that value, so they are never looked up
+      return value;
+    }
+
+    int index = sheetFilter.getSharedStringIndex();
+    if (index >= 0 && index < sharedStrings.length) {
+      String canonical = sharedStrings[index];
+      if (null == canonical) {
+        sharedStrings[index] = value;
+        return value;
+      }
+      return canonical;
+    }
+
+    Map<String, String> dictionary = getColumnDictionary(cellReference);
+    if (null == dictionary) {
+      return value;
+    }
+
+    String canonical = dictionary.get(value);
+    if (null != canonical) {
+      return canonical;
+    }
+    if (dictionary.size() < dictionarySize) {
+      dictionary.put(value, value);
+    }
+    return value;
+  }
+
+  private Map<String, String> getColumnDictionary(String cellReference) {
+    int column = ExcelCellReferences.getColumnIndex(cellReference);
+    if (column < 0) {
+      return null;
+    }
+
+    if (column >= columnDictionaries.length) {
+      columnDictionaries = Arrays.copyOf(columnDictionaries, Math.max(column + 1,
+          columnDictionaries.length * 2));
+    }
+
+    Map<String, String> dictionary = columnDictionaries[column];
+    if (null == dictionary) {
+      dictionary = new HashMap<String, String>();
+      columnDictionaries[column] = dictionary;
+    }
+    return dictionary;
+  }
+}
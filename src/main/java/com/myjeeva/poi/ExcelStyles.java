@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Lean reader of the Workbook styles part (styles.xml), only what streaming needs: the number format
+ * codes (numFmts) and the number format id of every cell style (cellXfs). Parsed with SAX, so the
+ * OOXML schema classes behind {@link org.apache.poi.xssf.model.StylesTable} are never loaded.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+class ExcelStyles extends DefaultHandler {
+
+  private static final int INITIAL_STYLES = 64;
+
+  private final Map<Integer, String> numberFormats = new HashMap<Integer, String>();
+  private short[] formatIndexes = new short[INITIAL_STYLES];
+  private int styleCount;
+  private boolean cellXfsOpen;
+
+  private ExcelStyles() {
+    // use read
+  }
+
+  /**
+   * Reads styles from given stream, null stream gives empty styles
+   * 
+   * @param stream a {@link InputStream} object - styles.xml (can be null)
+   * @param saxFactory a {@link SAXParserFactory} object - namespace aware factory
+   * @return ExcelStyles
+   * @throws IOException
+   * @throws SAXException
+   * @throws ParserConfigurationException
+   */
+  static ExcelStyles read(InputStream stream, SAXParserFactory saxFactory) throws IOException,
+      SAXException, ParserConfigurationException {
+    ExcelStyles styles = new ExcelStyles();
+    if (null != stream) {
+      XMLReader parser = saxFactory.newSAXParser().getXMLReader();
+      parser.setContentHandler(styles);
+      parser.parse(new InputSource(stream));
+    }
+    return styles;
+  }
+
+  /**
+   * Returns number of cell styles
+   * 
+   * @return int
+   */
+  int getStyleCount() {
+    return styleCount;
+  }
+
+  /**
+   * Returns number format id of given cell style, -1 if the style doesn't exist
+   * 
+   * @param styleIndex a <code>int</code> - value of the cell 's' attribute
+   * @return short
+   */
+  short getFormatIndex(int styleIndex) {
+    if (styleIndex < 0 || styleIndex >= styleCount) {
+      return -1;
+    }
+    return formatIndexes[styleIndex];
+  }
+
+  /**
+   * Returns number format code of given cell style, custom format first then built-in format. Null
+   * if the style doesn't exist or the format is unknown.
+   * 
+   * @param styleIndex a <code>int</code> - value of the cell 's' attribute
+   * @return String
+   */
+  String getFormatString(int styleIndex) {
+    short formatIndex = getFormatIndex(styleIndex);
+    if (formatIndex < 0) {
+      return null;
+    }
+
+    String formatString = numberFormats.get(Integer.valueOf(formatIndex));
+    if (null == formatString) {
+      formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+    }
+    return formatString;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes attributes)
+      throws SAXException {
+    if ("numFmt".equals(localName)) {
+      String id = attributes.getValue("numFmtId");
+      String code = attributes.getValue("formatCode");
+      if (null != id && null != code) {
+        numberFormats.put(Integer.valueOf(id), code);
+      }
+    } else if ("cellXfs".equals(localName)) {
+      cellXfsOpen = true;
+    } else if (cellXfsOpen && "xf".equals(localName)) {
+      String id = attributes.getValue("numFmtId");
+      if (styleCount == formatIndexes.length) {
+        short[] grown = new short[styleCount * 2];
+        System.arraycopy(formatIndexes, 0, grown, 0, styleCount);
+        formatIndexes = grown;
+      }
+      formatIndexes[styleCount++] = (null == id) ? 0 : Short.parseShort(id);
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    if ("cellXfs".equals(localName)) {
+      cellXfsOpen = false;
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+/**
+ * Generic Excel WorkSheet handler for immutable row types. Cell values of a row are collected into a
+ * flat slot array and the canonical constructor (or a static factory method) is called once at the
+ * end of the row, so no public no-arg constructor nor setters are needed.
+ * 
+ * <br>
+ * <br>
+ * Cell mapping is the same as {@link ExcelWorkSheetHandler}, column reference to property name.
+ * The property names given as parameter names fix the argument order, each mapped parameter must
+ * accept a {@link String}. Mapping, constructor and column slots are resolved at construction.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelWorkSheetConstructorHandler&lt;PersonValue> workSheetHandler = new ExcelWorkSheetConstructorHandler&lt;PersonValue>(PersonValue.class, cellMapping, "personId", "name", "height", "emailId", "dob", "salary");</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelWorkSheetConstructorHandler<T> implements SheetContentsHandler,
+    ExcelSheetDimensionCallback {
+
+  private static final Log LOG = LogFactory.getLog(ExcelWorkSheetConstructorHandler.class);
+
+  private final static String HEADER_KEY = "HEADER";
+  private boolean verifiyHeader = true;
+  private int skipRows = 0;
+  private int HEADER_ROW = 0;
+  private int currentRow = 0;
+  private boolean rowHasValue = false;
+  private ArrayList<T> valueList;
+  private Class<T> type;
+  private Constructor<T> constructor;
+  private Method factoryMethod;
+  private int[] columnSlots;
+  private Object[] slots;
+  private List<String> headerValues;
+
+  /**
+   * Constructor: binds rows through the constructor of given type
+   * 
+   * @param type a {@link Class} object
+   * @param cellMapping a {@link Map} object
+   * @param parameterNames a {@link String} array - mapped property names in constructor order
+   */
+  public ExcelWorkSheetConstructorHandler(Class<T> type, Map<String, String> cellMapping,
+      String... parameterNames) {
+    this.type = type;
+    this.constructor = findConstructor(type, parameterNames.length);
+    this.init(cellMapping, parameterNames);
+  }
+
+  /**
+   * Constructor: binds rows through a public static factory method of given type
+   * 
+   * @param type a {@link Class} object
+   * @param factoryMethodName a {@link String} object - name of the static factory method
+   * @param cellMapping a {@link Map} object
+   * @param parameterNames a {@link String} array - mapped property names in factory method order
+   */
+  public ExcelWorkSheetConstructorHandler(Class<T> type, String factoryMethodName,
+      Map<String, String> cellMapping, String... parameterNames) {
+    this.type = type;
+    this.factoryMethod = findFactoryMethod(type, factoryMethodName, parameterNames.length);
+    this.init(cellMapping, parameterNames);
+  }
+
+  /**
+   * Returns Value List (List&lt;T>) read from Excel Workbook, Row represents one Object in a List.
+   * 
+   * @return List&lt;T>
+   */
+  public List<T> getValueList() {
+    return valueList;
+  }
+
+  /**
+   * Returns Excel Header check state, default it is enabled
+   * 
+   * @return boolean
+   */
+  public boolean isVerifiyHeader() {
+    return verifiyHeader;
+  }
+
+  /**
+   * To set the Excel Header check state, default it is enabled
+   * 
+   * @param verifiyHeader a boolean
+   */
+  public void setVerifiyHeader(boolean verifiyHeader) {
+    this.verifiyHeader = verifiyHeader;
+  }
+
+  /**
+   * To set number rows to skip (zero based), default is 0
+   * 
+   * @param skipRows a <code>int</code>
+   */
+  public void setSkipRows(int skipRows) {
+    this.skipRows = skipRows;
+  }
+
+  /**
+   * Presizes the value list to the declared data rows
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    int rows = dimension.getRowCapacity(Math.max(HEADER_ROW + 1, skipRows));
+    valueList.ensureCapacity(valueList.size() + rows);
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#startRow(int)
+   */
+  @Override
+  public void startRow(int rowNum) {
+    this.currentRow = rowNum;
+    this.rowHasValue = false;
+    Arrays.fill(slots, null);
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#cell(java.lang.String,
+   *      java.lang.String)
+   */
+  @Override
+  public void cell(String cellReference, String formattedValue) {
+    if (currentRow < skipRows || StringUtils.isBlank(formattedValue)) {
+      return;
+    }
+
+    int column = ExcelCellReferences.getColumnIndex(cellReference);
+    if (column < 0 || column >= columnSlots.length || columnSlots[column] < 0) {
+      LOG.error("Cell mapping doesn't exists!");
+      return;
+    }
+
+    slots[columnSlots[column]] = formattedValue;
+    rowHasValue = true;
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#endRow()
+   */
+  @Override
+  public void endRow() {
+    if (currentRow < skipRows) {
+      return;
+    }
+
+    if (HEADER_ROW == currentRow) {
+      if (verifiyHeader && !checkHeaderValues()) {
+        throw new RuntimeException("Header values doesn't match, so invalid Excel file!");
+      }
+      return;
+    }
+
+    if (rowHasValue) {
+      T value = this.newInstance();
+      if (null != value) {
+        this.valueList.add(value);
+      }
+    }
+  }
+
+  /**
+   * Currently not considered for implementation
+   * 
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#headerFooter(java.lang.String,
+   *      boolean, java.lang.String)
+   */
+  @Override
+  public void headerFooter(String text, boolean isHeader, String tagName) {
+    // currently not consider for implementation
+  }
+
+  private void init(Map<String, String> cellMapping, String[] parameterNames) {
+    this.slots = new Object[parameterNames.length];
+    this.valueList = new ArrayList<T>();
+
+    List<String> names = Arrays.asList(parameterNames);
+    int maxColumn = -1;
+    for (String key : cellMapping.keySet()) {
+      if (!StringUtils.equalsIgnoreCase(HEADER_KEY, key)) {
+        maxColumn = Math.max(maxColumn, CellReference.convertColStringToIndex(key));
+      }
+    }
+
+    this.columnSlots = new int[maxColumn + 1];
+    Arrays.fill(columnSlots, -1);
+    for (Map.Entry<String, String> entry : cellMapping.entrySet()) {
+      if (StringUtils.equalsIgnoreCase(HEADER_KEY, entry.getKey())) {
+        this.headerValues = Arrays.asList(entry.getValue().split(","));
+        continue;
+      }
+
+      int slot = names.indexOf(entry.getValue());
+      if (slot < 0) {
+        throw new IllegalArgumentException("Mapped property (" + entry.getValue()
+            + ") is not a parameter of " + type.getName());
+      }
+      columnSlots[CellReference.convertColStringToIndex(entry.getKey())] = slot;
+    }
+  }
+
+  private T newInstance() {
+    try {
+      if (null != constructor) {
+        return constructor.newInstance(slots);
+      }
+      return type.cast(factoryMethod.invoke(null, slots));
+    } catch (InstantiationException ie) {
+      LOG.error(ie.getMessage());
+    } catch (IllegalAccessException iae) {
+      LOG.error(iae.getMessage());
+    } catch (InvocationTargetException ite) {
+      LOG.error(ite.getTargetException().getMessage());
+    }
+    return null;
+  }
+
+  private boolean checkHeaderValues() {
+    if (null == headerValues) {
+      LOG.warn("HEADER_KEY doesn't exists");
+      return true;
+    }
+
+    for (int i = 0; i < slots.length; i++) {
+      if (isMapped(i) && !headerValues.contains(slots[i])) {
+        LOG.debug("Header value from excel file not expected: " + slots[i]);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isMapped(int slot) {
+    for (int columnSlot : columnSlots) {
+      if (columnSlot == slot) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Constructor<T> findConstructor(Class<T> type, int parameterCount) {
+    for (Constructor<?> candidate : type.getConstructors()) {
+      if (acceptsStrings(candidate.getParameterTypes(), parameterCount)) {
+        return (Constructor<T>) candidate;
+      }
+    }
+    throw new IllegalArgumentException("No public constructor of " + type.getName() + " with "
+        + parameterCount + " String parameters");
+  }
+
+  private static Method findFactoryMethod(Class<?> type, String name, int parameterCount) {
+    for (Method candidate : type.getMethods()) {
+      if (candidate.getName().equals(name) && Modifier.isStatic(candidate.getModifiers())
+          && type.isAssignableFrom(candidate.getReturnType())
+          && acceptsStrings(candidate.getParameterTypes(), parameterCount)) {
+        return candidate;
+      }
+    }
+    throw new IllegalArgumentException("No public static factory method " + type.getName() + "."
+        + name + " with " + parameterCount + " String parameters");
+  }
+
+  private static boolean acceptsStrings(Class<?>[] parameterTypes, int parameterCount) {
+    if (parameterTypes.length != parameterCount) {
+      return false;
+    }
+    for (Class<?> parameterType : parameterTypes) {
+      if (!parameterType.isAssignableFrom(String.class)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
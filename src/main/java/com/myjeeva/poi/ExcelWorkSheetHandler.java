@@ -21,39 +21,44 @@
  */
 package com.myjeeva.poi;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
 
 /**
- * Generic Excel WorkSheet handler
+ * Generic Excel WorkSheet handler. Holds the state of one parse only, the cell mapping is compiled
+ * into a shared {@link ExcelMappingPlan}, so creating a handler per file costs next to nothing.
  * 
  * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
  * 
  * @since v1.0
  */
-public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
+public class ExcelWorkSheetHandler<T> implements SheetContentsHandler, ExcelRowRejectionAware,
+    ExcelSheetDimensionCallback {
 
   private static final Log LOG = LogFactory.getLog(ExcelWorkSheetHandler.class);
 
-  private final static String HEADER_KEY = "HEADER";
   private boolean verifiyHeader = true;
   private int skipRows = 0;
   private int HEADER_ROW = 0;
   private int currentRow = 0;
   private List<T> valueList;
-  private Class<T> type;
-  private Map<String, String> cellMapping = null;
+  private final ExcelMappingPlan<T> plan;
   private T objCurrentRow = null;
   private T objHeader = null;
+  private ExcelRowFilter rowFilter = null;
+  private boolean rowRejected = false;
+  private boolean rowHasValue = false;
+  private boolean[] predicateSeen;
+  private int predicateSeenCount = 0;
+  private List<String> pendingColumns = new ArrayList<String>();
+  private List<String> pendingValues = new ArrayList<String>();
 
   /**
    * Constructor
@@ -67,9 +72,7 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
    * @param cellMapping a {@link Map} object
    */
   public ExcelWorkSheetHandler(Class<T> type, Map<String, String> cellMapping) {
-    this.type = type;
-    this.cellMapping = cellMapping;
-    this.valueList = new ArrayList<T>();
+    this(ExcelMappingPlan.of(type, cellMapping));
   }
 
   /**
@@ -85,14 +88,51 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
    * @param skipRows a <code>int</code> object - Number rows to skip (zero based). default is 0
    */
   public ExcelWorkSheetHandler(Class<T> type, Map<String, String> cellMapping, int skipRows) {
-    this.type = type;
-    this.cellMapping = cellMapping;
+    this(ExcelMappingPlan.of(type, cellMapping), skipRows);
+  }
+
+  /**
+   * Constructor: handler over a compiled mapping plan
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>ExcelWorkSheetHandler&lt;PersonVO> workSheetHandler = new ExcelWorkSheetHandler&lt;PersonVO>(ExcelMappingPlan.of(PersonVO.class, cellMapping));</code>
+   * 
+   * @param plan a {@link ExcelMappingPlan} object
+   */
+  public ExcelWorkSheetHandler(ExcelMappingPlan<T> plan) {
+    this(plan, 0);
+  }
+
+  /**
+   * Constructor: handler over a compiled mapping plan
+   * 
+   * @param plan a {@link ExcelMappingPlan} object
+   * @param skipRows a <code>int</code> object - Number rows to skip (zero based). default is 0
+   */
+  public ExcelWorkSheetHandler(ExcelMappingPlan<T> plan, int skipRows) {
+    if (null == plan) {
+      throw new IllegalArgumentException("Mapping plan cannot be null");
+    }
+
+    this.plan = plan;
     this.valueList = new ArrayList<T>();
     this.skipRows = skipRows;
   }
 
+  /**
+   * Returns the mapping plan the handler binds rows with
+   * 
+   * @return ExcelMappingPlan&lt;T>
+   */
+  ExcelMappingPlan<T> getPlan() {
+    return plan;
+  }
+
   /**
    * Returns Value List (List&lt;T>) read from Excel Workbook, Row represents one Object in a List.
+   * With a heap budget set it is an {@link ExcelSpillList}, close it once done.
    * 
    * <br>
    * <br>
@@ -105,6 +145,41 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
     return valueList;
   }
 
+  /**
+   * To set a heap budget for the value list, rows past it are written to a temp file in the
+   * default temp directory and read back lazily. See {@link #setHeapBudget(long, File)}.
+   * 
+   * @param heapBudget a <code>long</code> - estimated heap bytes of rows kept in memory
+   */
+  public void setHeapBudget(long heapBudget) {
+    this.setHeapBudget(heapBudget, null);
+  }
+
+  /**
+   * To set a heap budget for the value list. Rows are kept on the heap until their estimated size
+   * reaches the budget, rows past it are written to a temp file in a compact binary form and
+   * deserialized lazily when accessed, see {@link ExcelSpillList}. The mapped properties need a
+   * getter as well. Rows read so far are moved to the new value list.
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong> 64 MB of rows on the heap<br>
+   * <code>workSheetHandler.setHeapBudget(64L * 1024 * 1024, new File("/var/tmp"));</code>
+   * 
+   * @param heapBudget a <code>long</code> - estimated heap bytes of rows kept in memory
+   * @param spillDirectory a {@link File} object - directory of the temp file (can be null, for the
+   *        default temp directory)
+   */
+  public void setHeapBudget(long heapBudget, File spillDirectory) {
+    List<T> rows = this.valueList;
+    this.valueList =
+        new ExcelSpillList<T>(plan, heapBudget, spillDirectory);
+    this.valueList.addAll(rows);
+    if (rows instanceof ExcelSpillList) {
+      ((ExcelSpillList<T>) rows).close();
+    }
+  }
+
   /**
    * Returns Excel Header check state, default it is enabled
    * 
@@ -123,19 +198,74 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
     this.verifiyHeader = verifiyHeader;
   }
 
+  /**
+   * Returns the row filter, null if all rows are read
+   * 
+   * @return ExcelRowFilter
+   */
+  public ExcelRowFilter getRowFilter() {
+    return rowFilter;
+  }
+
+  /**
+   * To set a row filter. Predicates are evaluated on the cell values of selected columns as they
+   * arrive, the row object is created and bound only once all predicates accept the row. Rest of a
+   * rejected row is skipped by the reader.
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>workSheetHandler.setRowFilter(new ExcelRowFilter().whereEquals("G", "ACTIVE"));</code>
+   * 
+   * @param rowFilter a {@link ExcelRowFilter} object (can be null)
+   */
+  public void setRowFilter(ExcelRowFilter rowFilter) {
+    this.rowFilter = rowFilter;
+    this.predicateSeen = (null == rowFilter) ? null : new boolean[rowFilter.size()];
+  }
+
+  /**
+   * @see com.myjeeva.poi.ExcelRowRejectionAware#isRowRejected()
+   */
+  @Override
+  public boolean isRowRejected() {
+    return rowRejected;
+  }
+
+  /**
+   * Presizes the value list to the declared data rows, unless a row filter is set
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    if (null == rowFilter && valueList instanceof ArrayList) {
+      int rows = dimension.getRowCapacity(Math.max(HEADER_ROW + 1, skipRows));
+      ((ArrayList<T>) valueList).ensureCapacity(valueList.size() + rows);
+    }
+  }
+
   /**
    * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#startRow(int)
    */
   @Override
   public void startRow(int rowNum) {
     this.currentRow = rowNum;
+    this.rowRejected = false;
+    this.rowHasValue = false;
 
-    if (verifiyHeader) {
+    if (verifiyHeader && HEADER_ROW == rowNum) {
       objHeader = this.getInstance();
     }
 
     if (rowNum > HEADER_ROW && rowNum >= skipRows) {
-      objCurrentRow = this.getInstance();
+      if (null == rowFilter) {
+        objCurrentRow = this.getInstance();
+      } else {
+        // Row object is created once the filter accepts the row
+        objCurrentRow = null;
+        resetRowFilter();
+      }
     }
   }
 
@@ -152,10 +282,15 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
       }
 
       if (HEADER_ROW == currentRow && verifiyHeader) {
-        this.assignValue(objHeader, getCellReference(cellReference), formattedValue);
+        this.assignValue(objHeader, cellReference, formattedValue);
       }
 
-      this.assignValue(objCurrentRow, getCellReference(cellReference), formattedValue);
+      if (null != rowFilter && null == objCurrentRow && currentRow > HEADER_ROW) {
+        this.filterValue(cellReference, formattedValue);
+        return;
+      }
+
+      this.assignValue(objCurrentRow, cellReference, formattedValue);
     }
   }
 
@@ -170,8 +305,12 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
       }
     }
 
+    if (null != rowFilter && currentRow > HEADER_ROW && currentRow >= skipRows) {
+      this.completeRowFilter();
+    }
+
     if (currentRow >= skipRows) {
-      if (null != objCurrentRow && isObjectHasValue(objCurrentRow)) {
+      if (null != objCurrentRow && rowHasValue) {
         // Current row data is populated in the object, so add it to
         // list
         this.valueList.add(objCurrentRow);
@@ -201,96 +340,98 @@ public class ExcelWorkSheetHandler<T> implements SheetContentsHandler {
     return cellReference.split("[0-9]*$")[0];
   }
 
-  private void assignValue(Object targetObj, String cellReference, String value) {
-    if (null == targetObj || StringUtils.isEmpty(cellReference) || StringUtils.isEmpty(value)) {
+  private void resetRowFilter() {
+    for (int i = 0; i < predicateSeen.length; i++) {
+      predicateSeen[i] = false;
+    }
+    predicateSeenCount = 0;
+    pendingColumns.clear();
+    pendingValues.clear();
+  }
+
+  /**
+   * Evaluates the row filter on given cell, values are held back until every predicate has accepted
+   * the row
+   */
+  private void filterValue(String cellReference, String value) {
+    if (rowRejected) {
       return;
     }
 
-    try {
-      String propertyName = this.cellMapping.get(cellReference);
-      if (null == propertyName) {
-        LOG.error("Cell mapping doesn't exists!");
-      } else {
-        PropertyUtils.setSimpleProperty(targetObj, propertyName, value);
+    int index = rowFilter.indexOf(getCellReference(cellReference));
+    if (index >= 0 && !predicateSeen[index]) {
+      if (!rowFilter.test(index, value)) {
+        rowRejected = true;
+        return;
       }
-    } catch (IllegalAccessException iae) {
-      LOG.error(iae.getMessage());
-    } catch (InvocationTargetException ite) {
-      LOG.error(ite.getMessage());
-    } catch (NoSuchMethodException nsme) {
-      LOG.error(nsme.getMessage());
+      predicateSeen[index] = true;
+      predicateSeenCount++;
     }
-  }
 
-  private T getInstance() {
-    try {
-      return type.newInstance();
-    } catch (InstantiationException ie) {
-      LOG.error(ie.getMessage());
-    } catch (IllegalAccessException iae) {
-      LOG.error(iae.getMessage());
+    pendingColumns.add(cellReference);
+    pendingValues.add(value);
+
+    if (predicateSeenCount == predicateSeen.length) {
+      this.bindPendingValues();
     }
-    return null;
   }
 
   /**
-   * To check generic object of T has a minimum one value assigned or not
+   * Tests the predicates of columns missing in the row and binds the row if accepted
    */
-  private boolean isObjectHasValue(Object targetObj) {
-    for (Map.Entry<String, String> entry : cellMapping.entrySet()) {
-      if (!StringUtils.equalsIgnoreCase(HEADER_KEY, entry.getKey())) {
-        if (StringUtils.isNotBlank(getPropertyValue(targetObj, entry.getValue()))) {
-          return true;
-        }
+  private void completeRowFilter() {
+    if (rowRejected || null != objCurrentRow) {
+      return;
+    }
+
+    for (int i = 0; i < predicateSeen.length; i++) {
+      if (!predicateSeen[i] && !rowFilter.test(i, null)) {
+        rowRejected = true;
+        return;
       }
     }
-    return false;
+
+    this.bindPendingValues();
   }
 
-  private boolean checkHeaderValues(Object targetObj) {
-    boolean compareSuccess = true;
-    if (cellMapping.containsKey(HEADER_KEY)) {
-      List<String> valueToCheck = Arrays.asList(cellMapping.get(HEADER_KEY).split(","));
-
-      for (Map.Entry<String, String> entry : cellMapping.entrySet()) {
-        if (!StringUtils.equalsIgnoreCase(HEADER_KEY, entry.getKey())) {
-          String value = getPropertyValue(targetObj, entry.getValue());
-          LOG.debug("Comparing header value from excel file: " + value);
-          if (!valueToCheck.contains(value)) {
-            compareSuccess = false;
-            break;
-          }
-        }
-      }
-    } else {
-      LOG.warn("HEADER_KEY doesn't exists");
+  private void bindPendingValues() {
+    objCurrentRow = this.getInstance();
+    for (int i = 0; i < pendingColumns.size(); i++) {
+      this.assignValue(objCurrentRow, pendingColumns.get(i), pendingValues.get(i));
     }
-    return compareSuccess;
+    pendingColumns.clear();
+    pendingValues.clear();
   }
 
-  private String getPropertyValue(Object targetObj, String propertyName) {
-    String value = "";
-    if (null == targetObj || StringUtils.isBlank(propertyName)) {
-      LOG.error("targetObj or propertyName is null, both require to retrieve a value");
-      return value;
+  private void assignValue(Object targetObj, String cellReference, String value) {
+    if (null == targetObj || StringUtils.isEmpty(cellReference) || StringUtils.isEmpty(value)) {
+      return;
+    }
+
+    if (plan.setValue(targetObj, ExcelCellReferences.getColumnIndex(cellReference), value)) {
+      rowHasValue = true;
     }
+  }
+
+  private T getInstance() {
+    return plan.newInstance();
+  }
 
-    try {
-      if (PropertyUtils.isReadable(targetObj, propertyName)) {
-        Object v = PropertyUtils.getSimpleProperty(targetObj, propertyName);
-        if (null != v && StringUtils.isNotBlank(v.toString())) {
-          value = v.toString();
+  private boolean checkHeaderValues(Object targetObj) {
+    boolean compareSuccess = true;
+    List<String> valueToCheck = plan.getHeaderValues();
+    if (null != valueToCheck) {
+      for (String property : plan.getProperties()) {
+        String value = plan.getValue(targetObj, property);
+        LOG.debug("Comparing header value from excel file: " + value);
+        if (!valueToCheck.contains(value)) {
+          compareSuccess = false;
+          break;
         }
-      } else {
-        LOG.error("Given property (" + propertyName + ") is not readable!");
       }
-    } catch (IllegalAccessException iae) {
-      LOG.error(iae.getMessage());
-    } catch (InvocationTargetException ite) {
-      LOG.error(ite.getMessage());
-    } catch (NoSuchMethodException nsme) {
-      LOG.error(nsme.getMessage());
+    } else {
+      LOG.warn("HEADER_KEY doesn't exists");
     }
-    return value;
+    return compareSuccess;
   }
 }
@@ -54,12 +54,17 @@ import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandl
  * 
  * @since v1.1
  */
-public class ExcelWorkSheetRowCallbackHandler implements SheetContentsHandler {
+public class ExcelWorkSheetRowCallbackHandler implements SheetContentsHandler,
+    ExcelSheetDimensionCallback {
 
   private static final Log LOG = LogFactory.getLog(ExcelWorkSheetRowCallbackHandler.class);
 
   private static final int HEADER_ROW = 0;
 
+  private static final int DEFAULT_MAP_CAPACITY = 16;
+
+  private static final int MAX_INITIAL_COLUMNS = 1024;
+
   // once an entire row of data has been read, pass map to this callback for
   // processing
   private ExcelRowContentCallback rowCallback;
@@ -71,11 +76,25 @@ public class ExcelWorkSheetRowCallbackHandler implements SheetContentsHandler {
   private LinkedHashMap<String, String> columnHeaders; // map of column references => column headers
                                                        // (eg, 'A' => 'Product Title' )
   private int currentRow;
+  private int headerCapacity = DEFAULT_MAP_CAPACITY; // sized from the sheet dimension, row maps
+                                                     // from the header
 
   public ExcelWorkSheetRowCallbackHandler(ExcelRowContentCallback rowCallbackHandler) {
     this.rowCallback = rowCallbackHandler;
   }
 
+  /**
+   * Presizes the header map to the declared columns, up to {@value #MAX_INITIAL_COLUMNS}
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    int columns = Math.min(dimension.getColumnCapacity(), dimension.getColumnCount());
+    columns = Math.min(columns, MAX_INITIAL_COLUMNS);
+    this.headerCapacity = Math.max(DEFAULT_MAP_CAPACITY, (int) (columns / 0.75f) + 1);
+  }
+
   /**
    * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#startRow(int)
    */
@@ -85,9 +104,11 @@ public class ExcelWorkSheetRowCallbackHandler implements SheetContentsHandler {
     this.currentRow = rowNum;
 
     if (this.currentRow == HEADER_ROW) {
-      this.columnHeaders = new LinkedHashMap<String, String>();
+      this.columnHeaders = new LinkedHashMap<String, String>(headerCapacity);
     } else {
-      this.currentRowMap = new LinkedHashMap<String, String>();
+      // sized for the header columns, whatever the declared dimension
+      this.currentRowMap =
+          new LinkedHashMap<String, String>((int) (columnHeaders.size() / 0.75f) + 1);
 
       // Add column header as key into current row map so that each entry
       // will exist. This ensures each column header will be in the "currentRowMap"
@@ -0,0 +1,225 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Excel Worksheet Handler delivering rows as header name to {@link CharSequence} maps, the
+ * allocation free counterpart of {@link ExcelWorkSheetRowCallbackHandler}. Cell values are copied
+ * into one row buffer reused for every row and handed to the {@link ExcelRowSequenceCallback} as
+ * views over it, so no String is created per cell; a value is valid only while the callback runs.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelWorkSheetRowSequenceHandler handler =
+ * <br>&nbsp;&nbsp;new ExcelWorkSheetRowSequenceHandler(new ExcelRowSequenceCallback() {
+ * <br>&nbsp;&nbsp;public void processRow(int rowNum, Map&lt;String, CharSequence> map) {
+ * <br>&nbsp;&nbsp;&nbsp;&nbsp;if (StringUtils.startsWith(map.get("Email Address"), "admin@")) {
+ * <br>&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;admins.add(map.get("Name").toString());
+ * <br>&nbsp;&nbsp;&nbsp;&nbsp;}
+ * <br>&nbsp;&nbsp;}
+ * <br>});</code>
+ * 
+ * <p>
+ * Cells of columns without a header value are ignored.
+ * </p>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelWorkSheetRowSequenceHandler implements ExcelCellSequenceHandler,
+    ExcelSheetDimensionCallback {
+
+  private static final Log LOG = LogFactory.getLog(ExcelWorkSheetRowSequenceHandler.class);
+
+  private static final int HEADER_ROW = 0;
+
+  private static final int DEFAULT_MAP_CAPACITY = 16;
+
+  private final ExcelRowSequenceCallback rowCallback;
+  private final StringBuilder rowBuffer = new StringBuilder(256);
+  private LinkedHashMap<String, CharSequence> currentRowMap; // header => view of the row value
+  private CellView[] columnViews = new CellView[0]; // by column index, null without header
+  private int currentRow;
+  private int mapCapacity = DEFAULT_MAP_CAPACITY;
+
+  /**
+   * Constructor
+   * 
+   * @param rowCallback a {@link ExcelRowSequenceCallback} object
+   */
+  public ExcelWorkSheetRowSequenceHandler(ExcelRowSequenceCallback rowCallback) {
+    this.rowCallback = rowCallback;
+  }
+
+  /**
+   * Presizes the header map to the declared columns
+   * 
+   * @see com.myjeeva.poi.ExcelSheetDimensionCallback#sheetDimension(com.myjeeva.poi.ExcelSheetDimension)
+   */
+  @Override
+  public void sheetDimension(ExcelSheetDimension dimension) {
+    int columns = Math.min(dimension.getColumnCapacity(), dimension.getColumnCount());
+    this.mapCapacity = Math.max(DEFAULT_MAP_CAPACITY, (int) (columns / 0.75f) + 1);
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#startRow(int)
+   */
+  @Override
+  public void startRow(int rowNum) {
+    this.currentRow = rowNum;
+
+    if (this.currentRow == HEADER_ROW) {
+      this.currentRowMap = new LinkedHashMap<String, CharSequence>(mapCapacity);
+      this.columnViews = new CellView[0];
+    } else {
+      // Columns without a cell in this row stay empty
+      this.rowBuffer.setLength(0);
+      for (CellView view : columnViews) {
+        if (null != view) {
+          view.set(0, 0);
+        }
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#cell(java.lang.String,
+   *      java.lang.String)
+   */
+  @Override
+  public void cell(String cellReference, String formattedValue) {
+    this.cell(cellReference, (CharSequence) formattedValue);
+  }
+
+  /**
+   * @see com.myjeeva.poi.ExcelCellSequenceHandler#cell(java.lang.String, java.lang.CharSequence)
+   */
+  @Override
+  public void cell(String cellReference, CharSequence value) {
+    int column = ExcelCellReferences.getColumnIndex(cellReference);
+    if (column < 0) {
+      return;
+    }
+
+    if (this.currentRow == HEADER_ROW) {
+      if (null == value || 0 == value.length()) {
+        return;
+      }
+      if (column >= columnViews.length) {
+        columnViews = Arrays.copyOf(columnViews, column + 1);
+      }
+      CellView view = new CellView(rowBuffer);
+      columnViews[column] = view;
+      currentRowMap.put(value.toString(), view);
+    } else if (column < columnViews.length && null != columnViews[column]) {
+      int start = rowBuffer.length();
+      if (null != value) {
+        rowBuffer.append(value);
+      }
+      columnViews[column].set(start, rowBuffer.length());
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#endRow()
+   */
+  @Override
+  public void endRow() {
+    if (this.currentRow > HEADER_ROW) {
+      try {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("rowNum=" + currentRow + ", map=" + currentRowMap);
+        }
+
+        this.rowCallback.processRow(currentRow, currentRowMap);
+      } catch (Exception e) {
+        throw new RuntimeException("Error invoking callback", e);
+      }
+    }
+  }
+
+  /**
+   * @see org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler#headerFooter(java.lang.String,
+   *      boolean, java.lang.String)
+   */
+  @Override
+  public void headerFooter(String text, boolean isHeader, String tagName) {
+    // headers and footers are not processed
+  }
+
+  /**
+   * View of one cell value within the row buffer
+   */
+  private static final class CellView implements CharSequence {
+    private final StringBuilder buffer;
+    private int start;
+    private int end;
+
+    CellView(StringBuilder buffer) {
+      this.buffer = buffer;
+    }
+
+    void set(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= end - start) {
+        throw new IndexOutOfBoundsException("index: " + index + ", length: " + (end - start));
+      }
+      return buffer.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      if (from < 0 || to > end - start || from > to) {
+        throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: "
+            + (end - start));
+      }
+      return buffer.substring(start + from, start + to);
+    }
+
+    /**
+     * Returns a copy of the value, to be used for values kept beyond the callback
+     */
+    @Override
+    public String toString() {
+      return buffer.substring(start, end);
+    }
+  }
+}
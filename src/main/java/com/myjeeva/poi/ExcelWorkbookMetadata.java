@@ -0,0 +1,406 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Workbook level metadata needed to stream WorkSheets: shared strings, styles, the sheets in
+ * workbook order and the defined names. Parsed once per {@link ExcelReader} and reused by every
+ * read. Excel Tables are parsed from the table parts of the sheets on first lookup.
+ * 
+ * <br>
+ * <br>
+ * workbook.xml and styles.xml are read with SAX for only the sheet names, relationship targets,
+ * number formats and cell style format ids, so the XMLBeans backed OOXML schema classes are never
+ * loaded nor their object models built.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+class ExcelWorkbookMetadata {
+
+  private static final String RELATIONSHIPS_NS =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+  private static final String WORKSHEET_RELATION = RELATIONSHIPS_NS + "/worksheet";
+  private static final String CHARTSHEET_RELATION = RELATIONSHIPS_NS + "/chartsheet";
+  private static final String TABLE_RELATION = RELATIONSHIPS_NS + "/table";
+  private static final String SHARED_STRINGS_CONTENT_TYPE =
+      "application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml";
+  private static final String STYLES_CONTENT_TYPE =
+      "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml";
+
+  private final ReadOnlySharedStringsTable sharedStrings;
+  private final ExcelStyles styles;
+  private final List<String> sheetNames;
+  private final List<PackagePart> sheetParts;
+  private final PackagePart sharedStringsPart;
+  private final PackagePart stylesPart;
+  private final WorkbookHandler workbook;
+  private final SAXParserFactory saxFactory;
+  private List<ExcelCellRange> tables;
+
+  private ExcelWorkbookMetadata(ReadOnlySharedStringsTable sharedStrings, ExcelStyles styles,
+      List<String> sheetNames, List<PackagePart> sheetParts, PackagePart sharedStringsPart,
+      PackagePart stylesPart, WorkbookHandler workbook, SAXParserFactory saxFactory) {
+    this.sharedStrings = sharedStrings;
+    this.styles = styles;
+    this.sheetNames = Collections.unmodifiableList(sheetNames);
+    this.sheetParts = Collections.unmodifiableList(sheetParts);
+    this.sharedStringsPart = sharedStringsPart;
+    this.stylesPart = stylesPart;
+    this.workbook = workbook;
+    this.saxFactory = saxFactory;
+  }
+
+  /**
+   * Parses workbook metadata of given package
+   * 
+   * @param pkg a {@link OPCPackage} object
+   * @return ExcelWorkbookMetadata
+   * @throws IOException
+   * @throws SAXException
+   * @throws OpenXML4JException
+   * @throws ParserConfigurationException
+   */
+  static ExcelWorkbookMetadata read(OPCPackage pkg) throws IOException, SAXException,
+      OpenXML4JException, ParserConfigurationException {
+    SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+    saxFactory.setNamespaceAware(true);
+
+    PackageRelationship coreDocRelationship =
+        pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT).getRelationship(0);
+    PackagePart workbookPart = pkg.getPart(coreDocRelationship);
+
+    WorkbookHandler workbook = new WorkbookHandler();
+    parse(workbookPart, workbook, saxFactory);
+
+    List<String> sheetNames = new ArrayList<String>();
+    List<PackagePart> sheetParts = new ArrayList<PackagePart>();
+    for (int i = 0; i < workbook.sheetNames.size(); i++) {
+      PackageRelationship rel = workbookPart.getRelationship(workbook.sheetRelationIds.get(i));
+      if (null != rel && (WORKSHEET_RELATION.equals(rel.getRelationshipType())
+          || CHARTSHEET_RELATION.equals(rel.getRelationshipType()))) {
+        sheetNames.add(workbook.sheetNames.get(i));
+        sheetParts.add(pkg.getPart(PackagingURIHelper.createPartName(rel.getTargetURI())));
+      }
+    }
+
+    ReadOnlySharedStringsTable strings;
+    List<PackagePart> sstParts = pkg.getPartsByContentType(SHARED_STRINGS_CONTENT_TYPE);
+    if (sstParts.isEmpty()) {
+      strings = new ReadOnlySharedStringsTable(pkg);
+    } else {
+      strings = new ReadOnlySharedStringsTable(sstParts.get(0), null);
+    }
+
+    ExcelStyles styles;
+    List<PackagePart> styleParts = pkg.getPartsByContentType(STYLES_CONTENT_TYPE);
+    if (styleParts.isEmpty()) {
+      styles = ExcelStyles.read(null, saxFactory);
+    } else {
+      InputStream stream = styleParts.get(0).getInputStream();
+      try {
+        styles = ExcelStyles.read(stream, saxFactory);
+      } finally {
+        IOUtils.closeQuietly(stream);
+      }
+    }
+
+    return new ExcelWorkbookMetadata(strings, styles, sheetNames, sheetParts,
+        sstParts.isEmpty() ? null : sstParts.get(0), styleParts.isEmpty() ? null
+            : styleParts.get(0), workbook, saxFactory);
+  }
+
+  ReadOnlySharedStringsTable getSharedStrings() {
+    return sharedStrings;
+  }
+
+  ExcelStyles getStyles() {
+    return styles;
+  }
+
+  int getSheetCount() {
+    return sheetNames.size();
+  }
+
+  String getSheetName(int sheetIndex) {
+    return sheetNames.get(sheetIndex);
+  }
+
+  /**
+   * Opens the XML stream of given sheet, caller closes it
+   * 
+   * @param sheetIndex a <code>int</code> - zero based sheet index
+   * @return InputStream
+   * @throws IOException
+   */
+  InputStream openSheet(int sheetIndex) throws IOException {
+    return sheetParts.get(sheetIndex).getInputStream();
+  }
+
+  PackagePart getSheetPart(int sheetIndex) {
+    return sheetParts.get(sheetIndex);
+  }
+
+  /**
+   * Returns the shared strings part, null if the workbook has none
+   * 
+   * @return PackagePart
+   */
+  PackagePart getSharedStringsPart() {
+    return sharedStringsPart;
+  }
+
+  /**
+   * Returns the styles part, null if the workbook has none
+   * 
+   * @return PackagePart
+   */
+  PackagePart getStylesPart() {
+    return stylesPart;
+  }
+
+  /**
+   * Resolves an Excel Table name or a defined name (case insensitive) to its sheet and cell range.
+   * Tables win over defined names; a workbook scoped defined name wins over sheet scoped ones.
+   * 
+   * @param name a {@link String} object - table or defined name
+   * @return ExcelCellRange
+   * @throws IllegalArgumentException if the name doesn't exist or isn't a single cell range
+   * @throws IOException
+   * @throws SAXException
+   * @throws OpenXML4JException
+   * @throws ParserConfigurationException
+   */
+  ExcelCellRange getRange(String name) throws IOException, SAXException, OpenXML4JException,
+      ParserConfigurationException {
+    for (ExcelCellRange table : getTables()) {
+      if (table.getName().equalsIgnoreCase(name)) {
+        return table;
+      }
+    }
+
+    DefinedName definedName = null;
+    for (DefinedName candidate : workbook.definedNames) {
+      if (candidate.name.equalsIgnoreCase(name)
+          && (null == definedName || null == candidate.localSheetId)) {
+        definedName = candidate;
+      }
+    }
+    if (null == definedName) {
+      throw new IllegalArgumentException("No table or defined name '" + name
+          + "' in the workbook");
+    }
+
+    ExcelCellRange range = parseDefinedName(definedName);
+    if (null == range) {
+      throw new IllegalArgumentException("Defined name '" + name + "' (" + definedName.formula
+          + ") isn't a single cell range");
+    }
+    return range;
+  }
+
+  /**
+   * Parses a defined name formula like Sheet1!$B$3:$F$100 or 'My Sheet'!$A:$C
+   */
+  private ExcelCellRange parseDefinedName(DefinedName definedName) {
+    String formula = definedName.formula.trim();
+    int bang = formula.lastIndexOf('!');
+    if (bang < 1) {
+      return null;
+    }
+
+    String sheetName = formula.substring(0, bang);
+    if (sheetName.length() > 1 && sheetName.startsWith("'") && sheetName.endsWith("'")) {
+      sheetName = sheetName.substring(1, sheetName.length() - 1).replace("''", "'");
+    }
+    int sheetIndex = sheetNames.indexOf(sheetName);
+    if (sheetIndex < 0) {
+      return null;
+    }
+    return ExcelCellRange.parse(definedName.name, sheetIndex, formula.substring(bang + 1), null);
+  }
+
+  /**
+   * Returns the Excel Tables of all sheets, parsed on first use
+   */
+  private List<ExcelCellRange> getTables() throws IOException, SAXException,
+      OpenXML4JException, ParserConfigurationException {
+    if (null == tables) {
+      List<ExcelCellRange> parsed = new ArrayList<ExcelCellRange>();
+      for (int sheetIndex = 0; sheetIndex < sheetParts.size(); sheetIndex++) {
+        PackagePart sheetPart = sheetParts.get(sheetIndex);
+        for (PackageRelationship rel : sheetPart.getRelationshipsByType(TABLE_RELATION)) {
+          PackagePart tablePart =
+              sheetPart.getPackage().getPart(
+                  PackagingURIHelper.createPartName(PackagingURIHelper.resolvePartUri(sheetPart
+                      .getPartName().getURI(), rel.getTargetURI())));
+          if (null == tablePart) {
+            continue;
+          }
+
+          TableHandler table = new TableHandler();
+          parse(tablePart, table, saxFactory);
+          ExcelCellRange range = table.getRange(sheetIndex);
+          if (null != range) {
+            parsed.add(range);
+          }
+        }
+      }
+      tables = parsed;
+    }
+    return tables;
+  }
+
+  private static void parse(PackagePart part, DefaultHandler handler, SAXParserFactory saxFactory)
+      throws IOException, SAXException, ParserConfigurationException {
+    InputStream stream = part.getInputStream();
+    try {
+      XMLReader parser = saxFactory.newSAXParser().getXMLReader();
+      parser.setContentHandler(handler);
+      parser.parse(new InputSource(stream));
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+
+  /**
+   * Collects sheet names and relationship ids of workbook.xml in workbook order, and the defined
+   * names
+   */
+  private static class WorkbookHandler extends DefaultHandler {
+    private final List<String> sheetNames = new ArrayList<String>();
+    private final List<String> sheetRelationIds = new ArrayList<String>();
+    private final List<DefinedName> definedNames = new ArrayList<DefinedName>();
+    private DefinedName definedName;
+    private final StringBuilder text = new StringBuilder();
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+        throws SAXException {
+      if ("sheet".equals(localName)) {
+        sheetNames.add(attributes.getValue("name"));
+        sheetRelationIds.add(attributes.getValue(RELATIONSHIPS_NS, "id"));
+      } else if ("definedName".equals(localName)) {
+        definedName = new DefinedName(attributes.getValue("name"),
+            attributes.getValue("localSheetId"));
+        text.setLength(0);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if ("definedName".equals(localName) && null != definedName) {
+        definedName.formula = text.toString();
+        if (null != definedName.name) {
+          definedNames.add(definedName);
+        }
+        definedName = null;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+      if (null != definedName) {
+        text.append(ch, start, length);
+      }
+    }
+  }
+
+  private static class DefinedName {
+    private final String name;
+    private final String localSheetId;
+    private String formula;
+
+    DefinedName(String name, String localSheetId) {
+      this.name = name;
+      this.localSheetId = localSheetId;
+    }
+  }
+
+  /**
+   * Reads the name, reference, header and totals row counts and column names of a table part
+   */
+  private static class TableHandler extends DefaultHandler {
+    private String name;
+    private String ref;
+    private int headerRowCount = 1;
+    private int totalsRowCount = 0;
+    private final List<String> columnNames = new ArrayList<String>();
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+        throws SAXException {
+      if ("table".equals(localName)) {
+        name = attributes.getValue("displayName");
+        if (null == name) {
+          name = attributes.getValue("name");
+        }
+        ref = attributes.getValue("ref");
+        headerRowCount = getInt(attributes.getValue("headerRowCount"), 1);
+        totalsRowCount = getInt(attributes.getValue("totalsRowCount"), 0);
+      } else if ("tableColumn".equals(localName)) {
+        columnNames.add(ExcelSheetXMLHandler.decode(attributes.getValue("name")));
+      }
+    }
+
+    /**
+     * Returns data rows of the table, header and totals rows excluded
+     */
+    ExcelCellRange getRange(int sheetIndex) {
+      ExcelCellRange area = ExcelCellRange.parse(name, sheetIndex, ref, null);
+      if (null == name || null == area) {
+        return null;
+      }
+      return new ExcelCellRange(name, sheetIndex, area.getFirstRow() + headerRowCount,
+          area.getLastRow() - totalsRowCount, area.getFirstColumn(), area.getLastColumn(),
+          columnNames);
+    }
+
+    private static int getInt(String value, int defaultValue) {
+      return (null == value) ? defaultValue : Integer.parseInt(value);
+    }
+  }
+}
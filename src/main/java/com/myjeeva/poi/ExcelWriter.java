@@ -0,0 +1,517 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Streaming Excel File (XLSX) Writer, the counterpart of {@link ExcelWorkSheetHandler} using the
+ * same cell mapping: column letter to property name, with the comma separated header names under
+ * the <code>HEADER</code> key. Worksheet XML is written straight into the zip output while the rows
+ * are iterated, so memory stays constant whatever the row count.
+ * 
+ * <br>
+ * <br>
+ * The first row holds the header names in column order (the property names when there is no
+ * <code>HEADER</code> key), one row per object follows. Strings are written as inline strings by
+ * default; shared strings make a smaller file for repetitive values, at the cost of keeping every
+ * distinct value in memory. Number and Boolean property values are written as numeric and boolean
+ * cells, null values are left out.
+ * 
+ * <br>
+ * <br>
+ * <strong>For Example:</strong><br>
+ * <code>ExcelWriter&lt;PersonVO> excelWriter = new ExcelWriter&lt;PersonVO>(cellMapping);
+ * <br>excelWriter.write(persons, new File("Corrected-Person-Data.xlsx"));</code>
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ * 
+ * @since v1.4
+ */
+public class ExcelWriter<T> {
+
+  private static final String HEADER_KEY = "HEADER";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String XML_DECLARATION =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+  private static final String MAIN_NAMESPACE =
+      "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+  private static final String RELATIONSHIP_NAMESPACE =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+  private static final String PACKAGE_RELATIONSHIP_NAMESPACE =
+      "http://schemas.openxmlformats.org/package/2006/relationships";
+
+  private static final String CONTENT_TYPE_PREFIX =
+      "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+  private final String[] columns;
+  private final String[] properties;
+  private final String[] headers;
+  private String sheetName = "Sheet1";
+  private boolean sharedStrings = false;
+
+  /**
+   * Constructor
+   * 
+   * <br>
+   * <br>
+   * <strong>For Example:</strong><br>
+   * <code>ExcelWriter&lt;PersonVO> excelWriter = new ExcelWriter&lt;PersonVO>(cellMapping);</code>
+   * 
+   * @param cellMapping a {@link Map} object - same mapping as for {@link ExcelWorkSheetHandler}
+   */
+  public ExcelWriter(Map<String, String> cellMapping) {
+    if (null == cellMapping) {
+      throw new IllegalArgumentException("Cell mapping cannot be null");
+    }
+
+    List<String> columnList = new ArrayList<String>();
+    for (String column : cellMapping.keySet()) {
+      if (!StringUtils.equalsIgnoreCase(HEADER_KEY, column)) {
+        if (!column.matches("[A-Z]{1,3}")) {
+          throw new IllegalArgumentException("Invalid column '" + column + "' in cell mapping");
+        }
+        columnList.add(column);
+      }
+    }
+    columns = columnList.toArray(new String[columnList.size()]);
+    Arrays.sort(columns, new Comparator<String>() {
+      @Override
+      public int compare(String a, String b) {
+        return CellReference.convertColStringToIndex(a) - CellReference.convertColStringToIndex(b);
+      }
+    });
+
+    properties = new String[columns.length];
+    headers = new String[columns.length];
+    String header = cellMapping.get(HEADER_KEY);
+    String[] headerNames = (null == header) ? new String[0] : header.split(",");
+    for (int i = 0; i < columns.length; i++) {
+      properties[i] = cellMapping.get(columns[i]);
+      if (null == header) {
+        headers[i] = properties[i];
+      } else if (i < headerNames.length) {
+        headers[i] = headerNames[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the name of the written WorkSheet, default it is Sheet1
+   * 
+   * @return String
+   */
+  public String getSheetName() {
+    return sheetName;
+  }
+
+  /**
+   * To set the name of the written WorkSheet, default it is Sheet1
+   * 
+   * @param sheetName a {@link String} object
+   */
+  public void setSheetName(String sheetName) {
+    if (StringUtils.isEmpty(sheetName) || sheetName.length() > 31) {
+      throw new IllegalArgumentException("Sheet name must have 1 to 31 characters");
+    }
+    this.sheetName = sheetName;
+  }
+
+  /**
+   * Returns shared strings state, default it is disabled (inline strings)
+   * 
+   * @return boolean
+   */
+  public boolean isSharedStrings() {
+    return sharedStrings;
+  }
+
+  /**
+   * To write strings to a shared strings table instead of inline, default it is disabled. Every
+   * distinct string is then kept in memory until the table is written after the rows.
+   * 
+   * @param sharedStrings a boolean
+   */
+  public void setSharedStrings(boolean sharedStrings) {
+    this.sharedStrings = sharedStrings;
+  }
+
+  /**
+   * Writes the objects to an XLSX file
+   * 
+   * @param rows a {@link Iterable} object - objects to write, one per row, null leaves a blank row
+   * @param file a {@link File} object - XLSX file to create
+   * @return int - number of rows written, header row and blank rows of null objects excluded
+   * @throws IOException
+   */
+  public int write(Iterable<? extends T> rows, File file) throws IOException {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      return write(rows.iterator(), out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the objects as an XLSX package to given stream, the stream is left open
+   * 
+   * @param rows a {@link Iterable} object - objects to write, one per row, null leaves a blank row
+   * @param out a {@link OutputStream} object
+   * @return int - number of rows written, header row and blank rows of null objects excluded
+   * @throws IOException
+   */
+  public int write(Iterable<? extends T> rows, OutputStream out) throws IOException {
+    return write(rows.iterator(), out);
+  }
+
+  /**
+   * Writes the objects as an XLSX package to given stream, the stream is left open
+   * 
+   * @param rows a {@link Iterator} object - objects to write, one per row, null leaves a blank row
+   * @param out a {@link OutputStream} object
+   * @return int - number of rows written, header row and blank rows of null objects excluded
+   * @throws IOException
+   */
+  public int write(Iterator<? extends T> rows, OutputStream out) throws IOException {
+    ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    Writer writer = new OutputStreamWriter(zip, UTF_8);
+    SheetWriter sheet = new SheetWriter(writer, sharedStrings);
+
+    putEntry(zip, writer, "[Content_Types].xml", getContentTypes());
+    putEntry(zip, writer, "_rels/.rels", getPackageRelationships());
+    putEntry(zip, writer, "xl/workbook.xml", getWorkbook());
+    putEntry(zip, writer, "xl/_rels/workbook.xml.rels", getWorkbookRelationships());
+    putEntry(zip, writer, "xl/styles.xml", getStyles());
+
+    zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+    int count = sheet.writeSheet(rows);
+    writer.flush();
+    zip.closeEntry();
+
+    if (sharedStrings) {
+      zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+      sheet.writeSharedStrings();
+      writer.flush();
+      zip.closeEntry();
+    }
+    zip.finish();
+    zip.flush();
+    return count;
+  }
+
+  private static void putEntry(ZipOutputStream zip, Writer writer, String name, String content)
+      throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    writer.write(content);
+    writer.flush();
+    zip.closeEntry();
+  }
+
+  private String getContentTypes() {
+    StringBuilder xml = new StringBuilder(XML_DECLARATION);
+    xml.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+    xml.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.")
+        .append("relationships+xml\"/>");
+    xml.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+    appendOverride(xml, "/xl/workbook.xml", "sheet.main+xml");
+    appendOverride(xml, "/xl/worksheets/sheet1.xml", "worksheet+xml");
+    appendOverride(xml, "/xl/styles.xml", "styles+xml");
+    if (sharedStrings) {
+      appendOverride(xml, "/xl/sharedStrings.xml", "sharedStrings+xml");
+    }
+    return xml.append("</Types>").toString();
+  }
+
+  private static void appendOverride(StringBuilder xml, String partName, String type) {
+    xml.append("<Override PartName=\"").append(partName).append("\" ContentType=\"")
+        .append(CONTENT_TYPE_PREFIX).append(type).append("\"/>");
+  }
+
+  private String getPackageRelationships() {
+    return XML_DECLARATION + "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIP_NAMESPACE + "\">"
+        + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIP_NAMESPACE + "/officeDocument\""
+        + " Target=\"xl/workbook.xml\"/></Relationships>";
+  }
+
+  private String getWorkbook() {
+    StringBuilder xml = new StringBuilder(XML_DECLARATION);
+    xml.append("<workbook xmlns=\"").append(MAIN_NAMESPACE).append("\" xmlns:r=\"")
+        .append(RELATIONSHIP_NAMESPACE).append("\"><sheets><sheet name=\"");
+    escape(xml, sheetName, true);
+    return xml.append("\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>").toString();
+  }
+
+  private String getWorkbookRelationships() {
+    StringBuilder xml = new StringBuilder(XML_DECLARATION);
+    xml.append("<Relationships xmlns=\"").append(PACKAGE_RELATIONSHIP_NAMESPACE).append("\">");
+    xml.append("<Relationship Id=\"rId1\" Type=\"").append(RELATIONSHIP_NAMESPACE)
+        .append("/worksheet\" Target=\"worksheets/sheet1.xml\"/>");
+    xml.append("<Relationship Id=\"rId2\" Type=\"").append(RELATIONSHIP_NAMESPACE)
+        .append("/styles\" Target=\"styles.xml\"/>");
+    if (sharedStrings) {
+      xml.append("<Relationship Id=\"rId3\" Type=\"").append(RELATIONSHIP_NAMESPACE)
+          .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+    }
+    return xml.append("</Relationships>").toString();
+  }
+
+  private static String getStyles() {
+    return XML_DECLARATION + "<styleSheet xmlns=\"" + MAIN_NAMESPACE + "\">"
+        + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+        + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+        + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+        + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border>"
+        + "</borders><cellStyleXfs count=\"1\">"
+        + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+        + "<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\""
+        + " xfId=\"0\"/></cellXfs><cellStyles count=\"1\">"
+        + "<cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles></styleSheet>";
+  }
+
+  /**
+   * Appends text escaped for XML. Characters XML 1.0 cannot carry and underscores starting an
+   * escape sequence are written as OOXML _xHHHH_ escapes, which the reader decodes again.
+   */
+  private static void escape(StringBuilder xml, String text, boolean attribute) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&':
+          xml.append("&amp;");
+          break;
+        case '<':
+          xml.append("&lt;");
+          break;
+        case '>':
+          xml.append("&gt;");
+          break;
+        case '"':
+          xml.append(attribute ? "&quot;" : "\"");
+          break;
+        case '_':
+          xml.append(isEscapeSequence(text, i) ? "_x005F_" : "_");
+          break;
+        default:
+          if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFE || c == 0xFFFF) {
+            xml.append("_x").append(String.format("%04X", (int) c)).append('_');
+          } else {
+            xml.append(c);
+          }
+          break;
+      }
+    }
+  }
+
+  private static boolean isEscapeSequence(String text, int index) {
+    if (index + 6 >= text.length() || text.charAt(index + 1) != 'x'
+        || text.charAt(index + 6) != '_') {
+      return false;
+    }
+    for (int i = index + 2; i < index + 6; i++) {
+      char c = text.charAt(i);
+      if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F'))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the worksheet XML, row by row, reusing one buffer
+   */
+  private final class SheetWriter {
+    private final Writer writer;
+    private final Map<String, Integer> stringIndexes;
+    private final List<String> strings;
+    private final StringBuilder xml = new StringBuilder(1024);
+    private int stringCount;
+    private Class<?> rowType;
+    private Method[] getters;
+
+    SheetWriter(Writer writer, boolean sharedStrings) {
+      this.writer = writer;
+      this.stringIndexes = sharedStrings ? new HashMap<String, Integer>() : null;
+      this.strings = sharedStrings ? new ArrayList<String>() : null;
+    }
+
+    int writeSheet(Iterator<? extends T> rows) throws IOException {
+      xml.setLength(0);
+      xml.append(XML_DECLARATION).append("<worksheet xmlns=\"").append(MAIN_NAMESPACE)
+          .append("\"><sheetData>");
+      writeRow(1, headers);
+
+      int rowNum = 1;
+      int written = 0;
+      Object[] values = new Object[columns.length];
+      while (rows.hasNext()) {
+        T row = rows.next();
+        // a null object leaves its row blank, later objects keep their row numbers
+        rowNum++;
+        if (null == row) {
+          continue;
+        }
+        for (int i = 0; i < columns.length; i++) {
+          values[i] = getValue(row, i);
+        }
+        writeRow(rowNum, values);
+        written++;
+      }
+
+      xml.append("</sheetData></worksheet>");
+      writer.write(xml.toString());
+      xml.setLength(0);
+      return written;
+    }
+
+    void writeSharedStrings() throws IOException {
+      xml.setLength(0);
+      xml.append(XML_DECLARATION).append("<sst xmlns=\"").append(MAIN_NAMESPACE)
+          .append("\" count=\"").append(stringCount).append("\" uniqueCount=\"")
+          .append(strings.size()).append("\">");
+      for (String value : strings) {
+        xml.append("<si>");
+        appendText(value);
+        xml.append("</si>");
+        if (xml.length() >= BUFFER_SIZE) {
+          writer.write(xml.toString());
+          xml.setLength(0);
+        }
+      }
+      xml.append("</sst>");
+      writer.write(xml.toString());
+      xml.setLength(0);
+    }
+
+    private void writeRow(int rowNum, Object[] values) throws IOException {
+      xml.append("<row r=\"").append(rowNum).append("\">");
+      for (int i = 0; i < columns.length; i++) {
+        Object value = values[i];
+        if (null == value) {
+          continue;
+        }
+
+        xml.append("<c r=\"").append(columns[i]).append(rowNum).append('"');
+        if (value instanceof Boolean) {
+          xml.append(" t=\"b\"><v>").append(((Boolean) value) ? '1' : '0').append("</v></c>");
+        } else if (value instanceof Number && isFinite((Number) value)) {
+          xml.append("><v>").append(value).append("</v></c>");
+        } else if (null != stringIndexes) {
+          xml.append(" t=\"s\"><v>").append(getStringIndex(value.toString())).append("</v></c>");
+        } else {
+          xml.append(" t=\"inlineStr\"><is>");
+          appendText(value.toString());
+          xml.append("</is></c>");
+        }
+      }
+      xml.append("</row>");
+
+      if (xml.length() >= BUFFER_SIZE) {
+        writer.write(xml.toString());
+        xml.setLength(0);
+      }
+    }
+
+    private void appendText(String value) {
+      boolean preserve =
+          !value.isEmpty()
+              && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value
+                  .charAt(value.length() - 1)));
+      xml.append(preserve ? "<t xml:space=\"preserve\">" : "<t>");
+      escape(xml, value, false);
+      xml.append("</t>");
+    }
+
+    private int getStringIndex(String value) {
+      stringCount++;
+      Integer index = stringIndexes.get(value);
+      if (null == index) {
+        index = strings.size();
+        stringIndexes.put(value, index);
+        strings.add(value);
+      }
+      return index;
+    }
+
+    private Object getValue(T row, int column) {
+      try {
+        if (row.getClass() != rowType) {
+          rowType = row.getClass();
+          getters = new Method[properties.length];
+          for (int i = 0; i < properties.length; i++) {
+            PropertyDescriptor descriptor = PropertyUtils.getPropertyDescriptor(row, properties[i]);
+            if (null == descriptor || null == descriptor.getReadMethod()) {
+              throw new IllegalArgumentException("Property '" + properties[i]
+                  + "' has no getter in " + rowType.getName());
+            }
+            getters[i] = descriptor.getReadMethod();
+          }
+        }
+        return getters[column].invoke(row);
+      } catch (IllegalAccessException iae) {
+        throw new RuntimeException(iae.getMessage(), iae);
+      } catch (InvocationTargetException ite) {
+        throw new RuntimeException(ite.getMessage(), ite);
+      } catch (NoSuchMethodException nsme) {
+        throw new RuntimeException(nsme.getMessage(), nsme);
+      }
+    }
+
+    private boolean isFinite(Number value) {
+      if (value instanceof Double || value instanceof Float) {
+        double d = value.doubleValue();
+        return !Double.isNaN(d) && !Double.isInfinite(d);
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+
+import com.myjeeva.poi.vo.PersonVO;
+import com.myjeeva.poi.vo.PersonVOSheetHandler;
+import com.myjeeva.poi.vo.PersonValue;
+
+/**
+ * Demonstration of constructor based binding and its benchmark against the setter based binding of
+ * {@link ExcelWorkSheetHandler} and the handler generated from the {@link ExcelSheet} annotated
+ * {@link PersonVO}. Benchmark feeds the same synthetic row events to every handler, so only the
+ * binding cost is measured.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelBindingBenchmark {
+
+  private static final String[] COLUMNS = {"A", "B", "C", "D", "E", "F"};
+  private static final String[] HEADERS = {"Person Id", "Name", "Height", "Email Address", "DOB",
+      "Salary"};
+  private static final String[] VALUES = {"10002", "Emily", "5.40", "emily@example.example",
+      "2/1/1985", "9500"};
+
+  /**
+   * @param args optional number of rows to bind per round, default is 1000000
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    Map<String, String> cellMapping = getCellMapping();
+
+    ExcelWorkSheetConstructorHandler<PersonValue> sampleHandler =
+        newConstructorHandler(cellMapping);
+    new ExcelReader("src/test/resources/Sample-Person-Data.xlsx", sampleHandler, null).process();
+    for (PersonValue p : sampleHandler.getValueList()) {
+      System.out.println(String.format("%s\t%s\t%s\t%s\t%s\t%s", p.getPersonId(), p.getName(),
+          p.getHeight(), p.getEmailId(), p.getDob(), p.getSalary()));
+    }
+
+    for (int round = 0; round < 8; round++) {
+      boolean warmUp = round < 3;
+      long setter = bind(new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, cellMapping), rows);
+      long ctor = bind(newConstructorHandler(cellMapping), rows);
+      long generated = bind(new PersonVOSheetHandler(), rows);
+      if (!warmUp) {
+        System.out.println(String.format(
+            "round %d: setter %d ns/row, constructor %d ns/row, generated %d ns/row", round,
+            setter / rows, ctor / rows, generated / rows));
+      }
+    }
+  }
+
+  private static ExcelWorkSheetConstructorHandler<PersonValue> newConstructorHandler(
+      Map<String, String> cellMapping) {
+    return new ExcelWorkSheetConstructorHandler<PersonValue>(PersonValue.class, cellMapping,
+        "personId", "name", "height", "emailId", "dob", "salary");
+  }
+
+  private static long bind(SheetContentsHandler handler, int rows) {
+    long start = System.nanoTime();
+    feedRow(handler, 0, HEADERS);
+    for (int row = 1; row <= rows; row++) {
+      feedRow(handler, row, VALUES);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    List<?> values;
+    if (handler instanceof ExcelWorkSheetHandler) {
+      values = ((ExcelWorkSheetHandler<?>) handler).getValueList();
+    } else if (handler instanceof ExcelWorkSheetConstructorHandler) {
+      values = ((ExcelWorkSheetConstructorHandler<?>) handler).getValueList();
+    } else {
+      values = ((PersonVOSheetHandler) handler).getValueList();
+    }
+    if (values.size() != rows) {
+      throw new IllegalStateException("Expected " + rows + " rows but bound " + values.size());
+    }
+    return elapsed;
+  }
+
+  private static void feedRow(SheetContentsHandler handler, int row, String[] values) {
+    String rowRef = String.valueOf(row + 1);
+    handler.startRow(row);
+    for (int i = 0; i < COLUMNS.length; i++) {
+      handler.cell(COLUMNS[i] + rowRef, values[i]);
+    }
+    handler.endRow();
+  }
+
+  private static Map<String, String> getCellMapping() {
+    Map<String, String> cellMapping = new HashMap<String, String>();
+    cellMapping.put("HEADER", "Person Id,Name,Height,Email Address,DOB,Salary");
+    cellMapping.put("A", "personId");
+    cellMapping.put("B", "name");
+    cellMapping.put("C", "height");
+    cellMapping.put("D", "emailId");
+    cellMapping.put("E", "dob");
+    cellMapping.put("F", "salary");
+    return cellMapping;
+  }
+}
@@ -0,0 +1,223 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Checks the compiled cell formats of {@link ExcelCellFormatter} against {@link DataFormatter} on
+ * random raw values, over several locales and time zones, then compares their speed.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelCellFormatterBenchmark {
+
+  private static final String[] CUSTOM_FORMATS = {"yyyy-mm-dd", "yyyy\\-mm\\-dd hh:mm:ss",
+      "yyyy-mm-dd hh:mm", "mm/dd/yyyy", "0.0", "#,##0.000", "0.00%", "d-mmm-yy",
+      "h:mm AM/PM", "[h]:mm:ss", "mm:ss.0", "#,##0.00;[Red]-#,##0.00", "0.00E+00"};
+
+  private static final int[] BUILTIN_FORMATS = {0, 1, 2, 3, 4, 9, 14, 20, 21, 22, 49};
+
+  private static final String[] LOCALES = {"en-US", "de-DE", "fr-FR"};
+
+  private static final String[] TIME_ZONES = {"UTC", "America/New_York", "Europe/Copenhagen",
+      "Australia/Lord_Howe"};
+
+  /**
+   * @param args optional number of values per style, default is 20000
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    int values = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+    ExcelStyles styles = newStyles();
+    List<String> raw = newValues(new Random(42), values);
+
+    TimeZone defaultTimeZone = TimeZone.getDefault();
+    int mismatches = 0;
+    try {
+      for (String timeZone : TIME_ZONES) {
+        TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+        for (String tag : LOCALES) {
+          mismatches += check(styles, Locale.forLanguageTag(tag), raw);
+        }
+      }
+    } finally {
+      TimeZone.setDefault(defaultTimeZone);
+    }
+    System.out.println(mismatches + " mismatches in " + styles.getStyleCount() * raw.size()
+        * TIME_ZONES.length * LOCALES.length + " formatted values");
+
+    // Timing with values every style formats, see check
+    List<String> timed = new ArrayList<String>();
+    for (String value : raw) {
+      if (!value.startsWith("-")) {
+        timed.add(value);
+      }
+    }
+    int styleCount = styles.getStyleCount();
+    long[] compiled = new long[styleCount];
+    long[] dataFormatter = new long[styleCount];
+    for (int round = 0; round < 8; round++) {
+      for (int style = 0; style < styleCount; style++) {
+        long compiledTime = timeCompiled(styles, style, timed);
+        long dataFormatterTime = timeDataFormatter(styles, style, timed);
+        if (round >= 3) {
+          compiled[style] += compiledTime;
+          dataFormatter[style] += dataFormatterTime;
+        }
+      }
+    }
+    long cells = 5L * timed.size();
+    for (int style = 0; style < styleCount; style++) {
+      System.out.println(String.format("%-28s compiled %5d ns/cell, DataFormatter %5d ns/cell",
+          styles.getFormatString(style), compiled[style] / cells, dataFormatter[style] / cells));
+    }
+
+    if (mismatches > 0) {
+      System.exit(1);
+    }
+  }
+
+  private static int check(ExcelStyles styles, Locale locale, List<String> raw) {
+    ExcelCellFormatter cellFormatter = new ExcelCellFormatter(styles, locale);
+    DataFormatter dataFormatter = new DataFormatter(locale);
+    int mismatches = 0;
+    for (int style = 0; style < styles.getStyleCount(); style++) {
+      boolean date =
+          DateUtil.isADateFormat(styles.getFormatIndex(style), styles.getFormatString(style));
+      for (String value : raw) {
+        if (date && value.startsWith("-")) {
+          // DataFormatter caches a number format for the format string of a negative date, then
+          // fails on valid dates of the same format
+          continue;
+        }
+        String expected = dataFormatter.formatRawCellContents(Double.parseDouble(value),
+            styles.getFormatIndex(style), styles.getFormatString(style));
+        String actual = cellFormatter.format(style, value);
+        if (!expected.equals(actual)) {
+          if (mismatches++ < 20) {
+            System.out.println(String.format("%s %s [%s] %s: expected '%s' but was '%s'", locale,
+                TimeZone.getDefault().getID(), styles.getFormatString(style), value, expected,
+                actual));
+          }
+        }
+      }
+    }
+    return mismatches;
+  }
+
+  private static long timeCompiled(ExcelStyles styles, int style, List<String> raw) {
+    ExcelCellFormatter cellFormatter = new ExcelCellFormatter(styles, Locale.US);
+    long start = System.nanoTime();
+    int length = 0;
+    for (String value : raw) {
+      length += cellFormatter.format(style, value).length();
+    }
+    return System.nanoTime() - start + (length & 1);
+  }
+
+  private static long timeDataFormatter(ExcelStyles styles, int style, List<String> raw) {
+    DataFormatter dataFormatter = new DataFormatter(Locale.US);
+    short formatIndex = styles.getFormatIndex(style);
+    String formatString = styles.getFormatString(style);
+    long start = System.nanoTime();
+    int length = 0;
+    for (String value : raw) {
+      length += dataFormatter.formatRawCellContents(Double.parseDouble(value), formatIndex,
+          formatString).length();
+    }
+    return System.nanoTime() - start + (length & 1);
+  }
+
+  /**
+   * Raw values the way Excel writes them: integers, short decimals, date serials and full
+   * precision doubles
+   */
+  private static List<String> newValues(Random random, int count) {
+    List<String> values = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      switch (i % 6) {
+        case 0:
+          values.add(Long.toString(random.nextInt(2000000) - 1000000));
+          break;
+        case 1:
+          values.add(BigDecimal.valueOf(random.nextInt(20000000) - 10000000, random.nextInt(4))
+              .stripTrailingZeros().toPlainString());
+          break;
+        case 2:
+          // dates with and without a time part, up to year 2100
+          double serial = random.nextInt(73000) + ((i % 4 == 0) ? 0 : random.nextInt(86400)
+              / 86400d);
+          values.add(trim(Double.toString(serial)));
+          break;
+        case 3:
+          values.add(trim(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(12)))));
+          break;
+        case 4:
+          values.add(trim(Double.toString(random.nextGaussian() / 1000)));
+          break;
+        default:
+          values.add(Long.toString(random.nextLong() >> random.nextInt(64)));
+          break;
+      }
+    }
+    return values;
+  }
+
+  private static String trim(String value) {
+    return value.endsWith(".0") ? value.substring(0, value.length() - 2) : value;
+  }
+
+  private static ExcelStyles newStyles() throws Exception {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+    xml.append("<numFmts count=\"").append(CUSTOM_FORMATS.length).append("\">");
+    for (int i = 0; i < CUSTOM_FORMATS.length; i++) {
+      xml.append("<numFmt numFmtId=\"").append(164 + i).append("\" formatCode=\"")
+          .append(CUSTOM_FORMATS[i].replace("&", "&amp;").replace("\"", "&quot;")).append("\"/>");
+    }
+    xml.append("</numFmts><cellXfs>");
+    for (int id : BUILTIN_FORMATS) {
+      xml.append("<xf numFmtId=\"").append(id).append("\"/>");
+    }
+    for (int i = 0; i < CUSTOM_FORMATS.length; i++) {
+      xml.append("<xf numFmtId=\"").append(164 + i).append("\"/>");
+    }
+    xml.append("</cellXfs></styleSheet>");
+
+    SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+    saxFactory.setNamespaceAware(true);
+    return ExcelStyles.read(new ByteArrayInputStream(xml.toString().getBytes("UTF-8")),
+        saxFactory);
+  }
+}
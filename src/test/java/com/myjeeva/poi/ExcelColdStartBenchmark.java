@@ -0,0 +1,132 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Measures cold start time to the first row in fresh JVMs: {@link ExcelReader} with its lean
+ * workbook and styles parsing against the XSSFReader / StylesTable / XSSFSheetXMLHandler path.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelColdStartBenchmark {
+
+  private static final String SAMPLE_PERSON_DATA_FILE_PATH =
+      "src/test/resources/Sample-Person-Data.xlsx";
+
+  /**
+   * @param args optional number of JVM forks per path, default is 5
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && ("lean".equals(args[0]) || "poi".equals(args[0]))) {
+      firstRow(args[0]);
+      return;
+    }
+
+    int forks = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+    List<Long> lean = new ArrayList<Long>();
+    List<Long> poi = new ArrayList<Long>();
+    for (int i = 0; i < forks; i++) {
+      lean.add(fork("lean"));
+      poi.add(fork("poi"));
+    }
+
+    System.out.println("JVM uptime to first row (median of " + forks + " forks): lean "
+        + median(lean) + " ms, XSSFReader/StylesTable " + median(poi) + " ms");
+  }
+
+  private static void firstRow(String path) throws Exception {
+    SheetContentsHandler firstRowHandler = new SheetContentsHandler() {
+      @Override
+      public void startRow(int rowNum) {
+        // JVM uptime covers class loading and metadata parsing up to here
+        System.out.println(ManagementFactory.getRuntimeMXBean().getUptime());
+        System.exit(0);
+      }
+
+      @Override
+      public void endRow() {}
+
+      @Override
+      public void cell(String cellReference, String formattedValue) {}
+
+      @Override
+      public void headerFooter(String text, boolean isHeader, String tagName) {}
+    };
+
+    OPCPackage pkg = OPCPackage.open(new File(SAMPLE_PERSON_DATA_FILE_PATH), PackageAccess.READ);
+    if ("lean".equals(path)) {
+      new ExcelReader(pkg, firstRowHandler, null).process();
+    } else {
+      ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+      XSSFReader xssfReader = new XSSFReader(pkg);
+      StylesTable styles = xssfReader.getStylesTable();
+      InputStream stream = xssfReader.getSheetsData().next();
+      XMLReader sheetParser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+      sheetParser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, firstRowHandler,
+          true));
+      sheetParser.parse(new InputSource(stream));
+    }
+  }
+
+  private static long fork(String path) throws Exception {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+        + "java";
+    Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        ExcelColdStartBenchmark.class.getName(), path).redirectErrorStream(true).start();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+    String line;
+    String last = null;
+    while (null != (line = reader.readLine())) {
+      last = line;
+    }
+    process.waitFor();
+    return Long.parseLong(last.trim());
+  }
+
+  private static long median(List<Long> values) {
+    Collections.sort(values);
+    return values.get(values.size() / 2);
+  }
+}
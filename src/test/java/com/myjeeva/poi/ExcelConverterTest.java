@@ -0,0 +1,235 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Demonstration of bulk conversion to CSV and JSON Lines and of single pass column statistics,
+ * checks the output of a generated two sheet workbook against the expected text and figures
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelConverterTest {
+
+  private static final String[] HEADER = { "Region", "Amount", "Note" };
+
+  private static final Object[][] Q1 = { { "North", 120, "plain" },
+      { "South", 80, "a, \"b\"\nc" }, { "North", 45, null }, { "East", 200, "x" } };
+
+  private static final Object[][] Q2 = { { "West", 10, "late" } };
+
+  public static void main(String[] args) throws Exception {
+    File directory = new File("target/converter-check");
+    directory.mkdirs();
+    File workbook = write(new File(directory, "sales.xlsx"));
+
+    String q1Csv = "Region,Amount,Note\r\n" + "North,120,plain\r\n"
+        + "South,80,\"a, \"\"b\"\"\nc\"\r\n" + "North,45,\r\n" + "East,200,x\r\n";
+    String q1Jsonl = "{\"Region\":\"North\",\"Amount\":\"120\",\"Note\":\"plain\"}\n"
+        + "{\"Region\":\"South\",\"Amount\":\"80\",\"Note\":\"a, \\\"b\\\"\\nc\"}\n"
+        + "{\"Region\":\"North\",\"Amount\":\"45\",\"Note\":\"\"}\n"
+        + "{\"Region\":\"East\",\"Amount\":\"200\",\"Note\":\"x\"}\n";
+    String q2Csv = "Region,Amount,Note\r\n" + "West,10,late\r\n";
+
+    for (int threads = 1; threads <= 2; threads++) {
+      File out = new File(directory, "threads-" + threads);
+      convert(ExcelConverter.Format.CSV, workbook, out, threads, 5);
+      check(new File(out, "sales-Q1.csv"), q1Csv);
+      check(new File(out, "sales-Q2.csv"), q2Csv);
+
+      convert(ExcelConverter.Format.JSONL, workbook, out, threads, 5);
+      check(new File(out, "sales-Q1.jsonl"), q1Jsonl);
+    }
+
+    // header of the third row, rows above it are missing
+    File lateHeaderWorkbook = writeLateHeader(new File(directory, "sales-q3.xlsx"));
+    ExcelConverter converter = new ExcelConverter(ExcelConverter.Format.CSV);
+    converter.convert(Arrays.asList(lateHeaderWorkbook));
+    check(new File(directory, "sales-q3-Q3.csv"), "Amount,Region\r\n30,North\r\n");
+    converter = new ExcelConverter(ExcelConverter.Format.JSONL);
+    converter.convert(Arrays.asList(lateHeaderWorkbook));
+    check(new File(directory, "sales-q3-Q3.jsonl"), "{\"Amount\":\"30\",\"Region\":\"North\"}\n");
+
+    checkStatistics(workbook, lateHeaderWorkbook);
+    checkBrokenWorkbook(workbook, directory);
+  }
+
+  /**
+   * Conversion of a workbook with truncated sheet XML fails and leaves no partial output
+   */
+  private static void checkBrokenWorkbook(File workbook, File directory) throws Exception {
+    File broken = new File(directory, "broken.xlsx");
+    ZipInputStream in = new ZipInputStream(new FileInputStream(workbook));
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(broken));
+    try {
+      ZipEntry entry;
+      while (null != (entry = in.getNextEntry())) {
+        byte[] content = IOUtils.toByteArray(in);
+        if ("xl/worksheets/sheet1.xml".equals(entry.getName())) {
+          content = Arrays.copyOf(content, content.length * 2 / 3);
+        }
+        out.putNextEntry(new ZipEntry(entry.getName()));
+        out.write(content);
+        out.closeEntry();
+      }
+    } finally {
+      in.close();
+      out.close();
+    }
+
+    File output = new File(directory, "broken-Q1.csv");
+    try {
+      ExcelConverter converter = new ExcelConverter(ExcelConverter.Format.CSV);
+      converter.convert(Arrays.asList(broken));
+      throw new IllegalStateException("Conversion of " + broken + " did not fail");
+    } catch (IOException ioe) {
+      if (output.exists()) {
+        throw new IllegalStateException("Partial output " + output + " was left behind");
+      }
+      System.out.println("Conversion of " + broken + " failed: " + ioe.getMessage());
+    }
+  }
+
+  private static void convert(ExcelConverter.Format format, File workbook, File out, int threads,
+      long expectedRows) throws Exception {
+    ExcelConverter converter = new ExcelConverter(format);
+    converter.setOutputDirectory(out);
+    converter.setThreads(threads);
+    long rows = converter.convert(Arrays.asList(workbook));
+    if (rows != expectedRows || converter.getSheetCount() != 2) {
+      throw new IllegalStateException("Converted " + rows + " rows of "
+          + converter.getSheetCount() + " sheets, expected " + expectedRows + " rows of 2 sheets");
+    }
+  }
+
+  private static void check(File file, String expected) throws Exception {
+    InputStream in = new FileInputStream(file);
+    String actual;
+    try {
+      actual = new String(IOUtils.toByteArray(in), "UTF-8");
+    } finally {
+      in.close();
+    }
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException(file + " contains\n" + actual + "expected\n" + expected);
+    }
+    System.out.println(file + " as expected");
+  }
+
+  /**
+   * Statistics of all sheets add up by header, the Q3 header is on the third row in another column
+   * order
+   */
+  private static void checkStatistics(File workbook, File lateHeaderWorkbook) throws Exception {
+    ExcelStatisticsHandler statistics = new ExcelStatisticsHandler().groupBy("Region", "Amount");
+    new ExcelReader(workbook, statistics, null).process();
+    new ExcelReader(lateHeaderWorkbook, statistics, null).process();
+
+    ExcelColumnStatistics amount = statistics.getStatistics().get("Amount");
+    ExcelColumnStatistics note = statistics.getStatistics().get("Note");
+    Map<String, ExcelColumnStatistics> regions = statistics.getGroups("Region", "Amount");
+    String actual =
+        String.format("rows=%d amount=%.0f/%.0f/%.0f notes=%d/%d north=%.0f west=%.0f",
+        statistics.getRowCount(), amount.getSum(), amount.getMin(), amount.getMax(),
+        note.getCount(), note.getEmptyCount(), regions.get("North").getSum(),
+        regions.get("West").getSum());
+    String expected = "rows=6 amount=485/10/200 notes=4/1 north=195 west=10";
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Statistics " + actual + ", expected " + expected);
+    }
+    System.out.println("Statistics as expected: " + actual);
+  }
+
+  private static File write(File file) throws Exception {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    CellStyle integer = workbook.createCellStyle();
+    integer.setDataFormat(workbook.createDataFormat().getFormat("0"));
+    write(workbook.createSheet("Q1"), Q1, integer);
+    write(workbook.createSheet("Q2"), Q2, integer);
+
+    OutputStream out = new FileOutputStream(file);
+    try {
+      workbook.write(out);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static File writeLateHeader(File file) throws Exception {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    CellStyle integer = workbook.createCellStyle();
+    integer.setDataFormat(workbook.createDataFormat().getFormat("0"));
+    Sheet sheet = workbook.createSheet("Q3");
+    Row row = sheet.createRow(2);
+    row.createCell(0).setCellValue("Amount");
+    row.createCell(1).setCellValue("Region");
+    row = sheet.createRow(3);
+    Cell cell = row.createCell(0);
+    cell.setCellValue(30);
+    cell.setCellStyle(integer);
+    row.createCell(1).setCellValue("North");
+
+    OutputStream out = new FileOutputStream(file);
+    try {
+      workbook.write(out);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static void write(Sheet sheet, Object[][] rows, CellStyle integer) {
+    Row row = sheet.createRow(0);
+    for (int c = 0; c < HEADER.length; c++) {
+      row.createCell(c).setCellValue(HEADER[c]);
+    }
+    for (int r = 0; r < rows.length; r++) {
+      row = sheet.createRow(r + 1);
+      row.createCell(0).setCellValue((String) rows[r][0]);
+      Cell cell = row.createCell(1);
+      cell.setCellValue((Integer) rows[r][1]);
+      cell.setCellStyle(integer);
+      if (null != rows[r][2]) {
+        row.createCell(2).setCellValue((String) rows[r][2]);
+      }
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Demonstration of an asynchronous fan-out: a slow handler takes checkpoints of the rows it has
+ * processed while the parser runs ahead, and a failed handler takes part in the next read again.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelFanOutHandlerTest {
+
+  private static final int ROWS = 500;
+
+  public static void main(String[] args) throws Exception {
+    File file = new File("target/fan-out-check.xlsx");
+    file.getParentFile().mkdirs();
+
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet("Rows");
+    for (int r = 0; r < ROWS; r++) {
+      XSSFRow row = sheet.createRow(r);
+      row.createCell(0).setCellValue("row " + r);
+      row.createCell(1).setCellValue(r);
+    }
+    OutputStream out = new FileOutputStream(file);
+    try {
+      workbook.write(out);
+    } finally {
+      out.close();
+    }
+
+    final ExcelReader[] reader = new ExcelReader[1];
+    final AtomicInteger mismatches = new AtomicInteger();
+    final AtomicInteger rows = new AtomicInteger();
+    final boolean[] failOnce = { true };
+    SheetContentsHandler slowHandler = new RowHandler() {
+      private int rowNum;
+
+      @Override
+      public void startRow(int rowNum) {
+        this.rowNum = rowNum;
+        if (failOnce[0] && 100 == rowNum) {
+          failOnce[0] = false;
+          throw new IllegalStateException("Handler failure at row " + rowNum);
+        }
+      }
+
+      @Override
+      public void endRow() {
+        rows.incrementAndGet();
+        ExcelReadCheckpoint checkpoint = reader[0].getCheckpoint();
+        if (null == checkpoint || rowNum != checkpoint.getRowNum()) {
+          mismatches.incrementAndGet();
+        }
+        if (0 == rowNum % 50) {
+          sleep();
+        }
+      }
+    };
+
+    ExcelFanOutHandler fanOut = new ExcelFanOutHandler(16, slowHandler, new RowHandler());
+    try {
+      reader[0] = new ExcelReader(file, fanOut, null);
+      try {
+        reader[0].process();
+        throw new IllegalStateException("Handler failure isn't rethrown");
+      } catch (IllegalStateException e) {
+        System.out.println("First read: " + e.getMessage());
+      }
+
+      rows.set(0);
+      reader[0].process();
+      System.out.println("Second read: " + rows.get() + " rows, " + mismatches.get()
+          + " checkpoint mismatches");
+      if (ROWS != rows.get() || 0 != mismatches.get()) {
+        throw new IllegalStateException("Handler checkpoints don't follow the handler rows");
+      }
+
+      try {
+        reader[0].getCheckpoint();
+        System.out.println("Parser checkpoint after the read: row "
+            + reader[0].getCheckpoint().getRowNum());
+      } catch (IllegalStateException e) {
+        throw new IllegalStateException("Checkpoint isn't available once the read is done", e);
+      }
+    } finally {
+      fanOut.close();
+    }
+    System.out.println("Fan-out closed");
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class RowHandler implements SheetContentsHandler {
+    @Override
+    public void startRow(int rowNum) {}
+
+    @Override
+    public void endRow() {}
+
+    @Override
+    public void cell(String cellReference, String formattedValue) {}
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {}
+  }
+}
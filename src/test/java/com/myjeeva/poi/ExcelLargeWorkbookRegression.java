@@ -0,0 +1,389 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.myjeeva.poi.vo.PersonVO;
+
+/**
+ * Memory ceiling and throughput regression suite for large workbooks. A workbook of
+ * <code>regression.rows</code> rows (default 2000000, some 730 MB of sheet XML) is generated once
+ * with {@link ExcelWriter}, then read by {@link ExcelWorkSheetHandler} (spilling beyond its heap
+ * budget) and by {@link ExcelWorkSheetRowCallbackHandler}, each in a forked JVM limited to
+ * <code>regression.xmx</code> (default 64m). A read fails on OutOfMemoryError or when the live
+ * heap after GC exceeds <code>regression.maxLiveHeapMb</code> (default 32).
+ * 
+ * <br>
+ * <br>
+ * The forked JVM reads a workbook of {@value #WARM_UP_ROWS} rows {@value #WARM_UP_READS} times
+ * first, so class loading and JIT compilation are not timed, then reads the workbook
+ * <code>regression.reads</code> times (default 3) and keeps the fastest. Rows per second are
+ * recorded per handler and row count into <code>target/regression/throughput.properties</code>; a
+ * drop of more than <code>regression.maxDrop</code> (default 0.25) against the previous run, or
+ * against a recorded file given as <code>regression.baseline</code>, fails. Throughput depends on
+ * the machine, an absolute floor is only checked when <code>regression.minRowsPerSecond</code> is
+ * set.
+ * 
+ * <br>
+ * <br>
+ * Not part of the default build, run it with <code>mvn test -Pregression</code>; or as a main.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelLargeWorkbookRegression {
+
+  private static final String RESULT_PREFIX = "RESULT ";
+
+  private static final int WARM_UP_ROWS = 20000;
+
+  private static final int WARM_UP_READS = 3;
+
+  private static final File WORK_DIRECTORY = new File("target/regression");
+
+  private static final File THROUGHPUT_FILE = new File(WORK_DIRECTORY, "throughput.properties");
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 5 && "read".equals(args[0])) {
+      read(args[1], new File(args[2]), new File(args[3]), Integer.parseInt(args[4]));
+      return;
+    }
+
+    ExcelLargeWorkbookRegression regression = new ExcelLargeWorkbookRegression();
+    regression.testWorkSheetHandler();
+    regression.testRowCallbackHandler();
+  }
+
+  public void testWorkSheetHandler() throws Exception {
+    check("workSheetHandler");
+  }
+
+  public void testRowCallbackHandler() throws Exception {
+    check("rowCallbackHandler");
+  }
+
+  private static void check(String handler) throws Exception {
+    int rows = Integer.getInteger("regression.rows", 2000000);
+    File workbook = getWorkbook(rows);
+    File warmUpWorkbook = getWorkbook(Math.min(rows, WARM_UP_ROWS));
+    String xmx = System.getProperty("regression.xmx", "64m");
+
+    Map<String, String> result = fork(handler, workbook, warmUpWorkbook, xmx);
+    long readRows = Long.parseLong(result.get("rows"));
+    long millis = Math.max(1, Long.parseLong(result.get("millis")));
+    long liveHeap = Long.parseLong(result.get("liveHeap"));
+    long rowsPerSecond = readRows * 1000 / millis;
+    System.out.println(String.format("%s: %d rows in %d ms (%d rows/s), -Xmx%s, live heap %d KB",
+        handler, readRows, millis, rowsPerSecond, xmx, liveHeap / 1024));
+
+    String key = handler + "." + rows;
+    String baseline = System.getProperty("regression.baseline");
+    String recordedRowsPerSecond =
+        load((null == baseline) ? THROUGHPUT_FILE : new File(baseline)).getProperty(key);
+    record(key, rowsPerSecond);
+
+    if (readRows != rows) {
+      throw new AssertionError(handler + " read " + readRows + " rows, expected " + rows);
+    }
+
+    long maxLiveHeap = Long.getLong("regression.maxLiveHeapMb", 32) * 1024 * 1024;
+    if (liveHeap > maxLiveHeap) {
+      throw new AssertionError(handler + " kept " + liveHeap / 1024 + " KB live heap, limit is "
+          + maxLiveHeap / 1024 + " KB");
+    }
+
+    Long minRowsPerSecond = Long.getLong("regression.minRowsPerSecond");
+    if (null != minRowsPerSecond && rowsPerSecond < minRowsPerSecond) {
+      throw new AssertionError(handler + " read " + rowsPerSecond + " rows/s, minimum is "
+          + minRowsPerSecond);
+    }
+
+    double maxDrop = Double.parseDouble(System.getProperty("regression.maxDrop", "0.25"));
+    if (null != recordedRowsPerSecond
+        && rowsPerSecond < Long.parseLong(recordedRowsPerSecond) * (1 - maxDrop)) {
+      throw new AssertionError(handler + " read " + rowsPerSecond + " rows/s, baseline is "
+          + recordedRowsPerSecond + " rows/s");
+    }
+  }
+
+  /**
+   * Runs a read in a new JVM, returns the values of its result line
+   */
+  private static Map<String, String> fork(String handler, File workbook, File warmUpWorkbook,
+      String xmx) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<String>();
+    command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+    command.add("-Xmx" + xmx);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ExcelLargeWorkbookRegression.class.getName());
+    command.add("read");
+    command.add(handler);
+    command.add(workbook.getPath());
+    command.add(warmUpWorkbook.getPath());
+    command.add(String.valueOf(Math.max(1, Integer.getInteger("regression.reads", 3))));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    StringBuilder output = new StringBuilder();
+    String resultLine = null;
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+    try {
+      String line;
+      while (null != (line = reader.readLine())) {
+        if (line.startsWith(RESULT_PREFIX)) {
+          resultLine = line.substring(RESULT_PREFIX.length());
+        } else if (output.length() < 64 * 1024) {
+          output.append(line).append('\n');
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    int exitCode = process.waitFor();
+    if (0 != exitCode || null == resultLine) {
+      throw new AssertionError(handler + " failed with -Xmx" + xmx + ", exit code " + exitCode
+          + ":\n" + output);
+    }
+
+    Map<String, String> result = new HashMap<String, String>();
+    for (String pair : resultLine.split(" ")) {
+      int idx = pair.indexOf('=');
+      result.put(pair.substring(0, idx), pair.substring(idx + 1));
+    }
+    return result;
+  }
+
+  /**
+   * Forked side, reads the warm-up workbook untimed, then reads the workbook given times and prints
+   * the result line of the fastest read
+   */
+  private static void read(String handler, File workbook, File warmUpWorkbook, int reads)
+      throws Exception {
+    for (int i = 0; i < WARM_UP_READS; i++) {
+      read(handler, warmUpWorkbook, new LiveHeapSampler());
+    }
+    System.gc();
+
+    LiveHeapSampler sampler = new LiveHeapSampler();
+    sampler.start();
+    long[] result = null;
+    for (int i = 0; i < reads; i++) {
+      long[] current = read(handler, workbook, sampler);
+      if (null == result || current[1] < result[1]) {
+        result = current;
+      }
+    }
+
+    sampler.interrupt();
+    sampler.join();
+    System.out.println(RESULT_PREFIX + "rows=" + result[0] + " millis=" + result[1]
+        + " liveHeap=" + sampler.getMaxLiveHeap());
+  }
+
+  /**
+   * Reads a workbook with given handler, returns the rows read and the milliseconds the read took;
+   * the retained heap sample afterwards is not timed
+   */
+  private static long[] read(String handler, File workbook, LiveHeapSampler sampler)
+      throws Exception {
+    long start = System.currentTimeMillis();
+    long millis;
+    long rows;
+    if ("workSheetHandler".equals(handler)) {
+      ExcelWorkSheetHandler<PersonVO> workSheetHandler =
+          new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, getCellMapping());
+      workSheetHandler.setHeapBudget(8L * 1024 * 1024, WORK_DIRECTORY);
+      new ExcelReader(workbook, workSheetHandler, null).process();
+      millis = System.currentTimeMillis() - start;
+      List<PersonVO> persons = workSheetHandler.getValueList();
+      rows = persons.size();
+      sampler.sampleRetained();
+      if (persons instanceof ExcelSpillList) {
+        ((ExcelSpillList<PersonVO>) persons).close();
+      }
+    } else {
+      final long[] count = new long[1];
+      new ExcelReader(workbook, new ExcelWorkSheetRowCallbackHandler(new ExcelRowContentCallback() {
+        @Override
+        public void processRow(int rowNum, Map<String, String> map) {
+          count[0]++;
+        }
+      }), null).process();
+      millis = System.currentTimeMillis() - start;
+      rows = count[0];
+      sampler.sampleRetained();
+    }
+    return new long[] { rows, millis };
+  }
+
+  /**
+   * Samples heap usage after the most recent collection of each pool, i.e. the live heap, and the
+   * heap retained at the end of the read
+   */
+  private static class LiveHeapSampler extends Thread {
+    private volatile long maxLiveHeap;
+
+    LiveHeapSampler() {
+      setDaemon(true);
+    }
+
+    long getMaxLiveHeap() {
+      sample();
+      return maxLiveHeap;
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        sample();
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Samples the heap retained after a full collection, while the handler is still reachable
+     */
+    void sampleRetained() {
+      System.gc();
+      maxLiveHeap =
+          Math.max(maxLiveHeap, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    private void sample() {
+      long live = 0;
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        MemoryUsage usage = pool.getCollectionUsage();
+        if (MemoryType.HEAP == pool.getType() && null != usage) {
+          live += usage.getUsed();
+        }
+      }
+      maxLiveHeap = Math.max(maxLiveHeap, live);
+    }
+  }
+
+  /**
+   * Returns the generated workbook of given rows, generated once per row count
+   */
+  private static File getWorkbook(final int rows) throws IOException {
+    File workbook = new File(WORK_DIRECTORY, "persons-" + rows + ".xlsx");
+    if (workbook.isFile()) {
+      return workbook;
+    }
+
+    WORK_DIRECTORY.mkdirs();
+    File temp = new File(WORK_DIRECTORY, workbook.getName() + ".tmp");
+    OutputStream out = new FileOutputStream(temp);
+    try {
+      new ExcelWriter<PersonVO>(getCellMapping()).write(new Iterator<PersonVO>() {
+        private int row;
+
+        @Override
+        public boolean hasNext() {
+          return row < rows;
+        }
+
+        @Override
+        public PersonVO next() {
+          row++;
+          PersonVO person = new PersonVO();
+          person.setPersonId(String.valueOf(10000 + row));
+          person.setName("Person " + row);
+          person.setHeight(String.valueOf(5 + (row % 20) / 10.0));
+          person.setEmailId("person" + row + "@example.example");
+          person.setDob((1 + row % 12) + "/" + (1 + row % 28) + "/" + (1950 + row % 50));
+          person.setSalary(String.valueOf(3000 + row % 7000));
+          return person;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      }, out);
+    } finally {
+      out.close();
+    }
+    if (!temp.renameTo(workbook)) {
+      throw new IOException("Unable to rename " + temp + " to " + workbook);
+    }
+    return workbook;
+  }
+
+  private static void record(String key, long rowsPerSecond) throws IOException {
+    Properties recorded = load(THROUGHPUT_FILE);
+    recorded.setProperty(key, String.valueOf(rowsPerSecond));
+    OutputStream out = new FileOutputStream(THROUGHPUT_FILE);
+    try {
+      recorded.store(out, "rows per second of the last regression run");
+    } finally {
+      out.close();
+    }
+  }
+
+  private static Properties load(File file) throws IOException {
+    Properties properties = new Properties();
+    if (file.isFile()) {
+      InputStream in = new FileInputStream(file);
+      try {
+        properties.load(in);
+      } finally {
+        in.close();
+      }
+    }
+    return properties;
+  }
+
+  private static Map<String, String> getCellMapping() {
+    Map<String, String> cellMapping = new HashMap<String, String>();
+    cellMapping.put("HEADER", "Person Id,Name,Height,Email Address,DOB,Salary");
+    cellMapping.put("A", "personId");
+    cellMapping.put("B", "name");
+    cellMapping.put("C", "height");
+    cellMapping.put("D", "emailId");
+    cellMapping.put("E", "dob");
+    cellMapping.put("F", "salary");
+    return cellMapping;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.myjeeva.poi.vo.PersonVO;
+
+/**
+ * Demonstration of mapping plan sharing, checks that handlers created one after the other for the
+ * same type and cell mapping share one plan, even when a garbage collection runs in between
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelMappingPlanTest {
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> cellMapping = new HashMap<String, String>();
+    cellMapping.put("HEADER", "Person Id,Name,Height,Email Address,DOB,Salary");
+    cellMapping.put("A", "personId");
+    cellMapping.put("B", "name");
+    cellMapping.put("C", "height");
+    cellMapping.put("D", "emailId");
+    cellMapping.put("E", "dob");
+    cellMapping.put("F", "salary");
+
+    // the first handler is dropped right away, as after reading a file
+    WeakReference<ExcelMappingPlan<PersonVO>> firstPlan =
+        new WeakReference<ExcelMappingPlan<PersonVO>>(new ExcelWorkSheetHandler<PersonVO>(
+            PersonVO.class, cellMapping).getPlan());
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+
+    ExcelMappingPlan<PersonVO> secondPlan =
+        new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, cellMapping).getPlan();
+    if (firstPlan.get() != secondPlan) {
+      throw new IllegalStateException("Mapping plan was compiled again after a garbage collection");
+    }
+    System.out.println("Handlers share one mapping plan across garbage collections");
+  }
+}
@@ -0,0 +1,346 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.myjeeva.poi.vo.PersonVO;
+
+/**
+ * Demonstration of partial reads: resuming from a checkpoint, row filters, defined names, Excel
+ * Tables, pages of rows through the sidecar index and XLS files. Each read is checked against a
+ * full read of the same generated workbook.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelReaderTest {
+
+  private static final int ROWS = 200;
+
+  private static final String[] HEIGHTS = { "5.5", "5.9", "6.1" };
+
+  public static void main(String[] args) throws Exception {
+    File directory = new File("target/reader-check");
+    directory.mkdirs();
+    File xlsx = write(new XSSFWorkbook(), new File(directory, "persons.xlsx"));
+    File xls = write(new HSSFWorkbook(), new File(directory, "persons.xls"));
+
+    RowCollector all = new RowCollector();
+    new ExcelReader(xlsx, new ExcelWorkSheetRowCallbackHandler(all), null).process();
+    if (all.rows.size() != ROWS) {
+      throw new IllegalStateException("Read " + all.rows.size() + " rows, expected " + ROWS);
+    }
+    System.out.println("Full read: " + all.rows.size() + " rows");
+
+    checkResume(xlsx, all.rows);
+    checkRowFilter(xlsx);
+    checkDefinedName(xlsx);
+    checkTable(xlsx, new File(directory, "persons-table.xlsx"));
+    checkPages(xlsx, directory, all.rows);
+
+    RowCollector xlsPage = new RowCollector();
+    new ExcelReader(xls, xlsPage.getHandler(), null).readRows(0, 150, 20);
+    check("XLS page read", all.rows.subList(149, 169), xlsPage.rows);
+    checkRowCapacity("XLS page read", 20, xlsPage);
+
+    RowCollector fromXls = new RowCollector();
+    new ExcelReader(xls, new ExcelWorkSheetRowCallbackHandler(fromXls), null).process();
+    check("XLS read", all.rows, fromXls.rows);
+  }
+
+  /**
+   * Fails a read at row 120, resumes from the checkpoint taken at row 100
+   */
+  private static void checkResume(File file, List<String> all) throws Exception {
+    final RowCollector rows = new RowCollector();
+    final ExcelReadCheckpoint[] checkpoint = new ExcelReadCheckpoint[1];
+    final ExcelReader[] reader = new ExcelReader[1];
+    reader[0] = new ExcelReader(file, new ExcelWorkSheetRowCallbackHandler(
+        new ExcelRowContentCallback() {
+          @Override
+          public void processRow(int rowNum, Map<String, String> map) throws Exception {
+            if (120 == rowNum) {
+              throw new IllegalStateException("Simulated failure at row " + rowNum);
+            }
+            if (rowNum <= 100) {
+              rows.processRow(rowNum, map);
+            }
+            if (100 == rowNum) {
+              checkpoint[0] = reader[0].getCheckpoint();
+            }
+          }
+        }), null);
+    try {
+      reader[0].process();
+      throw new IllegalStateException("Simulated failure did not stop the read");
+    } catch (RuntimeException re) {
+      System.out.println("Read failed at row 120, resuming from " + checkpoint[0]);
+    }
+
+    new ExcelReader(file, rows.getHandler(), null).resume(checkpoint[0]);
+    check("Resumed read", all, rows.rows);
+    checkRowCapacity("Resumed read", 100, rows);
+  }
+
+  private static void checkRowFilter(File file) throws Exception {
+    ExcelWorkSheetHandler<PersonVO> workSheetHandler =
+        new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, getCellMapping());
+    workSheetHandler.setRowFilter(new ExcelRowFilter().whereEquals("C", "5.9").where("F",
+        new ExcelCellPredicate() {
+          @Override
+          public boolean test(String value) {
+            return null != value && Double.parseDouble(value) >= 2000;
+          }
+        }));
+    new ExcelReader(file, workSheetHandler, null).process();
+
+    List<String> expected = new ArrayList<String>();
+    for (int i = 1; i <= ROWS; i++) {
+      if ("5.9".equals(getHeight(i)) && getSalary(i) >= 2000) {
+        expected.add("Person " + i);
+      }
+    }
+    List<String> actual = new ArrayList<String>();
+    for (PersonVO person : workSheetHandler.getValueList()) {
+      actual.add(person.getName());
+    }
+    check("Filtered read", expected, actual);
+  }
+
+  /**
+   * Defined name Staff covers columns B:C of the header row and the first 50 persons
+   */
+  private static void checkDefinedName(File file) throws Exception {
+    List<String> expected = new ArrayList<String>();
+    for (int i = 1; i <= 50; i++) {
+      expected.add(i + " {Name=Person " + i + ", Height=" + getHeight(i) + "}");
+    }
+
+    RowCollector rows = new RowCollector();
+    new ExcelReader(file, new ExcelWorkSheetRowCallbackHandler(rows), null).process("Staff");
+    check("Defined name read", expected, rows.rows);
+  }
+
+  /**
+   * Table Staff covers columns C:E of the header row, the first 10 persons and a totals row. The
+   * table wins over the defined name Staff, and its header comes from the table column names, not
+   * from the header row of the sheet.
+   */
+  private static void checkTable(File file, File tableFile) throws Exception {
+    addTable(file, tableFile);
+    List<String> expected = new ArrayList<String>();
+    for (int i = 1; i <= 10; i++) {
+      expected.add(i + " {Tall=" + getHeight(i) + ", Mail=person" + i + "@example.com, Born="
+          + "1980-01-" + (10 + i % 20) + "}");
+    }
+
+    RowCollector rows = new RowCollector();
+    new ExcelReader(tableFile, new ExcelWorkSheetRowCallbackHandler(rows), null).process("Staff");
+    check("Table read", expected, rows.rows);
+  }
+
+  /**
+   * Copies the workbook with table Staff on C1:E12 added to the sheet, POI cannot create one
+   */
+  private static void addTable(File file, File tableFile) throws Exception {
+    String table = "<table xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+        + " id=\"1\" name=\"Staff\" displayName=\"Staff\" ref=\"C1:E12\" totalsRowCount=\"1\">"
+        + "<autoFilter ref=\"C1:E11\"/><tableColumns count=\"3\">"
+        + "<tableColumn id=\"1\" name=\"Tall\"/><tableColumn id=\"2\" name=\"Mail\"/>"
+        + "<tableColumn id=\"3\" name=\"Born\"/></tableColumns></table>";
+    String relationships = "<Relationships"
+        + " xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+        + "<Relationship Id=\"rId1\" Target=\"../tables/table1.xml\" Type=\""
+        + "http://schemas.openxmlformats.org/officeDocument/2006/relationships/table\"/>"
+        + "</Relationships>";
+    String contentType = "<Override PartName=\"/xl/tables/table1.xml\" ContentType=\""
+        + "application/vnd.openxmlformats-officedocument.spreadsheetml.table+xml\"/>";
+    String tableParts = "<tableParts count=\"1\"><tablePart r:id=\"rId1\" xmlns:r=\""
+        + "http://schemas.openxmlformats.org/officeDocument/2006/relationships\"/></tableParts>";
+
+    ZipInputStream in = new ZipInputStream(new FileInputStream(file));
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tableFile));
+    try {
+      ZipEntry entry;
+      while (null != (entry = in.getNextEntry())) {
+        String content = new String(IOUtils.toByteArray(in), "UTF-8");
+        if ("[Content_Types].xml".equals(entry.getName())) {
+          content = content.replace("</Types>", contentType + "</Types>");
+        } else if ("xl/worksheets/sheet1.xml".equals(entry.getName())) {
+          content = content.replace("</worksheet>", tableParts + "</worksheet>");
+        }
+        putEntry(out, entry.getName(), content);
+      }
+      putEntry(out, "xl/worksheets/_rels/sheet1.xml.rels", relationships);
+      putEntry(out, "xl/tables/table1.xml", table);
+    } finally {
+      in.close();
+      out.close();
+    }
+  }
+
+  private static void putEntry(ZipOutputStream out, String name, String content) throws Exception {
+    out.putNextEntry(new ZipEntry(name));
+    out.write(content.getBytes("UTF-8"));
+    out.closeEntry();
+  }
+
+  /**
+   * Reads a page without and with the sidecar index, the second indexed read seeks to the page.
+   * Handlers are told the dimension of the page, not of the sheet.
+   */
+  private static void checkPages(File file, File directory, List<String> all) throws Exception {
+    List<String> expected = all.subList(149, 169);
+    File indexDirectory = new File(directory, "index");
+    for (int i = 0; i < 3; i++) {
+      RowCollector rows = new RowCollector();
+      ExcelReader excelReader = new ExcelReader(file, rows.getHandler(), null);
+      if (i > 0) {
+        excelReader.setIndexDirectory(indexDirectory);
+      }
+      excelReader.readRows(0, 150, 20);
+      String read = (i == 0) ? "Page read" : "Indexed page read " + i;
+      check(read, expected, rows.rows);
+      checkRowCapacity(read, 20, rows);
+    }
+  }
+
+  private static void checkRowCapacity(String read, int expected, RowCollector rows) {
+    if (expected != rows.rowCapacity) {
+      throw new IllegalStateException(read + " presized for " + rows.rowCapacity
+          + " rows, expected " + expected);
+    }
+  }
+
+  private static void check(String read, List<String> expected, List<String> actual) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException(read + " returned " + actual + ", expected " + expected);
+    }
+    System.out.println(read + ": " + actual.size() + " rows as expected");
+  }
+
+  private static File write(Workbook workbook, File file) throws Exception {
+    Sheet sheet = workbook.createSheet("Persons");
+    // numbers without a style are delivered unformatted from XLSX, e.g. 1.0
+    CellStyle integer = workbook.createCellStyle();
+    integer.setDataFormat(workbook.createDataFormat().getFormat("0"));
+    String[] header = getCellMapping().get("HEADER").split(",");
+    Row row = sheet.createRow(0);
+    for (int c = 0; c < header.length; c++) {
+      row.createCell(c).setCellValue(header[c]);
+    }
+    for (int i = 1; i <= ROWS; i++) {
+      row = sheet.createRow(i);
+      Cell cell = row.createCell(0);
+      cell.setCellValue(i);
+      cell.setCellStyle(integer);
+      row.createCell(1).setCellValue("Person " + i);
+      row.createCell(2).setCellValue(getHeight(i));
+      row.createCell(3).setCellValue("person" + i + "@example.com");
+      row.createCell(4).setCellValue("1980-01-" + (10 + i % 20));
+      cell = row.createCell(5);
+      cell.setCellValue(getSalary(i));
+      cell.setCellStyle(integer);
+    }
+
+    if (sheet instanceof XSSFSheet) {
+      // POI declares A1 whatever the rows
+      ((XSSFSheet) sheet).getCTWorksheet().getDimension().setRef("A1:F" + (ROWS + 1));
+    }
+
+    Name name = workbook.createName();
+    name.setNameName("Staff");
+    name.setRefersToFormula("Persons!$B$1:$C$51");
+
+    OutputStream out = new FileOutputStream(file);
+    try {
+      workbook.write(out);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static String getHeight(int i) {
+    return HEIGHTS[i % HEIGHTS.length];
+  }
+
+  private static int getSalary(int i) {
+    return 1000 + i * 10;
+  }
+
+  private static Map<String, String> getCellMapping() {
+    Map<String, String> cellMapping = new HashMap<String, String>();
+    cellMapping.put("HEADER", "Person Id,Name,Height,Email Address,DOB,Salary");
+    cellMapping.put("A", "personId");
+    cellMapping.put("B", "name");
+    cellMapping.put("C", "height");
+    cellMapping.put("D", "emailId");
+    cellMapping.put("E", "dob");
+    cellMapping.put("F", "salary");
+    return cellMapping;
+  }
+
+  /**
+   * Collects rows as row number and row map text, and the data row capacity of the dimension
+   */
+  private static class RowCollector implements ExcelRowContentCallback {
+    private final List<String> rows = new ArrayList<String>();
+    private int rowCapacity = -1;
+
+    @Override
+    public void processRow(int rowNum, Map<String, String> map) throws Exception {
+      rows.add(rowNum + " " + map);
+    }
+
+    ExcelWorkSheetRowCallbackHandler getHandler() {
+      return new ExcelWorkSheetRowCallbackHandler(this) {
+        @Override
+        public void sheetDimension(ExcelSheetDimension dimension) {
+          super.sheetDimension(dimension);
+          rowCapacity = dimension.getRowCapacity(1);
+        }
+      };
+    }
+  }
+}
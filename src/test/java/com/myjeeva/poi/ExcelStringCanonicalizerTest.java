@@ -0,0 +1,93 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Demonstration of string canonicalization, checks that canonical values equal the values read
+ * without it. Blank shared string cells ahead of the first value of a row are the tricky part.
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelStringCanonicalizerTest {
+
+  public static void main(String[] args) throws Exception {
+    File file = new File("target/canonicalizer-check.xlsx");
+    file.getParentFile().mkdirs();
+
+    // Shared strings table: Calc, Dept, "", Ops, Sales
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet("Departments");
+    String[][] rows =
+        { { "Calc", "Dept" }, { "", "Ops" }, { "Sales", "Sales" }, { "", "Sales" },
+            { "Ops", "Ops" } };
+    for (int r = 0; r < rows.length; r++) {
+      XSSFRow row = sheet.createRow(r);
+      for (int c = 0; c < rows[r].length; c++) {
+        row.createCell(c).setCellValue(rows[r][c]);
+      }
+    }
+    OutputStream out = new FileOutputStream(file);
+    try {
+      workbook.write(out);
+    } finally {
+      out.close();
+    }
+
+    List<String> expected = read(file, false);
+    List<String> canonical = read(file, true);
+    for (String row : canonical) {
+      System.out.println(row);
+    }
+
+    if (!expected.equals(canonical)) {
+      throw new IllegalStateException("Canonical rows " + canonical + " differ from " + expected);
+    }
+    System.out.println("Canonical rows match the rows read without canonicalization");
+  }
+
+  private static List<String> read(File file, boolean canonicalizeStrings) throws Exception {
+    final List<String> rows = new ArrayList<String>();
+    ExcelWorkSheetRowCallbackHandler handler =
+        new ExcelWorkSheetRowCallbackHandler(new ExcelRowContentCallback() {
+          @Override
+          public void processRow(int rowNum, Map<String, String> map) throws Exception {
+            rows.add(rowNum + " " + map);
+          }
+        });
+
+    ExcelReader excelReader = new ExcelReader(file, handler, null);
+    excelReader.setCanonicalizeStrings(canonicalizeStrings);
+    excelReader.process();
+    return rows;
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.myjeeva.poi.vo.PersonVO;
+import com.myjeeva.poi.vo.PersonVOSheetHandler;
+import com.myjeeva.poi.vo.PersonValue;
+
+/**
+ * Demonstration of constructor binding and of the handler generated from the {@link ExcelSheet}
+ * annotated PersonVO, checks that both read the same persons as {@link ExcelWorkSheetHandler}
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelWorkSheetConstructorHandlerTest {
+
+  private static final String SAMPLE_PERSON_DATA_FILE_PATH =
+      "src/test/resources/Sample-Person-Data.xlsx";
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> cellMapping = new HashMap<String, String>();
+    cellMapping.put("HEADER", "Person Id,Name,Height,Email Address,DOB,Salary");
+    cellMapping.put("A", "personId");
+    cellMapping.put("B", "name");
+    cellMapping.put("C", "height");
+    cellMapping.put("D", "emailId");
+    cellMapping.put("E", "dob");
+    cellMapping.put("F", "salary");
+
+    ExcelWorkSheetHandler<PersonVO> workSheetHandler =
+        new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, cellMapping);
+    new ExcelReader(SAMPLE_PERSON_DATA_FILE_PATH, workSheetHandler, null).process();
+    List<String> expected = new ArrayList<String>();
+    for (PersonVO p : workSheetHandler.getValueList()) {
+      expected.add(describe(p.getPersonId(), p.getName(), p.getHeight(), p.getEmailId(),
+          p.getDob(), p.getSalary()));
+    }
+    if (expected.isEmpty()) {
+      throw new IllegalStateException("No persons read from " + SAMPLE_PERSON_DATA_FILE_PATH);
+    }
+
+    ExcelWorkSheetConstructorHandler<PersonValue> constructorHandler =
+        new ExcelWorkSheetConstructorHandler<PersonValue>(PersonValue.class, cellMapping,
+            "personId", "name", "height", "emailId", "dob", "salary");
+    new ExcelReader(SAMPLE_PERSON_DATA_FILE_PATH, constructorHandler, null).process();
+    List<String> bound = new ArrayList<String>();
+    for (PersonValue p : constructorHandler.getValueList()) {
+      bound.add(describe(p.getPersonId(), p.getName(), p.getHeight(), p.getEmailId(),
+          p.getDob(), p.getSalary()));
+    }
+    check("Constructor binding", expected, bound);
+
+    PersonVOSheetHandler generatedHandler = new PersonVOSheetHandler();
+    new ExcelReader(SAMPLE_PERSON_DATA_FILE_PATH, generatedHandler, null).process();
+    List<String> generated = new ArrayList<String>();
+    for (PersonVO p : generatedHandler.getValueList()) {
+      generated.add(describe(p.getPersonId(), p.getName(), p.getHeight(), p.getEmailId(),
+          p.getDob(), p.getSalary()));
+    }
+    check("Generated handler", expected, generated);
+  }
+
+  private static void check(String binding, List<String> expected, List<String> actual) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException(binding + " read " + actual + ", expected " + expected);
+    }
+    System.out.println(binding + ": " + actual.size() + " persons as expected");
+  }
+
+  private static String describe(String... values) {
+    StringBuilder sb = new StringBuilder();
+    for (String value : values) {
+      sb.append((sb.length() == 0) ? '[' : '|').append(value);
+    }
+    return sb.append(']').toString();
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.myjeeva.poi.vo.PersonVO;
+
+/**
+ * Demonstration of Excel File (XLSX) Writing, checks that the written rows read back unchanged,
+ * with inline and with shared strings, and that null objects leave blank rows without being counted
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public class ExcelWriterTest {
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> cellMapping = getCellMapping();
+
+    ExcelWorkSheetHandler<PersonVO> workSheetHandler =
+        new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, cellMapping);
+    new ExcelReader("src/test/resources/Sample-Person-Data.xlsx", workSheetHandler, null).process();
+
+    List<PersonVO> persons = new ArrayList<PersonVO>(workSheetHandler.getValueList());
+    // values the XML output has to escape or keep as is
+    persons.add(newPerson("1001", "O'Brien & <Sons>", " 5.9 ", null, "\"quoted\"", "1,234.50"));
+    persons.add(newPerson("1002", "Ren\u00e9e \uD83D\uDE00", "6'1\"", "line\nbreak@x.com", null,
+        "0"));
+
+    File directory = new File("target");
+    directory.mkdirs();
+    check(persons, cellMapping, new File(directory, "writer-check-inline.xlsx"), false);
+    check(persons, cellMapping, new File(directory, "writer-check-shared.xlsx"), true);
+    checkNullObject(persons, cellMapping, new File(directory, "writer-check-null.xlsx"));
+  }
+
+  private static void checkNullObject(List<PersonVO> persons, Map<String, String> cellMapping,
+      File file) throws Exception {
+    ExcelWriter<PersonVO> excelWriter = new ExcelWriter<PersonVO>(cellMapping);
+    int written = excelWriter.write(Arrays.asList(persons.get(0), null, persons.get(1)), file);
+
+    final List<Integer> rowNums = new ArrayList<Integer>();
+    new ExcelReader(file, new ExcelWorkSheetRowCallbackHandler(new ExcelRowContentCallback() {
+      @Override
+      public void processRow(int rowNum, Map<String, String> map) throws Exception {
+        rowNums.add(rowNum);
+      }
+    }), null).process();
+
+    if (written != 2 || !Arrays.asList(1, 3).equals(rowNums)) {
+      throw new IllegalStateException(file + ": wrote " + written + " rows, read rows " + rowNums
+          + ", expected 2 rows, read rows [1, 3]");
+    }
+    System.out.println(file + ": null object left row 2 blank, " + written + " rows written");
+  }
+
+  private static void check(List<PersonVO> persons, Map<String, String> cellMapping, File file,
+      boolean sharedStrings) throws Exception {
+    ExcelWriter<PersonVO> excelWriter = new ExcelWriter<PersonVO>(cellMapping);
+    excelWriter.setSharedStrings(sharedStrings);
+    int written = excelWriter.write(persons, file);
+
+    ExcelWorkSheetHandler<PersonVO> workSheetHandler =
+        new ExcelWorkSheetHandler<PersonVO>(PersonVO.class, cellMapping);
+    new ExcelReader(file, workSheetHandler, null).process();
+    List<PersonVO> read = workSheetHandler.getValueList();
+
+    if (written != persons.size() || read.size() != persons.size()) {
+      throw new IllegalStateException(file + ": wrote " + written + " of " + persons.size()
+          + " rows, read " + read.size());
+    }
+    for (int i = 0; i < persons.size(); i++) {
+      String expected = describe(persons.get(i));
+      String actual = describe(read.get(i));
+      if (!expected.equals(actual)) {
+        throw new IllegalStateException(file + ": row " + (i + 1) + " read back as " + actual
+            + ", expected " + expected);
+      }
+    }
+    System.out.println(file + ": " + read.size() + " rows read back unchanged (shared strings "
+        + sharedStrings + ")");
+  }
+
+  private static Map<String, String> getCellMapping() {
+    Map<String, String> cellMapping = new HashMap<String, String>();
+    cellMapping.put("HEADER", "Person Id,Name,Height,Email Address,DOB,Salary");
+    cellMapping.put("A", "personId");
+    cellMapping.put("B", "name");
+    cellMapping.put("C", "height");
+    cellMapping.put("D", "emailId");
+    cellMapping.put("E", "dob");
+    cellMapping.put("F", "salary");
+    return cellMapping;
+  }
+
+  private static PersonVO newPerson(String personId, String name, String height, String emailId,
+      String dob, String salary) {
+    PersonVO person = new PersonVO();
+    person.setPersonId(personId);
+    person.setName(name);
+    person.setHeight(height);
+    person.setEmailId(emailId);
+    person.setDob(dob);
+    person.setSalary(salary);
+    return person;
+  }
+
+  private static String describe(PersonVO p) {
+    return String.format("[%s|%s|%s|%s|%s|%s]", p.getPersonId(), p.getName(), p.getHeight(),
+        p.getEmailId(), p.getDob(), p.getSalary());
+  }
+}
@@ -23,19 +23,29 @@ package com.myjeeva.poi.vo;
 
 import java.io.Serializable;
 
+import com.myjeeva.poi.ExcelColumn;
+import com.myjeeva.poi.ExcelSheet;
+
 /**
  * Sample ValueObject for Reading a Value from Excel File (XLSX)
  * 
  * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
  */
+@ExcelSheet
 public class PersonVO implements Serializable {
   private static final long serialVersionUID = 2236211849311396533L;
 
+  @ExcelColumn(header = "Person Id", column = "A")
   private String personId;
+  @ExcelColumn(header = "Name", column = "B")
   private String name;
+  @ExcelColumn(header = "Height", column = "C")
   private String height;
+  @ExcelColumn(header = "Salary", column = "F")
   private String salary;
+  @ExcelColumn(header = "Email Address", column = "D")
   private String emailId;
+  @ExcelColumn(header = "DOB", column = "E")
   private String dob;
 
   /**
@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) Jeevanandam M. (jeeva@myjeeva.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package com.myjeeva.poi.vo;
+
+import java.io.Serializable;
+
+/**
+ * Sample immutable ValueObject for Reading a Value from Excel File (XLSX) through its constructor
+ * 
+ * @author <a href="mailto:jeeva@myjeeva.com">Jeevanandam M.</a>
+ */
+public final class PersonValue implements Serializable {
+  private static final long serialVersionUID = -6127413981146120317L;
+
+  private final String personId;
+  private final String name;
+  private final String height;
+  private final String emailId;
+  private final String dob;
+  private final String salary;
+
+  public PersonValue(String personId, String name, String height, String emailId, String dob,
+      String salary) {
+    this.personId = personId;
+    this.name = name;
+    this.height = height;
+    this.emailId = emailId;
+    this.dob = dob;
+    this.salary = salary;
+  }
+
+  /**
+   * @return the personId
+   */
+  public String getPersonId() {
+    return personId;
+  }
+
+  /**
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the height
+   */
+  public String getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the emailId
+   */
+  public String getEmailId() {
+    return emailId;
+  }
+
+  /**
+   * @return the dob
+   */
+  public String getDob() {
+    return dob;
+  }
+
+  /**
+   * @return the salary
+   */
+  public String getSalary() {
+    return salary;
+  }
+}